@@ -0,0 +1,109 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.BasketTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares a basket of {@code legs} trades against the same trades executed one after another through the
+ * TradeService. Half of the legs buy and half sell, so the customer's balance and holdings stay level across
+ * invocations.
+ * <p>
+ * The set-up counts the statements each way runs with H2's query statistics and prints them: a basket runs the same
+ * number however many legs it has, while separate trades grow with every leg.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BasketTradeBenchmark {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    @Param({"2", "10", "30"})
+    public int legs;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private BasketTradeService basketTradeService;
+    private Integer customerId;
+    private BasketTradeRequest basket;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start(
+                "trade.basket.max-legs=" + this.legs,
+                "customer.cache.enabled=false",
+                "logging.level.au.com.innovativecoder=WARN"
+        );
+        this.tradeService = this.context.getBean(TradeService.class);
+        this.basketTradeService = this.context.getBean(BasketTradeService.class);
+        var customer = new Customer();
+        customer.setName("Basket");
+        customer.setBalance(1_000_000_000);
+        this.customerId = this.context.getBean(CustomerRepository.class).save(customer).map(Customer::getId).block();
+
+        var legs = new ArrayList<StockTradeRequest>(this.legs);
+        for (int i = 0; i < this.legs / 2; i++) {
+            legs.add(new StockTradeRequest(TICKERS[i % TICKERS.length], 10, 1, TradeAction.BUY));
+        }
+        for (int i = 0; i < this.legs / 2; i++) {
+            legs.add(new StockTradeRequest(TICKERS[i % TICKERS.length], 10, 1, TradeAction.SELL));
+        }
+        this.basket = new BasketTradeRequest(List.copyOf(legs));
+
+        var databaseClient = this.context.getBean(DatabaseClient.class);
+        databaseClient.sql("SET QUERY_STATISTICS TRUE").then().block();
+        System.out.printf("%nstatements for %d legs: basket %d, separate trades %d%n", this.legs,
+                statements(databaseClient, this::basket), statements(databaseClient, this::separateTrades));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public BasketTradeResponse basket() {
+        return this.basketTradeService.trade(this.customerId, this.basket).block();
+    }
+
+    @Benchmark
+    public StockTradeResponse separateTrades() {
+        return Flux.fromIterable(this.basket.legs())
+                .concatMap(leg -> this.tradeService.trade(this.customerId, leg))
+                .blockLast();
+    }
+
+    /**
+     * @return the number of statements the database executed while running the work once
+     */
+    private static long statements(DatabaseClient databaseClient, Supplier<?> work) {
+        var before = executions(databaseClient);
+        work.get();
+        // the statistics query itself counts once
+        return executions(databaseClient) - before - 1;
+    }
+
+    private static long executions(DatabaseClient databaseClient) {
+        return databaseClient.sql("SELECT COALESCE(SUM(EXECUTION_COUNT), 0) AS executions FROM INFORMATION_SCHEMA.QUERY_STATISTICS")
+                .map(row -> row.get("executions", Long.class))
+                .one()
+                .block();
+    }
+}
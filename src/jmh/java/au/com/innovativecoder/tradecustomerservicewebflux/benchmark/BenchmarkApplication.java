@@ -0,0 +1,31 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.stream.Stream;
+
+/**
+ * Starts the application without a web server against its embedded H2 database, for benchmarks that
+ * exercise services and repositories directly.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        var defaults = new String[]{
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "spring.rsocket.server.port=0",
+                "spring.r2dbc.generate-unique-name=true"
+        };
+        return new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Stream.concat(Stream.of(defaults), Stream.of(properties)).toArray(String[]::new))
+                .run();
+    }
+}
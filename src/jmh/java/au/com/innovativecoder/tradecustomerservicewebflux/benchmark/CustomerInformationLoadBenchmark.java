@@ -0,0 +1,76 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerInformationRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.PortfolioItemRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading CustomerInformation with two sequential queries (customer, then its portfolio items)
+ * against a single LEFT JOIN folded row by row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CustomerInformationLoadBenchmark {
+
+    @Param({"1", "5", "all"})
+    public String holdings;
+
+    private ConfigurableApplicationContext context;
+    private CustomerRepository customerRepository;
+    private PortfolioItemRepository portfolioItemRepository;
+    private CustomerInformationRepository customerInformationRepository;
+    private Integer customerId;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start();
+        this.customerRepository = context.getBean(CustomerRepository.class);
+        this.portfolioItemRepository = context.getBean(PortfolioItemRepository.class);
+        this.customerInformationRepository = context.getBean(CustomerInformationRepository.class);
+
+        var customer = new Customer();
+        customer.setName("Benchmark");
+        customer.setBalance(10000);
+        this.customerId = this.customerRepository.save(customer).map(Customer::getId).block();
+
+        var count = "all".equals(holdings) ? Ticker.values().length : Integer.parseInt(holdings);
+        Flux.fromArray(Ticker.values())
+                .take(count)
+                .map(ticker -> {
+                    var item = EntityDtoMapper.toPortfolioItem(this.customerId, ticker);
+                    item.setQuantity(10);
+                    return item;
+                })
+                .concatMap(this.portfolioItemRepository::save)
+                .blockLast();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public CustomerInformation twoSequentialQueries() {
+        return this.customerRepository.findById(this.customerId)
+                .flatMap(customer -> this.portfolioItemRepository.findAllByCustomerId(customer.getId())
+                        .collectList()
+                        .map(items -> EntityDtoMapper.toCustomerInformation(customer, items)))
+                .block();
+    }
+
+    @Benchmark
+    public CustomerInformation singleJoinQuery() {
+        return this.customerInformationRepository.findById(this.customerId).block();
+    }
+}
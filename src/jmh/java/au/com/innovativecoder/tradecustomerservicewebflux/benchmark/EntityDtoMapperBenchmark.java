@@ -0,0 +1,51 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.PortfolioItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping a customer and their portfolio items to CustomerInformation, from no holdings up to
+ * one holding of every ticker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EntityDtoMapperBenchmark {
+
+    @Param({"0", "1", "5", "all"})
+    public String holdings;
+
+    private Customer customer;
+    private List<PortfolioItem> items;
+
+    @Setup
+    public void setUp() {
+        this.customer = new Customer();
+        this.customer.setId(1);
+        this.customer.setName("Benchmark");
+        this.customer.setBalance(10000);
+
+        var count = "all".equals(holdings) ? Ticker.values().length : Integer.parseInt(holdings);
+        this.items = Arrays.stream(Ticker.values())
+                .limit(count)
+                .map(ticker -> {
+                    var item = EntityDtoMapper.toPortfolioItem(1, ticker);
+                    item.setQuantity(10);
+                    return item;
+                })
+                .toList();
+    }
+
+    @Benchmark
+    public CustomerInformation toCustomerInformation() {
+        return EntityDtoMapper.toCustomerInformation(this.customer, this.items);
+    }
+}
@@ -0,0 +1,77 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson encoding and decoding of the request and response bodies of the trade and customer endpoints,
+ * with an ObjectMapper configured the way Spring Boot configures the WebFlux codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonCodecBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private StockTradeRequest request;
+    private StockTradeResponse response;
+    private CustomerInformation customerInformation;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private byte[] customerInformationJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.request = new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY);
+        this.response = new StockTradeResponse(1, Ticker.APPLE, 100, 5, TradeAction.BUY, 500, 9500);
+        var holdings = Arrays.stream(Ticker.values())
+                .map(ticker -> new Holding(ticker, 10))
+                .toList();
+        this.customerInformation = new CustomerInformation(1, "Benchmark", 10000, holdings);
+        this.requestJson = this.objectMapper.writeValueAsBytes(this.request);
+        this.responseJson = this.objectMapper.writeValueAsBytes(this.response);
+        this.customerInformationJson = this.objectMapper.writeValueAsBytes(this.customerInformation);
+    }
+
+    @Benchmark
+    public byte[] encodeStockTradeRequest() throws IOException {
+        return this.objectMapper.writeValueAsBytes(this.request);
+    }
+
+    @Benchmark
+    public StockTradeRequest decodeStockTradeRequest() throws IOException {
+        return this.objectMapper.readValue(this.requestJson, StockTradeRequest.class);
+    }
+
+    @Benchmark
+    public byte[] encodeStockTradeResponse() throws IOException {
+        return this.objectMapper.writeValueAsBytes(this.response);
+    }
+
+    @Benchmark
+    public StockTradeResponse decodeStockTradeResponse() throws IOException {
+        return this.objectMapper.readValue(this.responseJson, StockTradeResponse.class);
+    }
+
+    @Benchmark
+    public byte[] encodeCustomerInformation() throws IOException {
+        return this.objectMapper.writeValueAsBytes(this.customerInformation);
+    }
+
+    @Benchmark
+    public CustomerInformation decodeCustomerInformation() throws IOException {
+        return this.objectMapper.readValue(this.customerInformationJson, CustomerInformation.class);
+    }
+}
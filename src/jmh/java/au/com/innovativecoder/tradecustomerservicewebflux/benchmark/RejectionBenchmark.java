@@ -0,0 +1,89 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.advice.ProblemMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of rejecting a trade.
+ * <p>
+ * The encoding benchmarks compare the previous rejection path, an exception with a stack trace and a formatted
+ * message turned into a ProblemDetail and serialized by Jackson, with a stackless exception written from a
+ * pre-encoded problem type. The workload benchmark runs TradeService.trade against the embedded database with
+ * nine rejected trades for every accepted one, encoding every rejection as the exception handler does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RejectionBenchmark {
+
+    private static final Integer CUSTOMER_ID = 1;
+    private static final String INSTANCE = "/customers/1/trade";
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+    private static final StockTradeRequest TOO_EXPENSIVE = new StockTradeRequest(Ticker.GOOGLE, 1_000_000, 1, TradeAction.BUY);
+    private static final StockTradeRequest NOT_HELD = new StockTradeRequest(Ticker.MICROSOFT, 10, 1, TradeAction.SELL);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ProblemMapper problemMapper = new ProblemMapper();
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private boolean buy;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start();
+        this.tradeService = context.getBean(TradeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public byte[] stackTraceAndProblemDetail() throws IOException {
+        var ex = new RuntimeException(InsufficientBalanceException.MESSAGE.formatted(CUSTOMER_ID));
+        var problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problem.setType(URI.create("http://innovativecoder.com.au/problems/insufficient-balance"));
+        problem.setTitle("Insufficient Balance");
+        problem.setInstance(URI.create(INSTANCE));
+        return this.objectMapper.writeValueAsBytes(problem);
+    }
+
+    @Benchmark
+    public byte[] stacklessPreEncoded() {
+        return this.problemMapper.toResponseEntity(new InsufficientBalanceException(CUSTOMER_ID), INSTANCE).getBody();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public int ninetyPercentRejected() {
+        var bytes = 0;
+        for (int i = 0; i < 10; i++) {
+            var request = i == 0 ? ((this.buy = !this.buy) ? BUY : SELL) : (i % 2 == 0 ? TOO_EXPENSIVE : NOT_HELD);
+            bytes += this.tradeService.trade(CUSTOMER_ID, request)
+                    .map(response -> 1)
+                    .onErrorResume(ApplicationException.class, e -> Mono.just(this.problemMapper.toResponseEntity(e, INSTANCE).getBody().length))
+                    .block();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures database trade throughput as customers are spread over more shards. Every invocation has
+ * {@code CUSTOMERS} customers, spread evenly over the shards, buy and then sell a share concurrently, so the
+ * trades of different shards never share a pool or a database. The shards are in-memory H2 databases in the
+ * same JVM, so the scaling shown is that of pool and database contention, not of additional hardware.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShardedTradeBenchmark {
+
+    private static final int CUSTOMERS = 64;
+    private static final int TRADES = 2 * CUSTOMERS;
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private Integer[] customerIds;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start(
+                "database.shards.count=" + this.shards,
+                "database.shards.url-template=r2dbc:h2:mem:///sharded-" + UUID.randomUUID() + "-%d",
+                "logging.level.au.com.innovativecoder=WARN"
+        );
+        this.tradeService = this.context.getBean(TradeService.class);
+        var shardRouting = this.context.getBean(ShardRouting.class);
+        var customerRepository = this.context.getBean(CustomerRepository.class);
+        this.customerIds = Flux.range(0, CUSTOMERS)
+                .concatMap(i -> {
+                    var customer = new Customer();
+                    customer.setName("Sharded " + i);
+                    customer.setBalance(1_000_000_000);
+                    return shardRouting.onShard(i % this.shards, customerRepository.save(customer));
+                })
+                .map(Customer::getId)
+                .collectList()
+                .block()
+                .toArray(Integer[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public StockTradeResponse buyThenSell() {
+        return Flux.fromArray(this.customerIds)
+                .flatMap(customerId -> this.tradeService.trade(customerId, BUY).then(this.tradeService.trade(customerId, SELL)), CUSTOMERS)
+                .blockLast();
+    }
+}
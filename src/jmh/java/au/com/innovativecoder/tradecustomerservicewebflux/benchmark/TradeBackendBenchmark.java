@@ -0,0 +1,90 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the R2DBC backend against the JDBC backend on virtual threads for the same trades and customer reads,
+ * with {@code inFlight} of them outstanding at a time. Both backends get pools of the same size and the customer
+ * cache is off, so every read reaches the database. The gc profiler reports the allocation of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TradeBackendBenchmark {
+
+    private static final int CUSTOMERS = 256;
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+
+    @Param({"r2dbc", "jdbc"})
+    public String backend;
+
+    @Param({"16", "256"})
+    public int inFlight;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private CustomerService customerService;
+    private Integer[] customerIds;
+
+    @Setup
+    public void setUp() {
+        var database = "backend-" + UUID.randomUUID();
+        this.context = BenchmarkApplication.start(
+                "trade.backend=" + this.backend,
+                "spring.r2dbc.url=r2dbc:h2:mem:///" + database,
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "customer.cache.enabled=false",
+                "logging.level.au.com.innovativecoder=WARN"
+        );
+        this.tradeService = this.context.getBean(TradeService.class);
+        this.customerService = this.context.getBean(CustomerService.class);
+        this.customerIds = Flux.range(0, CUSTOMERS)
+                .map(i -> {
+                    var customer = new Customer();
+                    customer.setName("Backend " + i);
+                    customer.setBalance(1_000_000_000);
+                    return customer;
+                })
+                .concatMap(this.context.getBean(CustomerRepository.class)::save)
+                .map(Customer::getId)
+                .collectList()
+                .block()
+                .toArray(Integer[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * CUSTOMERS)
+    public StockTradeResponse trades() {
+        return Flux.fromArray(this.customerIds)
+                .flatMap(customerId -> this.tradeService.trade(customerId, BUY).then(this.tradeService.trade(customerId, SELL)), this.inFlight)
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public CustomerInformation reads() {
+        return Flux.fromArray(this.customerIds)
+                .flatMap(this.customerService::getCustomerInformation, this.inFlight)
+                .blockLast();
+    }
+}
@@ -0,0 +1,64 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the database trade engine, which runs every trade in its own transaction, against the memory engine,
+ * which applies trades to the position book and writes them behind in group commits.
+ * Each thread trades for one of the three customers seeded by data.sql, alternating a buy and a sell so
+ * balances never run out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(3)
+public class TradeEngineBenchmark {
+
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+
+    @Param({"database", "memory"})
+    public String engine;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private final AtomicInteger nextCustomer = new AtomicInteger(1);
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start("trade.engine=" + engine, "logging.level.au.com.innovativecoder=WARN");
+        this.tradeService = context.getBean(TradeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Customer {
+
+        public Integer customerId;
+
+        @Setup
+        public void setUp(TradeEngineBenchmark benchmark) {
+            this.customerId = benchmark.nextCustomer.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public StockTradeResponse buyThenSell(Customer customer) {
+        this.tradeService.trade(customer.customerId, BUY).block();
+        return this.tradeService.trade(customer.customerId, SELL).block();
+    }
+}
@@ -0,0 +1,95 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeHistoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads one page of a customer with millions of trades, first page against a deep page, comparing the
+ * keyset query served by the API with the OFFSET query it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TradeHistoryPageBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final String SEED = """
+            INSERT INTO trade (customer_id, ticker, action, price, quantity, executed_at)
+            SELECT :customerId, 'GOOGLE', CASEWHEN(MOD(x, 2) = 0, 'BUY', 'SELL'), 10, 1, CURRENT_TIMESTAMP
+            FROM SYSTEM_RANGE(1, :trades)""";
+
+    private static final String OFFSET_PAGE = """
+            SELECT * FROM trade WHERE customer_id = :customerId ORDER BY id LIMIT :limit OFFSET :offset""";
+
+    @Param({"1", "1000"})
+    public int page;
+
+    @Param({"2000000"})
+    public int trades;
+
+    private ConfigurableApplicationContext context;
+    private DatabaseClient databaseClient;
+    private TradeHistoryService tradeHistoryService;
+    private Integer customerId;
+    private Long after;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start();
+        this.databaseClient = context.getBean(DatabaseClient.class);
+        this.tradeHistoryService = context.getBean(TradeHistoryService.class);
+
+        var customer = new Customer();
+        customer.setName("Benchmark");
+        customer.setBalance(10000);
+        this.customerId = context.getBean(CustomerRepository.class).save(customer).map(Customer::getId).block();
+
+        this.databaseClient.sql(SEED)
+                .bind("customerId", this.customerId)
+                .bind("trades", this.trades)
+                .fetch()
+                .rowsUpdated()
+                .block();
+        // the cursor a client would hold after reading every page before the measured one
+        this.after = this.page == 1 ? 0L : this.databaseClient.sql(OFFSET_PAGE)
+                .bind("customerId", this.customerId)
+                .bind("limit", 1)
+                .bind("offset", (this.page - 1) * PAGE_SIZE - 1)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public List<TradeHistoryItem> keysetPage() {
+        return this.tradeHistoryService.getTrades(this.customerId, this.after, PAGE_SIZE, null)
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<Long> offsetPage() {
+        return this.databaseClient.sql(OFFSET_PAGE)
+                .bind("customerId", this.customerId)
+                .bind("limit", PAGE_SIZE)
+                .bind("offset", (this.page - 1) * PAGE_SIZE)
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .collectList()
+                .block();
+    }
+}
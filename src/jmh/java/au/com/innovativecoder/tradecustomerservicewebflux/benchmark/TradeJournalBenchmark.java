@@ -0,0 +1,60 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.journal.FsyncPolicy;
+import au.com.innovativecoder.tradecustomerservicewebflux.journal.TradeJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures trade journal append throughput under each fsync policy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TradeJournalBenchmark {
+
+    private static final StockTradeRequest REQUEST = new StockTradeRequest(Ticker.GOOGLE, 120, 10, TradeAction.BUY);
+
+    @Param({"PER_TRADE", "PER_COUNT", "PER_INTERVAL"})
+    public FsyncPolicy policy;
+
+    @Param({"64"})
+    public int fsyncEvery;
+
+    @Param({"10"})
+    public int fsyncIntervalMillis;
+
+    private Path directory;
+    private TradeJournal journal;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("trade-journal-benchmark");
+        this.journal = new TradeJournal(this.directory, 1 << 20, policy, fsyncEvery, Duration.ofMillis(fsyncIntervalMillis));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        this.journal.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            for (var path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long append() {
+        return this.journal.append(42, REQUEST);
+    }
+}
@@ -0,0 +1,94 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.metrics.TradeMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording trade metrics into a Prometheus registry. Run with the gc profiler,
+ * which is the default for this build, recordStage and recordOutcome should report no allocation per
+ * operation. time and countOutcome wrap a trade the way the services do and subscribe to it, so they
+ * report the operator and subscriber allocated per trade, plus the subscription of the reused source
+ * Mono. The final subscriber is reused, so it is not counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TradeMetricsBenchmark {
+
+    private static final StockTradeRequest REQUEST = new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY);
+
+    private TradeMetrics tradeMetrics;
+    private long nanos;
+    private Mono<StockTradeResponse> trade;
+    private BlackholeSubscriber subscriber;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.tradeMetrics = new TradeMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        this.trade = Mono.just(new StockTradeResponse(1, Ticker.APPLE, 100, 5, TradeAction.BUY, 500, 9_500));
+        this.subscriber = new BlackholeSubscriber(blackhole);
+    }
+
+    @Benchmark
+    public void recordStage() {
+        this.tradeMetrics.recordStage(TradeMetrics.Stage.BALANCE_UPDATE, 100_000 + (this.nanos++ & 0xFFFF));
+    }
+
+    @Benchmark
+    public void recordOutcome() {
+        this.tradeMetrics.recordOutcome(TradeMetrics.Outcome.INSUFFICIENT_SHARES, Ticker.APPLE, TradeAction.SELL);
+    }
+
+    @Benchmark
+    public void time() {
+        this.tradeMetrics.time(TradeMetrics.Stage.BALANCE_UPDATE, this.trade).subscribe(this.subscriber);
+    }
+
+    @Benchmark
+    public void countOutcome() {
+        this.tradeMetrics.countOutcome(REQUEST, this.trade).subscribe(this.subscriber);
+    }
+
+    /**
+     * Requests everything and hands the value to the blackhole, without allocating per subscription.
+     */
+    private static final class BlackholeSubscriber implements CoreSubscriber<StockTradeResponse> {
+
+        private final Blackhole blackhole;
+
+        private BlackholeSubscriber(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(StockTradeResponse response) {
+            this.blackhole.consume(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.blackhole.consume(error);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
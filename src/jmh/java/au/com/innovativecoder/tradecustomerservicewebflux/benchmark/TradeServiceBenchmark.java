@@ -0,0 +1,50 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the full TradeService.trade pipeline against the embedded R2DBC H2 database:
+ * the transaction, the balance and portfolio writes, the trade history insert and the commit, for both write paths.
+ * A buy and a sell alternate so the balance never runs out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TradeServiceBenchmark {
+
+    private static final Integer CUSTOMER_ID = 1;
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+
+    @Param({"entity", "conditional"})
+    public String writePath;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+
+    @Setup
+    public void setUp() {
+        this.context = BenchmarkApplication.start("trade.write-path=" + writePath);
+        this.tradeService = context.getBean(TradeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public StockTradeResponse buyThenSell() {
+        this.tradeService.trade(CUSTOMER_ID, BUY).block();
+        return this.tradeService.trade(CUSTOMER_ID, SELL).block();
+    }
+}
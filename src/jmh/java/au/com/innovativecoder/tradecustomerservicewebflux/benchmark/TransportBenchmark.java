@@ -0,0 +1,196 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.benchmark;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.tcp.TcpClient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the REST/JSON and RSocket/CBOR transports for the same trades against the running application.
+ * <p>
+ * Every invocation has {@code CUSTOMERS} customers buy and then sell a share concurrently, either as single
+ * requests (one HTTP exchange or RSocket request-response per trade) or as one stream (NDJSON over HTTP or an
+ * RSocket request-channel). Admission control is off so only the transport differs. The bytes both clients send
+ * and receive are counted at the socket and reported per trade when a trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransportBenchmark {
+
+    private static final int CUSTOMERS = 64;
+    private static final int TRADES = 2 * CUSTOMERS;
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL);
+
+    private final ByteCounter bytes = new ByteCounter();
+    private final LongAdder trades = new LongAdder();
+
+    private ConfigurableApplicationContext context;
+    private Integer[] customerIds;
+    private WebClient webClient;
+    private RSocketRequester requester;
+
+    @Setup
+    public void setUp() {
+        this.context = new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.rsocket.server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.r2dbc.generate-unique-name=true",
+                        "trade.admission.enabled=false"
+                )
+                .run();
+        this.customerIds = Flux.range(0, CUSTOMERS)
+                .map(i -> {
+                    var customer = new Customer();
+                    customer.setName("Transport " + i);
+                    customer.setBalance(1_000_000_000);
+                    return customer;
+                })
+                .concatMap(this.context.getBean(CustomerRepository.class)::save)
+                .map(Customer::getId)
+                .collectList()
+                .block()
+                .toArray(Integer[]::new);
+
+        var httpPort = ((ReactiveWebServerApplicationContext) this.context).getWebServer().getPort();
+        var rsocketPort = this.context.getEnvironment().getRequiredProperty("local.rsocket.server.port", Integer.class);
+        this.webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + httpPort)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create()
+                        .doOnChannelInit((observer, channel, address) -> channel.pipeline().addFirst(this.bytes))))
+                .build();
+        this.requester = this.context.getBean(RSocketRequester.Builder.class)
+                .transport(TcpClientTransport.create(TcpClient.create()
+                        .host("localhost")
+                        .port(rsocketPort)
+                        .doOnChannelInit((observer, channel, address) -> channel.pipeline().addFirst(this.bytes))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        var count = Math.max(1, this.trades.sum());
+        System.out.printf("%nbytes per trade: sent %.1f, received %.1f%n",
+                (double) this.bytes.written.sum() / count, (double) this.bytes.read.sum() / count);
+        this.requester.dispose();
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public StockTradeResponse restJson() {
+        return Flux.fromArray(this.customerIds)
+                .flatMap(customerId -> restTrade(customerId, BUY).then(restTrade(customerId, SELL)), CUSTOMERS)
+                .doOnComplete(() -> this.trades.add(TRADES))
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public CustomerTradeResult restNdjsonStream() {
+        return this.webClient.post()
+                .uri("/customers/trades")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(stream(), CustomerTradeRequest.class)
+                .retrieve()
+                .bodyToFlux(CustomerTradeResult.class)
+                .doOnComplete(() -> this.trades.add(TRADES))
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public StockTradeResponse rsocketRequestResponse() {
+        return Flux.fromArray(this.customerIds)
+                .flatMap(customerId -> rsocketTrade(customerId, BUY).then(rsocketTrade(customerId, SELL)), CUSTOMERS)
+                .doOnComplete(() -> this.trades.add(TRADES))
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public CustomerTradeResult rsocketChannel() {
+        return this.requester.route("customers.trades")
+                .data(stream(), CustomerTradeRequest.class)
+                .retrieveFlux(CustomerTradeResult.class)
+                .doOnComplete(() -> this.trades.add(TRADES))
+                .blockLast();
+    }
+
+    private Mono<StockTradeResponse> restTrade(Integer customerId, StockTradeRequest request) {
+        return this.webClient.post()
+                .uri("/customers/{customerId}/trade", customerId)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(StockTradeResponse.class);
+    }
+
+    private Mono<StockTradeResponse> rsocketTrade(Integer customerId, StockTradeRequest request) {
+        return this.requester.route("customers.{customerId}.trade", customerId)
+                .data(request)
+                .retrieveMono(StockTradeResponse.class);
+    }
+
+    /**
+     * Every customer buys and then sells; the stream endpoints keep the order of each customer's trades.
+     */
+    private Flux<CustomerTradeRequest> stream() {
+        return Flux.fromArray(this.customerIds)
+                .concatMap(customerId -> Flux.just(new CustomerTradeRequest(customerId, BUY), new CustomerTradeRequest(customerId, SELL)));
+    }
+
+    /**
+     * Counts the bytes of every connection it is added to, below any protocol codec.
+     */
+    @ChannelHandler.Sharable
+    static final class ByteCounter extends ChannelDuplexHandler {
+
+        private final LongAdder read = new LongAdder();
+        private final LongAdder written = new LongAdder();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf buf) {
+                this.read.add(buf.readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof ByteBuf buf) {
+                this.written.add(buf.readableBytes());
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
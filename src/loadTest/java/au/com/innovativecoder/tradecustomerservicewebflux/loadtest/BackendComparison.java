@@ -0,0 +1,206 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-model comparison of the R2DBC backend and the JDBC backend on virtual threads over HTTP.
+ * <p>
+ * For every backend the application is started on a random port against an in-memory H2 database of its own, with
+ * admission control off and the customer cache off so every request reaches the database. For every concurrency
+ * level, that many clients each send a trade or a read as soon as their previous request completes, so exactly that
+ * many requests are in flight. Reported per level are the throughput, the latency percentiles and the live heap
+ * per request in flight: the heap after a full collection in the middle of the measurement, less the heap after a
+ * full collection while idle, divided by the concurrency. The client runs in the same JVM, so its share is included;
+ * it is the same for both backends.
+ * <p>
+ * Settings are system properties, all optional:
+ * <ul>
+ *     <li>{@code loadtest.backends} - backends to compare, r2dbc,jdbc</li>
+ *     <li>{@code loadtest.concurrency} - requests in flight of each level, 64,512,2048</li>
+ *     <li>{@code loadtest.customers} - number of seeded customers, 1000</li>
+ *     <li>{@code loadtest.duration} - measured duration of each level, 20s</li>
+ *     <li>{@code loadtest.warmup} - unmeasured duration before it, 5s</li>
+ *     <li>{@code loadtest.trade-ratio} - share of requests that are trades, 0.5</li>
+ * </ul>
+ * Any other {@code loadtest.app.*} property is passed to the application with the prefix removed,
+ * e.g. {@code -Dloadtest.app.spring.datasource.hikari.maximum-pool-size=40}.
+ */
+public final class BackendComparison {
+
+    private static final int INITIAL_BALANCE = 1_000_000_000;
+
+    private final int customers;
+    private final int[] concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final double tradeRatio;
+    private final List<String> results = new ArrayList<>();
+
+    private BackendComparison() {
+        this.customers = Integer.getInteger("loadtest.customers", 1000);
+        this.concurrency = Arrays.stream(System.getProperty("loadtest.concurrency", "64,512,2048").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+        this.duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "20s"));
+        this.warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s"));
+        this.tradeRatio = Double.parseDouble(System.getProperty("loadtest.trade-ratio", "0.5"));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        var comparison = new BackendComparison();
+        for (var backend : System.getProperty("loadtest.backends", "r2dbc,jdbc").split(",")) {
+            comparison.run(backend.trim());
+        }
+        System.out.printf("%n%-8s %9s %12s %10s %10s %10s %10s %18s%n",
+                "backend", "in flight", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "failed", "heap/in flight KiB");
+        comparison.results.forEach(System.out::println);
+    }
+
+    private void run(String backend) throws InterruptedException {
+        var database = "comparison-" + backend;
+        var properties = new ArrayList<String>(List.of(
+                "server.port=0",
+                "spring.rsocket.server.port=0",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "trade.backend=" + backend,
+                "spring.r2dbc.url=r2dbc:h2:mem:///" + database,
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "trade.admission.enabled=false",
+                "customer.cache.enabled=false"
+        ));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> properties.add(name.substring("loadtest.app.".length()) + "=" + System.getProperty(name)));
+
+        try (var context = new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+            var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            var customerIds = seed(context.getBean(CustomerRepository.class));
+            for (var level : this.concurrency) {
+                var connections = ConnectionProvider.builder("comparison")
+                        .maxConnections(level)
+                        .pendingAcquireMaxCount(-1)
+                        .build();
+                try {
+                    var client = WebClient.builder()
+                            .baseUrl("http://localhost:" + port)
+                            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                            .build();
+                    this.results.add(measure(backend, level, client, customerIds));
+                    System.out.println(this.results.get(this.results.size() - 1));
+                } finally {
+                    connections.dispose();
+                }
+            }
+        }
+    }
+
+    private Integer[] seed(CustomerRepository customerRepository) {
+        return Flux.range(0, this.customers)
+                .map(i -> {
+                    var customer = new Customer();
+                    customer.setName("Comparison " + i);
+                    customer.setBalance(INITIAL_BALANCE);
+                    return customer;
+                })
+                .concatMap(customerRepository::save)
+                .map(Customer::getId)
+                .collectList()
+                .block()
+                .toArray(Integer[]::new);
+    }
+
+    private String measure(String backend, int level, WebClient client, Integer[] customerIds) throws InterruptedException {
+        var idleHeap = heapAfterFullGc();
+        var latency = new ConcurrentHistogram(3);
+        var failed = new LongAdder();
+        var measuring = new AtomicBoolean();
+        var stopped = new AtomicBoolean();
+        var load = Flux.range(0, level)
+                .flatMap(worker -> Mono.defer(() -> {
+                            var start = System.nanoTime();
+                            return request(client, customerIds)
+                                    .doOnNext(status -> {
+                                        if (status != 200) {
+                                            failed.increment();
+                                        } else if (measuring.get()) {
+                                            latency.recordValue(System.nanoTime() - start);
+                                        }
+                                    });
+                        })
+                        .repeat(() -> !stopped.get()), level)
+                .then()
+                .toFuture();
+
+        Thread.sleep(this.warmup.toMillis());
+        measuring.set(true);
+        var start = System.nanoTime();
+        Thread.sleep(this.duration.toMillis() / 2);
+        var loadedHeap = heapAfterFullGc();
+        Thread.sleep(this.duration.toMillis() / 2);
+        measuring.set(false);
+        var elapsed = System.nanoTime() - start;
+        stopped.set(true);
+        load.join();
+
+        return "%-8s %9d %12.1f %10.3f %10.3f %10.3f %10d %18.1f".formatted(backend, level,
+                latency.getTotalCount() / (elapsed / 1e9),
+                latency.getValueAtPercentile(50) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6,
+                latency.getValueAtPercentile(99.9) / 1e6,
+                failed.sum(),
+                Math.max(0, loadedHeap - idleHeap) / 1024.0 / level);
+    }
+
+    /**
+     * Buys a share, which never runs out of balance, or reads a customer.
+     *
+     * @return a Mono emitting the status code of the response, or -1 if no response arrived
+     */
+    private Mono<Integer> request(WebClient client, Integer[] customerIds) {
+        var random = ThreadLocalRandom.current();
+        var customerId = customerIds[random.nextInt(customerIds.length)];
+        var request = random.nextDouble() < this.tradeRatio
+                ? client.post()
+                        .uri("/customers/{customerId}/trade", customerId)
+                        .bodyValue(new StockTradeRequest(Ticker.values()[random.nextInt(Ticker.values().length)], 1, 1, TradeAction.BUY))
+                : client.get()
+                        .uri("/customers/{customerId}", customerId);
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .onErrorReturn(-1);
+    }
+
+    /**
+     * @return the bytes of heap in use right after a full collection
+     */
+    private static long heapAfterFullGc() {
+        var memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,176 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportResult;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams a generated multi-million-row CSV file through {@code POST /customers/import} and reports the sustained
+ * import rate and the heap after garbage collection while it runs.
+ * <p>
+ * The file is generated line by line as the request body is written and never exists in full, on either side. The
+ * application runs against a file-based H2 database in a temporary directory, so imported rows leave the heap once
+ * H2 writes them out; a flat heap after GC over the run shows that neither the body nor the results are buffered.
+ * <p>
+ * Settings are system properties, all optional:
+ * <ul>
+ *     <li>{@code loadtest.rows} - number of customers in the file, 2000000</li>
+ *     <li>{@code loadtest.report-interval} - how often progress is printed, 5s</li>
+ * </ul>
+ * Any other {@code loadtest.app.*} property is passed to the application with the prefix removed,
+ * e.g. {@code -Dloadtest.app.customer.import.batch-size=1000}.
+ */
+public final class CustomerImportLoadTest {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final String HEADER = Stream.concat(Stream.of("name", "balance"), Stream.of(TICKERS).map(Ticker::name))
+            .collect(Collectors.joining(",", "", "\n"));
+
+    private final long rows;
+    private final Duration reportInterval;
+    private final WebClient client;
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<Long> heapAfterGc = new ArrayList<>();
+
+    private CustomerImportLoadTest(int port) {
+        this.rows = Long.getLong("loadtest.rows", 2_000_000);
+        this.reportInterval = Duration.parse("PT" + System.getProperty("loadtest.report-interval", "5s"));
+        this.client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        var database = Files.createTempDirectory("customer-import");
+        var properties = new ArrayList<String>(List.of(
+                "server.port=0",
+                "spring.rsocket.server.port=0",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "spring.r2dbc.url=r2dbc:h2:file///" + database.toAbsolutePath().resolve("import"),
+                "database.warmup.enabled=false"
+        ));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> properties.add(name.substring("loadtest.app.".length()) + "=" + System.getProperty(name)));
+
+        try (var context = new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+            var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            var loadTest = new CustomerImportLoadTest(port);
+            loadTest.run();
+            loadTest.verify();
+        }
+    }
+
+    private void run() {
+        var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "import-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var start = System.nanoTime();
+        var last = new long[]{start, 0};
+        reporter.scheduleAtFixedRate(() -> {
+            var now = System.nanoTime();
+            var count = this.imported.get();
+            var heap = heapAfterGc();
+            synchronized (this.heapAfterGc) {
+                this.heapAfterGc.add(heap);
+            }
+            System.out.printf("%6ds imported %,12d  %,10.0f rows/s  heap after GC %,6d MiB%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), count,
+                    (count - last[1]) * 1e9 / (now - last[0]), heap >> 20);
+            last[0] = now;
+            last[1] = count;
+        }, this.reportInterval.toNanos(), this.reportInterval.toNanos(), TimeUnit.NANOSECONDS);
+
+        try {
+            this.client.post()
+                    .uri("/customers/import")
+                    .contentType(MediaType.parseMediaType("text/csv"))
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .body(Flux.concat(Flux.just(HEADER), Flux.range(0, Math.toIntExact(this.rows)).map(CustomerImportLoadTest::line)), String.class)
+                    .retrieve()
+                    .bodyToFlux(CustomerImportResult.class)
+                    .doOnNext(result -> {
+                        if (result.imported() != null) {
+                            this.imported.set(result.imported());
+                            this.failed.set(result.failed());
+                        }
+                    })
+                    .blockLast();
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        System.out.printf("%nimported %,d rows, %,d failed, in %s: %,.0f rows/s%n",
+                this.imported.get(), this.failed.get(), elapsed, this.imported.get() * 1e9 / elapsed.toNanos());
+        synchronized (this.heapAfterGc) {
+            var stats = this.heapAfterGc.stream().mapToLong(Long::longValue).summaryStatistics();
+            if (stats.getCount() > 0) {
+                System.out.printf("heap after GC: min %,d MiB, max %,d MiB over %d samples%n",
+                        stats.getMin() >> 20, stats.getMax() >> 20, stats.getCount());
+            }
+        }
+    }
+
+    private void verify() {
+        if (this.imported.get() != this.rows || this.failed.get() != 0) {
+            throw new IllegalStateException("Expected %,d rows imported without failures, got %,d imported and %,d failed"
+                    .formatted(this.rows, this.imported.get(), this.failed.get()));
+        }
+    }
+
+    /**
+     * Generates a customer with a random balance and up to two holdings.
+     */
+    private static String line(int i) {
+        var random = ThreadLocalRandom.current();
+        var line = new StringBuilder(64).append("Import ").append(i).append(',').append(random.nextInt(1_000_000));
+        var first = random.nextInt(TICKERS.length + 1);
+        var second = random.nextInt(TICKERS.length + 1);
+        for (int t = 0; t < TICKERS.length; t++) {
+            line.append(',');
+            if (t == first || t == second) {
+                line.append(random.nextInt(1, 1_000));
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * @return the bytes used in all heap pools right after the last collection of each
+     */
+    private static long heapAfterGc() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(pool -> pool.getCollectionUsage())
+                .filter(Objects::nonNull)
+                .mapToLong(usage -> usage.getUsed())
+                .sum();
+    }
+}
@@ -0,0 +1,207 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.snapshot.BookSnapshotExporter;
+import au.com.innovativecoder.tradecustomerservicewebflux.snapshot.BookSnapshotWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares starting the application on a generated book loaded from SQL with starting it on the same book loaded
+ * from a binary snapshot, then streams the book back out through {@code GET /customers/export} and into a new
+ * snapshot while reporting the heap after garbage collection.
+ * <p>
+ * The book is generated straight into a snapshot file and into an SQL script of multi-row inserts, which runs after
+ * {@code sql/data.sql} through {@code spring.sql.init}. Each start runs against a file-based H2 database of its own in
+ * a temporary directory, so loaded rows leave the heap once H2 writes them out; a flat heap after GC over the export
+ * shows that it is streamed rather than materialized.
+ * <p>
+ * Settings are system properties, all optional:
+ * <ul>
+ *     <li>{@code loadtest.customers} - number of customers in the book, 1000000</li>
+ *     <li>{@code loadtest.report-interval} - how often export progress is printed, 2s</li>
+ * </ul>
+ * Any other {@code loadtest.app.*} property is passed to the application with the prefix removed,
+ * e.g. {@code -Dloadtest.app.customer.export.page-size=5000}.
+ */
+public final class SnapshotLoadTest {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private final int customers;
+    private final Duration reportInterval;
+    private final Path directory;
+
+    private SnapshotLoadTest() throws IOException {
+        this.customers = Integer.getInteger("loadtest.customers", 1_000_000);
+        this.reportInterval = Duration.parse("PT" + System.getProperty("loadtest.report-interval", "2s"));
+        this.directory = Files.createTempDirectory("book-snapshot");
+    }
+
+    public static void main(String[] args) throws IOException {
+        var loadTest = new SnapshotLoadTest();
+        var snapshot = loadTest.directory.resolve("book.snapshot");
+        var script = loadTest.directory.resolve("book.sql");
+        loadTest.generate(snapshot, script);
+
+        var sqlStart = System.nanoTime();
+        try (var context = loadTest.start("sql", "spring.sql.init.data-locations=classpath:sql/data.sql,file:" + script.toAbsolutePath())) {
+            System.out.printf("started from SQL in %,d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sqlStart));
+        }
+        var snapshotStart = System.nanoTime();
+        try (var context = loadTest.start("snapshot", "database.snapshot.load-path=" + snapshot.toAbsolutePath())) {
+            System.out.printf("started from snapshot in %,d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotStart));
+            loadTest.export(context);
+        }
+    }
+
+    /**
+     * Writes the same customers, each with a random balance and up to two holdings, to the snapshot and the script.
+     */
+    private void generate(Path snapshot, Path script) throws IOException {
+        try (var writer = new BookSnapshotWriter(snapshot); var sql = Files.newBufferedWriter(script)) {
+            sql.write("DELETE FROM customer;\n");
+            var holdings = new StringBuilder();
+            for (int id = 1; id <= this.customers; id++) {
+                var customer = customer(id);
+                writer.write(customer);
+                sql.write(id % ROWS_PER_INSERT == 1 ? "INSERT INTO customer (id, name, balance) VALUES " : ", ");
+                sql.write("(" + id + ", '" + customer.name() + "', " + customer.balance() + ")");
+                for (var holding : customer.holdings()) {
+                    holdings.append(holdings.isEmpty() ? "INSERT INTO portfolio_item (customer_id, ticker, quantity) VALUES " : ", ")
+                            .append('(').append(id).append(", '").append(holding.ticker()).append("', ").append(holding.quantity()).append(')');
+                }
+                if (id % ROWS_PER_INSERT == 0 || id == this.customers) {
+                    sql.write(";\n");
+                    if (!holdings.isEmpty()) {
+                        sql.write(holdings.append(";\n").toString());
+                        holdings.setLength(0);
+                    }
+                }
+            }
+            sql.write("ALTER TABLE customer ALTER COLUMN id RESTART WITH " + (this.customers + 1) + ";\n");
+            writer.commit();
+        }
+        System.out.printf("generated %,d customers: snapshot %,d KiB, SQL %,d KiB%n",
+                this.customers, Files.size(snapshot) >> 10, Files.size(script) >> 10);
+    }
+
+    private ConfigurableApplicationContext start(String database, String... settings) {
+        var properties = new ArrayList<String>(List.of(
+                "server.port=0",
+                "spring.rsocket.server.port=0",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "logging.level.au.com.innovativecoder.tradecustomerservicewebflux.snapshot=INFO",
+                "spring.r2dbc.url=r2dbc:h2:file///" + this.directory.toAbsolutePath().resolve(database),
+                "database.warmup.enabled=false"
+        ));
+        properties.addAll(List.of(settings));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> properties.add(name.substring("loadtest.app.".length()) + "=" + System.getProperty(name)));
+        // command line arguments take precedence over application.properties
+        return new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    private void export(ConfigurableApplicationContext context) {
+        var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        var exported = new AtomicLong();
+        var lastId = new AtomicInteger();
+        var heapAfterGc = new ArrayList<Long>();
+        var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "export-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            var heap = heapAfterGc();
+            synchronized (heapAfterGc) {
+                heapAfterGc.add(heap);
+            }
+            System.out.printf("exported %,12d  heap after GC %,6d MiB%n", exported.get(), heap >> 20);
+        }, this.reportInterval.toNanos(), this.reportInterval.toNanos(), TimeUnit.NANOSECONDS);
+
+        var start = System.nanoTime();
+        try {
+            WebClient.create("http://localhost:" + port)
+                    .get()
+                    .uri("/customers/export")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(CustomerInformation.class)
+                    .doOnNext(customer -> {
+                        if (customer.id() <= lastId.getAndSet(customer.id())) {
+                            throw new IllegalStateException("Customer " + customer.id() + " exported out of order");
+                        }
+                        exported.incrementAndGet();
+                    })
+                    .blockLast();
+        } finally {
+            reporter.shutdownNow();
+        }
+        System.out.printf("%nexported %,d customers over HTTP in %,d ms%n", exported.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        synchronized (heapAfterGc) {
+            var stats = heapAfterGc.stream().mapToLong(Long::longValue).summaryStatistics();
+            if (stats.getCount() > 0) {
+                System.out.printf("heap after GC: min %,d MiB, max %,d MiB over %d samples%n", stats.getMin() >> 20, stats.getMax() >> 20, stats.getCount());
+            }
+        }
+
+        var snapshotStart = System.nanoTime();
+        var written = context.getBean(BookSnapshotExporter.class).export(this.directory.resolve("exported.snapshot")).block();
+        System.out.printf("exported %,d customers to a snapshot in %,d ms%n", written, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotStart));
+        if (exported.get() != this.customers || written != this.customers) {
+            throw new IllegalStateException("Expected %,d customers exported, got %,d over HTTP and %,d to the snapshot"
+                    .formatted(this.customers, exported.get(), written));
+        }
+    }
+
+    private static CustomerInformation customer(int id) {
+        var random = ThreadLocalRandom.current();
+        var first = random.nextInt(TICKERS.length + 1);
+        var second = random.nextInt(TICKERS.length + 1);
+        var holdings = new ArrayList<Holding>(2);
+        for (int t = 0; t < TICKERS.length; t++) {
+            if (t == first || t == second) {
+                holdings.add(new Holding(TICKERS[t], random.nextInt(1, 1_000)));
+            }
+        }
+        return new CustomerInformation(id, "Snapshot " + id, random.nextInt(1_000_000), holdings);
+    }
+
+    /**
+     * @return the bytes used in all heap pools right after the last collection of each
+     */
+    private static long heapAfterGc() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(pool -> pool.getCollectionUsage())
+                .filter(Objects::nonNull)
+                .mapToLong(usage -> usage.getUsed())
+                .sum();
+    }
+}
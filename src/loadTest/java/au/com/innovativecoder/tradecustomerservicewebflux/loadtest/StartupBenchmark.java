@@ -0,0 +1,172 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the packaged application takes to serve its first successful trade, and how much memory it
+ * holds at that point, in the default mode and in the startup-optimized mode.
+ * <p>
+ * Every run launches a fresh JVM, polls {@code POST /customers/1/trade} until it returns 200 and reads the resident
+ * set size of the process from {@code /proc} (Linux only) before stopping it. The time is measured from just before
+ * the process is launched, so it includes JVM startup, class loading and schema initialization.
+ * <p>
+ * The modes are:
+ * <ul>
+ *     <li>{@code default} - {@code java -jar} on the boot jar with the default configuration</li>
+ *     <li>{@code optimized} - the extracted jar with the class data sharing archive built by {@code trainCds}
+ *     and the {@code startup} profile</li>
+ * </ul>
+ * Settings are system properties; the {@code startupBenchmark} Gradle task fills in the first three:
+ * <ul>
+ *     <li>{@code startup.java} - java executable to launch the application with</li>
+ *     <li>{@code startup.jar} - boot jar of the default mode</li>
+ *     <li>{@code startup.cds-directory} - directory holding the extracted jar and {@code application.jsa}</li>
+ *     <li>{@code startup.runs} - measured runs per mode, 5</li>
+ *     <li>{@code startup.timeout} - maximum time to the first trade of a run, 60s</li>
+ * </ul>
+ */
+public final class StartupBenchmark {
+
+    private static final String TRADE = """
+            {"ticker":"APPLE","price":1,"quantity":1,"action":"BUY"}""";
+
+    private final Path java;
+    private final Path jar;
+    private final Path cdsDirectory;
+    private final int runs;
+    private final Duration timeout;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    private StartupBenchmark() {
+        this.java = Path.of(System.getProperty("startup.java", Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        this.jar = Path.of(required("startup.jar"));
+        this.cdsDirectory = Path.of(required("startup.cds-directory"));
+        this.runs = Integer.getInteger("startup.runs", 5);
+        this.timeout = Duration.parse("PT" + System.getProperty("startup.timeout", "60s"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var benchmark = new StartupBenchmark();
+        benchmark.measure("default", benchmark.jar.getParent(), List.of("-jar", benchmark.jar.toString()));
+        benchmark.measure("optimized", benchmark.cdsDirectory, List.of(
+                "-XX:SharedArchiveFile=application.jsa",
+                "-Dspring.profiles.active=startup",
+                "-jar", benchmark.jar.getFileName().toString()
+        ));
+    }
+
+    /**
+     * Runs one unmeasured launch to settle the file system cache, then the measured ones, and prints their summary.
+     */
+    private void measure(String mode, Path workingDirectory, List<String> arguments) throws Exception {
+        run(workingDirectory, arguments);
+        var millis = new long[this.runs];
+        var rssKilobytes = new long[this.runs];
+        for (int i = 0; i < this.runs; i++) {
+            var result = run(workingDirectory, arguments);
+            millis[i] = result[0];
+            rssKilobytes[i] = result[1];
+        }
+        Arrays.sort(millis);
+        Arrays.sort(rssKilobytes);
+        System.out.printf("%-10s time to first trade ms: min %6d median %6d max %6d%n",
+                mode, millis[0], millis[this.runs / 2], millis[this.runs - 1]);
+        System.out.printf("%-10s RSS at first trade MiB:  min %6d median %6d max %6d%n",
+                mode, rssKilobytes[0] / 1024, rssKilobytes[this.runs / 2] / 1024, rssKilobytes[this.runs - 1] / 1024);
+    }
+
+    /**
+     * Launches the application once and stops it after its first successful trade.
+     *
+     * @return the milliseconds to the first successful trade and the resident set size in kilobytes, -1 if unknown
+     */
+    private long[] run(Path workingDirectory, List<String> arguments) throws Exception {
+        var port = freePort();
+        var command = new ArrayList<String>();
+        command.add(this.java.toString());
+        command.addAll(arguments);
+        command.add("--server.port=" + port);
+        command.add("--spring.rsocket.server.port=0");
+        command.add("--logging.level.root=WARN");
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/customers/1/trade"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(5))
+                .POST(HttpRequest.BodyPublishers.ofString(TRADE))
+                .build();
+
+        var start = System.nanoTime();
+        var process = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            var deadline = start + this.timeout.toNanos();
+            while (!traded(request)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + " before its first trade");
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("No successful trade within " + this.timeout);
+                }
+                Thread.sleep(5);
+            }
+            var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[]{millis, residentSetKilobytes(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean traded(HttpRequest request) throws InterruptedException {
+        try {
+            return this.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            // not listening yet, or accepted the connection before it was ready to answer
+            return false;
+        }
+    }
+
+    private static long residentSetKilobytes(long pid) throws IOException {
+        var status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(-1L);
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String required(String name) {
+        var value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing system property " + name);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,309 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Open-model load test of the trade and read endpoints.
+ * <p>
+ * Starts the application on a random port against its in-memory H2 database, seeds customers and sends requests
+ * at a fixed arrival rate, whether or not earlier requests have completed. Latency is measured from the time a
+ * request was scheduled to be sent rather than from when it actually left, so a stalled server or a generator that
+ * falls behind is charged for every request that queued up behind it instead of hiding it (coordinated omission).
+ * The uncorrected service time is reported next to it for comparison.
+ * <p>
+ * Customers are picked from a Zipf distribution so a few hot accounts see most of the trades. Every accepted trade
+ * is accounted for, and the run fails if the final balances and holdings read back from the service differ from
+ * the seeded ones plus the accepted trades.
+ * <p>
+ * Settings are system properties, all optional:
+ * <ul>
+ *     <li>{@code loadtest.customers} - number of seeded customers, 1000</li>
+ *     <li>{@code loadtest.rate} - requests per second, 2000</li>
+ *     <li>{@code loadtest.duration} - measured duration, 30s</li>
+ *     <li>{@code loadtest.warmup} - unmeasured duration before it, 5s</li>
+ *     <li>{@code loadtest.trade-ratio} - share of requests that are trades, 0.5</li>
+ *     <li>{@code loadtest.rejection-ratio} - share of trades built to be rejected, for an insufficient balance or for
+ *     selling a ticker the customer does not hold, 0</li>
+ *     <li>{@code loadtest.skew} - Zipf exponent of customer selection, 1.0</li>
+ *     <li>{@code loadtest.hot-customers} - number of most frequently picked customers whose trade latency is reported
+ *     apart from everyone else's, so admission control can be seen protecting the others, 10</li>
+ *     <li>{@code loadtest.connections} - maximum HTTP connections, 500</li>
+ * </ul>
+ * Any other {@code loadtest.app.*} property is passed to the application with the prefix removed,
+ * e.g. {@code -Dloadtest.app.trade.engine=memory}.
+ */
+public final class TradeLoadTest {
+
+    private static final int INITIAL_BALANCE = 1_000_000;
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private final int customers;
+    private final int rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final double tradeRatio;
+    private final double rejectionRatio;
+    private final int hotCustomers;
+    private final ZipfDistribution distribution;
+    private final WebClient client;
+
+    private final Histogram tradeLatency = new ConcurrentHistogram(3);
+    private final Histogram hotTradeLatency = new ConcurrentHistogram(3);
+    private final Histogram readLatency = new ConcurrentHistogram(3);
+    private final Histogram serviceTime = new ConcurrentHistogram(3);
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private Integer[] customerIds;
+    private AtomicLongArray balanceDeltas;
+    private AtomicLongArray quantityDeltas;
+    private AtomicLongArray uncertain;
+    private Duration elapsed;
+
+    private TradeLoadTest(int port) {
+        this.customers = Integer.getInteger("loadtest.customers", 1000);
+        this.rate = Integer.getInteger("loadtest.rate", 2000);
+        this.duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "30s"));
+        this.warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s"));
+        this.tradeRatio = Double.parseDouble(System.getProperty("loadtest.trade-ratio", "0.5"));
+        this.rejectionRatio = Double.parseDouble(System.getProperty("loadtest.rejection-ratio", "0"));
+        this.hotCustomers = Integer.getInteger("loadtest.hot-customers", 10);
+        this.distribution = new ZipfDistribution(this.customers, Double.parseDouble(System.getProperty("loadtest.skew", "1.0")));
+        var connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(Integer.getInteger("loadtest.connections", 500))
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+    }
+
+    public static void main(String[] args) {
+        var properties = new ArrayList<String>(List.of(
+                "server.port=0",
+                "spring.rsocket.server.port=0",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "spring.r2dbc.generate-unique-name=true"
+        ));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.app."))
+                .forEach(name -> properties.add(name.substring("loadtest.app.".length()) + "=" + System.getProperty(name)));
+
+        try (var context = new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+            var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            var loadTest = new TradeLoadTest(port);
+            loadTest.seed(context.getBean(CustomerRepository.class));
+            loadTest.run();
+            loadTest.report();
+            loadTest.verify();
+        }
+    }
+
+    private void seed(CustomerRepository customerRepository) {
+        this.customerIds = Flux.range(0, this.customers)
+                .map(i -> {
+                    var customer = new Customer();
+                    customer.setName("Load " + i);
+                    customer.setBalance(INITIAL_BALANCE);
+                    return customer;
+                })
+                .concatMap(customerRepository::save)
+                .map(Customer::getId)
+                .collectList()
+                .block()
+                .toArray(Integer[]::new);
+        this.balanceDeltas = new AtomicLongArray(this.customers);
+        this.quantityDeltas = new AtomicLongArray(this.customers * TICKERS.length);
+        this.uncertain = new AtomicLongArray(this.customers);
+    }
+
+    /**
+     * Sends every request at its scheduled time from a single generator thread and waits for all of them to complete.
+     */
+    private void run() {
+        var interval = TimeUnit.SECONDS.toNanos(1) / this.rate;
+        var warmupRequests = this.warmup.toNanos() / interval;
+        var total = warmupRequests + this.duration.toNanos() / interval;
+        var completed = new CountDownLatch(Math.toIntExact(total));
+        var start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            var scheduled = start + i * interval;
+            long now;
+            while ((now = System.nanoTime()) < scheduled) {
+                LockSupport.parkNanos(scheduled - now);
+            }
+            var measured = i >= warmupRequests;
+            var sent = now;
+            var rank = this.distribution.sample();
+            var request = ThreadLocalRandom.current().nextDouble() < this.tradeRatio
+                    ? trade(rank).doOnSuccess(ok -> record(rank < this.hotCustomers ? this.hotTradeLatency : this.tradeLatency, measured, scheduled, sent))
+                    : read(rank).doOnSuccess(ok -> record(this.readLatency, measured, scheduled, sent));
+            request.doFinally(signal -> completed.countDown()).subscribe();
+        }
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for requests in flight", e);
+        }
+        this.elapsed = Duration.ofNanos(System.nanoTime() - start - this.warmup.toNanos());
+    }
+
+    private void record(Histogram latency, boolean measured, long scheduled, long sent) {
+        if (measured) {
+            var now = System.nanoTime();
+            latency.recordValue(now - scheduled);
+            this.serviceTime.recordValue(now - sent);
+        }
+    }
+
+    /**
+     * Trades a random ticker of a customer and accounts for the outcome: an accepted trade adds its deltas,
+     * a rejected one has no effect, and a failed one may or may not have been applied. Trades meant to be rejected
+     * either cost more than any balance or sell more shares than any customer can hold.
+     */
+    private Mono<Integer> trade(int rank) {
+        var random = ThreadLocalRandom.current();
+        var ticker = TICKERS[random.nextInt(TICKERS.length)];
+        var action = random.nextBoolean() ? TradeAction.BUY : TradeAction.SELL;
+        var quantity = random.nextDouble() < this.rejectionRatio ? INITIAL_BALANCE : 1 + random.nextInt(5);
+        var request = new StockTradeRequest(ticker, 10 + ticker.ordinal(), quantity, action);
+        return this.client.post()
+                .uri("/customers/{customerId}/trade", this.customerIds[rank])
+                .bodyValue(request)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .doOnNext(status -> {
+                    if (status == 200) {
+                        var sign = action == TradeAction.BUY ? 1 : -1;
+                        this.balanceDeltas.addAndGet(rank, -sign * (long) request.totalPrice());
+                        this.quantityDeltas.addAndGet(rank * TICKERS.length + ticker.ordinal(), sign * (long) request.quantity());
+                        this.accepted.increment();
+                    } else if (status < 500 || status == 503) {
+                        this.rejected.increment();
+                    } else {
+                        this.uncertain.incrementAndGet(rank);
+                        this.failed.increment();
+                    }
+                })
+                .onErrorResume(e -> {
+                    this.uncertain.incrementAndGet(rank);
+                    this.failed.increment();
+                    return Mono.just(-1);
+                });
+    }
+
+    private Mono<Integer> read(int rank) {
+        return this.client.get()
+                .uri("/customers/{customerId}", this.customerIds[rank])
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .doOnNext(status -> {
+                    if (status != 200) {
+                        this.failed.increment();
+                    }
+                })
+                .onErrorResume(e -> {
+                    this.failed.increment();
+                    return Mono.just(-1);
+                });
+    }
+
+    private void report() {
+        var requests = this.tradeLatency.getTotalCount() + this.hotTradeLatency.getTotalCount() + this.readLatency.getTotalCount();
+        System.out.printf("%d customers, %d requests/s scheduled, %s measured%n", this.customers, this.rate, this.duration);
+        System.out.printf("throughput: %.1f requests/s%n", requests / (this.elapsed.toNanos() / 1e9));
+        System.out.printf("trades: %d accepted, %d rejected; failed requests: %d%n", this.accepted.sum(), this.rejected.sum(), this.failed.sum());
+        System.out.printf("%-14s %10s %10s %10s %10s %10s%n", "latency (ms)", "count", "p50", "p99", "p99.9", "max");
+        print("trade", this.tradeLatency);
+        print("trade (hot)", this.hotTradeLatency);
+        print("read", this.readLatency);
+        print("service time", this.serviceTime);
+    }
+
+    private static void print(String name, Histogram histogram) {
+        System.out.printf("%-14s %10d %10.3f %10.3f %10.3f %10.3f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    /**
+     * Reads every customer back and checks their balance and holdings against the seeded state plus the accepted
+     * trades. Customers with a trade of unknown outcome are skipped.
+     */
+    private void verify() {
+        var mismatches = Flux.range(0, this.customers)
+                .filter(rank -> this.uncertain.get(rank) == 0)
+                .flatMap(rank -> this.client.get()
+                        .uri("/customers/{customerId}", this.customerIds[rank])
+                        .retrieve()
+                        .bodyToMono(CustomerInformation.class)
+                        .filter(information -> !matches(rank, information))
+                        .map(information -> "customer %d: expected balance %d and holdings %s, found %s".formatted(
+                                this.customerIds[rank], INITIAL_BALANCE + this.balanceDeltas.get(rank), expectedHoldings(rank), information)), 64)
+                .collectList()
+                .block();
+        var skipped = IntStream.range(0, this.customers).filter(rank -> this.uncertain.get(rank) > 0).count();
+        System.out.printf("verified %d customers, skipped %d with trades of unknown outcome%n", this.customers - skipped, skipped);
+        if (!mismatches.isEmpty()) {
+            mismatches.stream().limit(20).forEach(System.out::println);
+            throw new IllegalStateException(mismatches.size() + " customers do not add up");
+        }
+    }
+
+    private boolean matches(int rank, CustomerInformation information) {
+        if (information.balance() != INITIAL_BALANCE + this.balanceDeltas.get(rank)) {
+            return false;
+        }
+        var expected = expectedHoldings(rank);
+        var actual = information.holdings().stream()
+                .filter(holding -> holding.quantity() != 0)
+                .sorted((a, b) -> a.ticker().compareTo(b.ticker()))
+                .toList();
+        return expected.equals(actual);
+    }
+
+    private List<Holding> expectedHoldings(int rank) {
+        var holdings = new ArrayList<Holding>();
+        for (var ticker : TICKERS) {
+            var quantity = this.quantityDeltas.get(rank * TICKERS.length + ticker.ordinal());
+            if (quantity != 0) {
+                holdings.add(new Holding(ticker, Math.toIntExact(quantity)));
+            }
+        }
+        return holdings;
+    }
+}
@@ -0,0 +1,30 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent, so a few hot accounts
+ * receive most of the traffic. An exponent of 0 is uniform.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        this.cumulative = new double[n];
+        var sum = 0.0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            this.cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            this.cumulative[rank] /= sum;
+        }
+    }
+
+    int sample() {
+        var index = Arrays.binarySearch(this.cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, this.cumulative.length - 1);
+    }
+}
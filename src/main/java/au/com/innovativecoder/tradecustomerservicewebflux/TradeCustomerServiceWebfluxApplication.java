@@ -2,8 +2,10 @@ package au.com.innovativecoder.tradecustomerservicewebflux;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TradeCustomerServiceWebfluxApplication {
 
     public static void main(String[] args) {
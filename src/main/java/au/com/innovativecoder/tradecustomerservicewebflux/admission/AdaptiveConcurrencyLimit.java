@@ -0,0 +1,69 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A global limit on trades in flight that adapts to observed latency, additive increase and multiplicative decrease.
+ * <p>
+ * Every trade that completes within the target latency while the limit is being used raises the limit by one;
+ * every trade that is slower or fails multiplies it by the backoff ratio. The limit therefore settles just below the
+ * concurrency at which the database starts queueing, instead of at a value that was configured for other hardware.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatency;
+    private final double backoffRatio;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatency = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(initialLimit, maxLimit)));
+    }
+
+    /**
+     * Admits a trade if fewer trades than the limit are in flight. Every admitted trade must be released.
+     *
+     * @return whether the trade is admitted
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            var current = this.inFlight.get();
+            if (current >= this.limit.get()) {
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted trade and adapts the limit to how it went.
+     *
+     * @param latencyNanos how long the trade took
+     * @param failed whether the trade failed for a reason that suggests overload
+     */
+    public void release(long latencyNanos, boolean failed) {
+        var inFlight = this.inFlight.getAndDecrement();
+        if (failed || latencyNanos > this.targetLatency) {
+            this.limit.updateAndGet(current -> Math.max(this.minLimit, (int) (current * this.backoffRatio)));
+        } else if (inFlight * 2 >= this.limit.get()) {
+            // only grow while the limit is actually in use, or an idle service would drift to the maximum
+            this.limit.updateAndGet(current -> Math.min(this.maxLimit, current + 1));
+        }
+    }
+
+    public int limit() {
+        return this.limit.get();
+    }
+
+    public int inFlight() {
+        return this.inFlight.get();
+    }
+}
@@ -0,0 +1,49 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-customer token buckets, implemented as the generic cell rate algorithm: each customer is a single
+ * theoretical arrival time that every admitted trade pushes one emission interval further into the future.
+ * A trade is admitted while that time stays within the burst allowance of now, so admitting a trade is one
+ * compare-and-set on a single long, without locks or refill timers.
+ */
+public class CustomerRateLimiter {
+
+    private final long emissionInterval;
+    private final long burstAllowance;
+    private final Cache<Integer, AtomicLong> arrivals;
+
+    public CustomerRateLimiter(double rate, int burst, long maxCustomers) {
+        this.emissionInterval = (long) (1_000_000_000L / rate);
+        this.burstAllowance = this.emissionInterval * burst;
+        this.arrivals = Caffeine.newBuilder()
+                .maximumSize(maxCustomers)
+                .build();
+    }
+
+    /**
+     * Takes a token from a customer's bucket.
+     *
+     * @param customerId the ID of the customer
+     * @param now the current time, from {@link System#nanoTime()}
+     * @return 0 if the trade is admitted, otherwise the nanoseconds until the next token is available
+     */
+    public long tryAcquire(Integer customerId, long now) {
+        var arrival = this.arrivals.get(customerId, id -> new AtomicLong(now - this.burstAllowance));
+        while (true) {
+            var current = arrival.get();
+            var next = Math.max(current, now - this.burstAllowance) + this.emissionInterval;
+            var wait = next - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
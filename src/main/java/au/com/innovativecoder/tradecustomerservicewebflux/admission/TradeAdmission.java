@@ -0,0 +1,127 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.advice.ProblemMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.AdmissionProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TooManyTradesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradingOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits trades before any of their work starts, whichever transport submitted them.
+ * <p>
+ * A trade is first charged to its customer's token bucket, so a single customer flooding the service is rejected
+ * while every other customer keeps their share. It then has to fit under the adaptive global limit on trades in
+ * flight, so the database is never handed more concurrent work than it completes within the target latency. REST
+ * trades are admitted by {@link TradeAdmissionFilter}, RSocket trades and the legs of bulk streams by
+ * {@link #admit(Integer, Mono)}, all against the same buckets and the same limit.
+ */
+@Component
+public class TradeAdmission {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final CustomerRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ProblemMapper problemMapper;
+    private final Counter rateLimited;
+    private final Counter shed;
+
+    @Autowired
+    public TradeAdmission(AdmissionProperties properties, ProblemMapper problemMapper, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.rateLimiter = new CustomerRateLimiter(properties.customerRate(), properties.customerBurst(), properties.maxCustomers());
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(properties.initialLimit(), properties.minLimit(), properties.maxLimit(),
+                properties.targetLatency().toNanos(), properties.backoffRatio());
+        this.problemMapper = problemMapper;
+        this.rateLimited = Counter.builder("trade.admission.rejected").tag("reason", "rate-limited").register(registry);
+        this.shed = Counter.builder("trade.admission.rejected").tag("reason", "overloaded").register(registry);
+        Gauge.builder("trade.admission.limit", this.concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Trades admitted in flight at once")
+                .register(registry);
+        Gauge.builder("trade.admission.in.flight", this.concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Trades in flight")
+                .register(registry);
+    }
+
+    /**
+     * @return whether trades are admitted through the limits at all
+     */
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Executes a trade if it is admitted, releasing its place under the global limit once it has completed.
+     *
+     * @param customerId the ID of the customer
+     * @param trade the work executing the trade
+     * @return a Mono emitting the result of the trade, or a TooManyTradesException or TradingOverloadedException
+     * if it was not admitted
+     */
+    public <T> Mono<T> admit(Integer customerId, Mono<T> trade) {
+        if (!this.enabled) {
+            return trade;
+        }
+        return Mono.defer(() -> {
+            var now = System.nanoTime();
+            var rejection = this.tryAcquire(customerId, now);
+            if (rejection != null) {
+                return Mono.error(rejection.exception());
+            }
+            var failed = new AtomicBoolean();
+            return trade
+                    .doOnError(e -> failed.set(this.problemMapper.toProblemDetail(e).getStatus() >= 500))
+                    .doFinally(signal -> this.release(now, failed.get()));
+        });
+    }
+
+    /**
+     * Charges a trade to its customer's bucket and takes a place for it under the global limit. An admitted trade
+     * must be released.
+     *
+     * @param customerId the ID of the customer
+     * @param now the current {@link System#nanoTime()}
+     * @return null if the trade is admitted, otherwise why it was not
+     */
+    Rejection tryAcquire(Integer customerId, long now) {
+        var wait = this.rateLimiter.tryAcquire(customerId, now);
+        if (wait > 0) {
+            this.rateLimited.increment();
+            return new Rejection(new TooManyTradesException(customerId), wait);
+        }
+        if (!this.concurrencyLimit.tryAcquire()) {
+            this.shed.increment();
+            return new Rejection(new TradingOverloadedException(customerId), NANOS_PER_SECOND);
+        }
+        return null;
+    }
+
+    /**
+     * Releases an admitted trade and adapts the global limit to how it went.
+     *
+     * @param admittedAt the {@link System#nanoTime()} the trade was admitted at
+     * @param failed whether the trade failed for a reason that suggests overload
+     */
+    void release(long admittedAt, boolean failed) {
+        this.concurrencyLimit.release(System.nanoTime() - admittedAt, failed);
+    }
+
+    /**
+     * Why a trade was not admitted.
+     *
+     * @param exception the rejection reported to the client
+     * @param retryAfterNanos how long the client should wait before retrying
+     */
+    record Rejection(ApplicationException exception, long retryAfterNanos) {
+    }
+}
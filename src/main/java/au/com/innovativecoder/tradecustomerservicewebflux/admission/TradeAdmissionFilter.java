@@ -0,0 +1,88 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.advice.ProblemMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits REST trade and basket submissions through {@link TradeAdmission} before any of their work starts.
+ * <p>
+ * A customer over their rate is answered with 429, a trade that does not fit under the global limit is shed with
+ * 503. Both rejections carry a Retry-After header and are written straight from the pre-encoded problem types,
+ * without reading the request body or touching a repository.
+ * <p>
+ * The NDJSON bulk trade stream is not admitted here, as a single exchange carries the trades of many customers;
+ * {@link au.com.innovativecoder.tradecustomerservicewebflux.service.BulkTradeService} admits each of its trades instead.
+ */
+@Component
+public class TradeAdmissionFilter implements WebFilter {
+
+    private static final PathPattern TRADE = PathPatternParser.defaultInstance.parse("/customers/{customerId}/trade");
+    private static final PathPattern BASKET = PathPatternParser.defaultInstance.parse("/customers/{customerId}/basket");
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TradeAdmission admission;
+    private final ProblemMapper problemMapper;
+
+    @Autowired
+    public TradeAdmissionFilter(TradeAdmission admission, ProblemMapper problemMapper) {
+        this.admission = admission;
+        this.problemMapper = problemMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        if (!this.admission.enabled() || request.getMethod() != HttpMethod.POST) {
+            return chain.filter(exchange);
+        }
+        var path = request.getPath().pathWithinApplication();
+        var match = TRADE.matchAndExtract(path);
+        if (match == null) {
+            // a basket is admitted as one trade, as it occupies the customer's trade lane as one
+            match = BASKET.matchAndExtract(path);
+        }
+        if (match == null) {
+            return chain.filter(exchange);
+        }
+        Integer customerId;
+        try {
+            customerId = Integer.valueOf(match.getUriVariables().get("customerId"));
+        } catch (NumberFormatException e) {
+            // leave malformed ids to the controller's own error handling
+            return chain.filter(exchange);
+        }
+
+        var now = System.nanoTime();
+        var rejection = this.admission.tryAcquire(customerId, now);
+        if (rejection != null) {
+            return reject(exchange, rejection.exception(), rejection.retryAfterNanos());
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    var status = exchange.getResponse().getStatusCode();
+                    this.admission.release(now, status != null && status.is5xxServerError());
+                });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, ApplicationException ex, long retryAfterNanos) {
+        var problem = this.problemMapper.toResponseEntity(ex, exchange.getRequest().getPath().value());
+        var response = exchange.getResponse();
+        response.setStatusCode(problem.getStatusCode());
+        response.getHeaders().addAll(problem.getHeaders());
+        // Retry-After is in whole seconds, so never tell a client to retry sooner than one second from now
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (retryAfterNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND)));
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(problem.getBody())));
+    }
+}
@@ -1,46 +1,57 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.advice;
 
 import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.IdempotencyKeyReusedException;
 import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
 import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ProblemDetail;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InvalidTradeRequestException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradeLaneFullException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
-import java.net.URI;
-import java.util.function.Consumer;
-
+/**
+ * Turns rejections into RFC 7807 problem responses written by the {@link ProblemMapper}.
+ */
 @ControllerAdvice
 public class ApplicationExceptionHandler {
 
+    private final ProblemMapper problemMapper;
+
+    @Autowired
+    public ApplicationExceptionHandler(ProblemMapper problemMapper) {
+        this.problemMapper = problemMapper;
+    }
+
     @ExceptionHandler(CustomerNotFoundException.class)
-    public ProblemDetail handleException(CustomerNotFoundException ex) {
-        return build(HttpStatus.NOT_FOUND, ex, problem -> {
-            problem.setType(URI.create("http://innovativecoder.com.au/problems/customer-not-found"));
-            problem.setTitle("Customer Not Found");
-        });
+    public ResponseEntity<byte[]> handleException(CustomerNotFoundException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
     }
 
     @ExceptionHandler(InsufficientBalanceException.class)
-    public ProblemDetail handleException(InsufficientBalanceException ex) {
-        return build(HttpStatus.BAD_REQUEST, ex, problem -> {
-            problem.setType(URI.create("http://innovativecoder.com.au/problems/insufficient-balance"));
-            problem.setTitle("Insufficient Balance");
-        });
+    public ResponseEntity<byte[]> handleException(InsufficientBalanceException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
     }
 
     @ExceptionHandler(InsufficientSharesException.class)
-    public ProblemDetail handleException(InsufficientSharesException ex) {
-        return build(HttpStatus.BAD_REQUEST, ex, problem -> {
-            problem.setType(URI.create("http://innovativecoder.com.au/problems/insufficient-shares"));
-            problem.setTitle("Insufficient Shares");
-        });
+    public ResponseEntity<byte[]> handleException(InsufficientSharesException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
+    }
+
+    @ExceptionHandler(TradeLaneFullException.class)
+    public ResponseEntity<byte[]> handleException(TradeLaneFullException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
+    }
+
+    @ExceptionHandler(InvalidTradeRequestException.class)
+    public ResponseEntity<byte[]> handleException(InvalidTradeRequestException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
     }
 
-    private ProblemDetail build(HttpStatus status, Exception ex, Consumer<ProblemDetail> consumer) {
-        var problem = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
-        consumer.accept(problem);
-        return problem;
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<byte[]> handleException(IdempotencyKeyReusedException ex, ServerHttpRequest request) {
+        return this.problemMapper.toResponseEntity(ex, request.getPath().value());
     }
 }
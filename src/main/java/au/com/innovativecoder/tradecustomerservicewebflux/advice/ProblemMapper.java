@@ -0,0 +1,102 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.advice;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.IdempotencyKeyReusedException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InvalidTradeRequestException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TooManyTradesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradeJournalFailedException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradeLaneFullException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradingOverloadedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps rejections to their RFC 7807 problem. Bodies are written from pre-encoded problem types, so a burst of
+ * rejected requests costs little more than copying bytes.
+ * <p>
+ * Shared by the exception handlers, the admission filter, which rejects before any handler runs, and the streamed
+ * endpoints, which report a failed element inside the stream.
+ */
+@Component
+public class ProblemMapper {
+
+    private static final ProblemType CUSTOMER_NOT_FOUND = new ProblemType(HttpStatus.NOT_FOUND,
+            "customer-not-found", "Customer Not Found", CustomerNotFoundException.MESSAGE);
+    private static final ProblemType INSUFFICIENT_BALANCE = new ProblemType(HttpStatus.BAD_REQUEST,
+            "insufficient-balance", "Insufficient Balance", InsufficientBalanceException.MESSAGE);
+    private static final ProblemType INSUFFICIENT_SHARES = new ProblemType(HttpStatus.BAD_REQUEST,
+            "insufficient-shares", "Insufficient Shares", InsufficientSharesException.MESSAGE);
+    private static final ProblemType TRADE_LANE_FULL = new ProblemType(HttpStatus.SERVICE_UNAVAILABLE,
+            "trade-lane-full", "Trade Lane Full", TradeLaneFullException.MESSAGE);
+    private static final ProblemType INVALID_TRADE_REQUEST = new ProblemType(HttpStatus.BAD_REQUEST,
+            "invalid-trade-request", "Invalid Trade Request", InvalidTradeRequestException.MESSAGE);
+    private static final ProblemType IDEMPOTENCY_KEY_REUSED = new ProblemType(HttpStatus.UNPROCESSABLE_ENTITY,
+            "idempotency-key-reused", "Idempotency Key Reused", IdempotencyKeyReusedException.MESSAGE);
+    private static final ProblemType TOO_MANY_TRADES = new ProblemType(HttpStatus.TOO_MANY_REQUESTS,
+            "too-many-trades", "Too Many Trades", TooManyTradesException.MESSAGE);
+    private static final ProblemType TRADING_OVERLOADED = new ProblemType(HttpStatus.SERVICE_UNAVAILABLE,
+            "trading-overloaded", "Trading Overloaded", TradingOverloadedException.MESSAGE);
+    private static final ProblemType TRADE_JOURNAL_FAILED = new ProblemType(HttpStatus.SERVICE_UNAVAILABLE,
+            "trade-journal-failed", "Trade Journal Failed", TradeJournalFailedException.MESSAGE);
+
+    /**
+     * Writes the problem response of a rejection.
+     *
+     * @param ex the rejection
+     * @param instance the path of the rejected request
+     * @return a ResponseEntity with the encoded application/problem+json body
+     */
+    public ResponseEntity<byte[]> toResponseEntity(ApplicationException ex, String instance) {
+        return problemType(ex).toResponseEntity(ex.getCustomerId(), instance);
+    }
+
+    /**
+     * Maps an error to the same ProblemDetail its exception handler would return, for use in streamed responses
+     * where a single failed element must not fail the whole stream.
+     *
+     * @param ex the error raised while processing an element
+     * @return the ProblemDetail describing the error
+     */
+    public ProblemDetail toProblemDetail(Throwable ex) {
+        if (ex instanceof ApplicationException e) {
+            return problemType(e).toProblemDetail(e.getCustomerId());
+        }
+        return ProblemDetail.forStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static ProblemType problemType(ApplicationException ex) {
+        if (ex instanceof CustomerNotFoundException) {
+            return CUSTOMER_NOT_FOUND;
+        }
+        if (ex instanceof InsufficientBalanceException) {
+            return INSUFFICIENT_BALANCE;
+        }
+        if (ex instanceof InsufficientSharesException) {
+            return INSUFFICIENT_SHARES;
+        }
+        if (ex instanceof TradeLaneFullException) {
+            return TRADE_LANE_FULL;
+        }
+        if (ex instanceof InvalidTradeRequestException) {
+            return INVALID_TRADE_REQUEST;
+        }
+        if (ex instanceof IdempotencyKeyReusedException) {
+            return IDEMPOTENCY_KEY_REUSED;
+        }
+        if (ex instanceof TooManyTradesException) {
+            return TOO_MANY_TRADES;
+        }
+        if (ex instanceof TradingOverloadedException) {
+            return TRADING_OVERLOADED;
+        }
+        if (ex instanceof TradeJournalFailedException) {
+            return TRADE_JOURNAL_FAILED;
+        }
+        throw new IllegalArgumentException("No problem type for " + ex.getClass().getName());
+    }
+}
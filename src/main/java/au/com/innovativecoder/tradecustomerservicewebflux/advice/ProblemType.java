@@ -0,0 +1,118 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.advice;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One kind of rejection, with the parts of its RFC 7807 body that never change encoded once.
+ * <p>
+ * A response body is the pre-encoded head up to the customer id in the detail, the id written as digits, the
+ * pre-encoded rest of the detail and the request path as instance: the same JSON Spring would produce for the
+ * equivalent ProblemDetail, without building the ProblemDetail, its URIs or a formatted message.
+ */
+final class ProblemType {
+
+    private static final String BASE_URI = "http://innovativecoder.com.au/problems/";
+    private static final byte[] INSTANCE_END = "\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpStatus status;
+    private final URI type;
+    private final String title;
+    private final String detailTemplate;
+    private final byte[] head;
+    private final byte[] tail;
+
+    ProblemType(HttpStatus status, String slug, String title, String detailTemplate) {
+        this.status = status;
+        this.type = URI.create(BASE_URI + slug);
+        this.title = title;
+        this.detailTemplate = detailTemplate;
+        var placeholder = detailTemplate.indexOf("%d");
+        this.head = utf8("{\"type\":\"" + quote(this.type.toString())
+                + "\",\"title\":\"" + quote(title)
+                + "\",\"status\":" + status.value()
+                + ",\"detail\":\"" + quote(detailTemplate.substring(0, placeholder)));
+        this.tail = utf8(quote(detailTemplate.substring(placeholder + 2)) + "\",\"instance\":\"");
+    }
+
+    /**
+     * Writes the problem body of a rejected request.
+     *
+     * @param customerId the ID of the customer in the detail
+     * @param instance the path of the rejected request
+     * @return a ResponseEntity with the encoded application/problem+json body
+     */
+    ResponseEntity<byte[]> toResponseEntity(Integer customerId, String instance) {
+        var path = JsonStringEncoder.getInstance().quoteAsUTF8(instance);
+        var digits = customerId == null ? NULL.length : digits(customerId);
+        var body = new byte[this.head.length + digits + this.tail.length + path.length + INSTANCE_END.length];
+        var position = copy(this.head, body, 0);
+        if (customerId == null) {
+            position = copy(NULL, body, position);
+        } else {
+            writeDigits(customerId, body, position + digits);
+            position += digits;
+        }
+        position = copy(this.tail, body, position);
+        position = copy(path, body, position);
+        copy(INSTANCE_END, body, position);
+        return ResponseEntity.status(this.status)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(body);
+    }
+
+    /**
+     * Builds the ProblemDetail of a rejection reported inside a streamed response.
+     *
+     * @param customerId the ID of the customer in the detail
+     * @return the ProblemDetail
+     */
+    ProblemDetail toProblemDetail(Integer customerId) {
+        var problem = ProblemDetail.forStatusAndDetail(this.status, this.detailTemplate.formatted(customerId));
+        problem.setType(this.type);
+        problem.setTitle(this.title);
+        return problem;
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static int digits(int value) {
+        var digits = value < 0 ? 2 : 1;
+        for (long v = Math.abs((long) value); v >= 10; v /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes the decimal digits of a value right to left, ending just before {@code end}.
+     */
+    private static void writeDigits(int value, byte[] target, int end) {
+        var v = Math.abs((long) value);
+        do {
+            target[--end] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        if (value < 0) {
+            target[end - 1] = '-';
+        }
+    }
+
+    private static String quote(String value) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,323 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.book;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory balances and holdings of every customer.
+ * <p>
+ * Customers are stored in fixed-size pages of primitive arrays indexed by customer id. Quantities are kept in one
+ * flat array with a slot per {@link Ticker#ordinal()}, where {@link #NO_HOLDING} marks a ticker the customer never
+ * held. Pages never move once allocated, and all access to a customer happens under one of a fixed set of striped
+ * locks, so trades of different customers do not contend. Every change marks its customer dirty exactly once until
+ * the change has been taken by {@link #snapshot(int, int[])}.
+ */
+public final class PositionBook {
+
+    public static final int NO_HOLDING = -1;
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int STRIPES = 1024;
+
+    private final Object[] locks = new Object[STRIPES];
+    private final Queue<Integer> dirtyCustomers = Queues.<Integer>unboundedMultiproducer().get();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private volatile Page[] pages = new Page[0];
+
+    public PositionBook() {
+        for (int i = 0; i < STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Adds a customer, or replaces their name and balance if already present. Loading does not mark the customer dirty.
+     */
+    public void putCustomer(int customerId, String name, int balance) {
+        var page = pageForWrite(customerId);
+        var slot = customerId & PAGE_MASK;
+        synchronized (lockFor(customerId)) {
+            page.present[slot] = true;
+            page.names[slot] = name;
+            page.balances[slot] = balance;
+        }
+    }
+
+    /**
+     * Sets a holding of a loaded customer. Loading does not mark the customer dirty.
+     */
+    public void putHolding(int customerId, Ticker ticker, int quantity) {
+        var page = page(customerId);
+        if (page == null) {
+            return;
+        }
+        synchronized (lockFor(customerId)) {
+            page.quantities[(customerId & PAGE_MASK) * TICKERS.length + ticker.ordinal()] = quantity;
+        }
+    }
+
+    /**
+     * Validates and applies a trade.
+     *
+     * @param customerId the ID of the customer
+     * @param request the trade to apply
+     * @return the outcome of the trade with the balance and quantity after it
+     */
+    public TradeResult apply(int customerId, StockTradeRequest request) {
+        var page = page(customerId);
+        var slot = customerId & PAGE_MASK;
+        if (page == null) {
+            return TradeResult.CUSTOMER_NOT_FOUND;
+        }
+        var index = slot * TICKERS.length + request.ticker().ordinal();
+        var totalPrice = request.totalPrice();
+        synchronized (lockFor(customerId)) {
+            if (!page.present[slot]) {
+                return TradeResult.CUSTOMER_NOT_FOUND;
+            }
+            var held = page.quantities[index];
+            switch (request.action()) {
+                case BUY -> {
+                    if (page.balances[slot] < totalPrice) {
+                        return TradeResult.INSUFFICIENT_BALANCE;
+                    }
+                    page.balances[slot] -= totalPrice;
+                    page.quantities[index] = Math.max(held, 0) + request.quantity();
+                }
+                case SELL -> {
+                    if (held < request.quantity()) {
+                        return TradeResult.INSUFFICIENT_SHARES;
+                    }
+                    page.balances[slot] += totalPrice;
+                    page.quantities[index] = held - request.quantity();
+                }
+            }
+            markDirty(page, slot, customerId);
+            return TradeResult.applied(page.balances[slot], page.quantities[index]);
+        }
+    }
+
+    /**
+     * Validates and applies all legs of a basket as one change. Legs are checked in order, each against the state
+     * left by the legs before it, and nothing is changed unless all of them hold.
+     *
+     * @param customerId the ID of the customer
+     * @param legs the trades of the basket, in order
+     * @return the outcome of the basket with the balance and quantity after every leg
+     */
+    public BasketResult applyBasket(int customerId, List<StockTradeRequest> legs) {
+        var page = page(customerId);
+        var slot = customerId & PAGE_MASK;
+        if (page == null) {
+            return BasketResult.CUSTOMER_NOT_FOUND;
+        }
+        var balances = new int[legs.size()];
+        var quantities = new int[legs.size()];
+        synchronized (lockFor(customerId)) {
+            if (!page.present[slot]) {
+                return BasketResult.CUSTOMER_NOT_FOUND;
+            }
+            var balance = page.balances[slot];
+            var held = Arrays.copyOfRange(page.quantities, slot * TICKERS.length, (slot + 1) * TICKERS.length);
+            for (int i = 0; i < legs.size(); i++) {
+                var request = legs.get(i);
+                var index = request.ticker().ordinal();
+                switch (request.action()) {
+                    case BUY -> {
+                        if (balance < request.totalPrice()) {
+                            return BasketResult.INSUFFICIENT_BALANCE;
+                        }
+                        balance -= request.totalPrice();
+                        held[index] = Math.max(held[index], 0) + request.quantity();
+                    }
+                    case SELL -> {
+                        if (held[index] < request.quantity()) {
+                            return BasketResult.INSUFFICIENT_SHARES;
+                        }
+                        balance += request.totalPrice();
+                        held[index] -= request.quantity();
+                    }
+                }
+                balances[i] = balance;
+                quantities[i] = held[index];
+            }
+            page.balances[slot] = balance;
+            System.arraycopy(held, 0, page.quantities, slot * TICKERS.length, TICKERS.length);
+            markDirty(page, slot, customerId);
+            return new BasketResult(Outcome.APPLIED, balances, quantities);
+        }
+    }
+
+    /**
+     * Reads a consistent view of a customer.
+     *
+     * @param customerId the ID of the customer
+     * @return the CustomerInformation, or null if the customer does not exist
+     */
+    public CustomerInformation customerInformation(int customerId) {
+        var page = page(customerId);
+        if (page == null) {
+            return null;
+        }
+        var slot = customerId & PAGE_MASK;
+        synchronized (lockFor(customerId)) {
+            if (!page.present[slot]) {
+                return null;
+            }
+            var holdings = new ArrayList<Holding>(TICKERS.length);
+            for (var ticker : TICKERS) {
+                var quantity = page.quantities[slot * TICKERS.length + ticker.ordinal()];
+                if (quantity != NO_HOLDING) {
+                    holdings.add(new Holding(ticker, quantity));
+                }
+            }
+            return new CustomerInformation(customerId, page.names[slot], page.balances[slot], holdings);
+        }
+    }
+
+    /**
+     * Takes the next customer whose changes have not been written yet.
+     *
+     * @return the ID of the customer, or null if no customer is dirty
+     */
+    public Integer pollDirty() {
+        var customerId = this.dirtyCustomers.poll();
+        if (customerId != null) {
+            this.dirtyCount.decrementAndGet();
+        }
+        return customerId;
+    }
+
+    public int dirtyCount() {
+        return this.dirtyCount.get();
+    }
+
+    /**
+     * Copies the current state of a customer and clears their dirty flag.
+     *
+     * @param customerId the ID of the customer
+     * @param into receives the balance at index 0 followed by one quantity per ticker ordinal
+     */
+    public void snapshot(int customerId, int[] into) {
+        var page = page(customerId);
+        var slot = customerId & PAGE_MASK;
+        synchronized (lockFor(customerId)) {
+            page.dirty[slot] = false;
+            into[0] = page.balances[slot];
+            System.arraycopy(page.quantities, slot * TICKERS.length, into, 1, TICKERS.length);
+        }
+    }
+
+    /**
+     * Marks a customer dirty again, for example after their changes failed to be written.
+     */
+    public void markDirty(int customerId) {
+        var page = page(customerId);
+        if (page == null) {
+            return;
+        }
+        synchronized (lockFor(customerId)) {
+            markDirty(page, customerId & PAGE_MASK, customerId);
+        }
+    }
+
+    public static int snapshotLength() {
+        return TICKERS.length + 1;
+    }
+
+    private void markDirty(Page page, int slot, int customerId) {
+        if (!page.dirty[slot]) {
+            page.dirty[slot] = true;
+            this.dirtyCustomers.offer(customerId);
+            this.dirtyCount.incrementAndGet();
+        }
+    }
+
+    private Object lockFor(int customerId) {
+        return this.locks[customerId & (STRIPES - 1)];
+    }
+
+    private Page page(int customerId) {
+        var current = this.pages;
+        var index = customerId >>> PAGE_SHIFT;
+        return customerId >= 0 && index < current.length ? current[index] : null;
+    }
+
+    private Page pageForWrite(int customerId) {
+        if (customerId < 0) {
+            throw new IllegalArgumentException("Customer id must not be negative: " + customerId);
+        }
+        var page = page(customerId);
+        if (page != null) {
+            return page;
+        }
+        synchronized (this) {
+            var index = customerId >>> PAGE_SHIFT;
+            var current = this.pages;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            }
+            if (current[index] == null) {
+                current[index] = new Page();
+            }
+            this.pages = current;
+            return current[index];
+        }
+    }
+
+    /**
+     * The outcome of a trade together with the balance and quantity it left behind.
+     */
+    public record TradeResult(Outcome outcome, int balance, int quantity) {
+
+        static final TradeResult CUSTOMER_NOT_FOUND = new TradeResult(Outcome.CUSTOMER_NOT_FOUND, 0, 0);
+        static final TradeResult INSUFFICIENT_BALANCE = new TradeResult(Outcome.INSUFFICIENT_BALANCE, 0, 0);
+        static final TradeResult INSUFFICIENT_SHARES = new TradeResult(Outcome.INSUFFICIENT_SHARES, 0, 0);
+
+        static TradeResult applied(int balance, int quantity) {
+            return new TradeResult(Outcome.APPLIED, balance, quantity);
+        }
+    }
+
+    /**
+     * The outcome of a basket together with the balance and the quantity of the traded ticker after every leg.
+     */
+    public record BasketResult(Outcome outcome, int[] balances, int[] quantities) {
+
+        static final BasketResult CUSTOMER_NOT_FOUND = new BasketResult(Outcome.CUSTOMER_NOT_FOUND, null, null);
+        static final BasketResult INSUFFICIENT_BALANCE = new BasketResult(Outcome.INSUFFICIENT_BALANCE, null, null);
+        static final BasketResult INSUFFICIENT_SHARES = new BasketResult(Outcome.INSUFFICIENT_SHARES, null, null);
+    }
+
+    public enum Outcome {
+        APPLIED,
+        CUSTOMER_NOT_FOUND,
+        INSUFFICIENT_BALANCE,
+        INSUFFICIENT_SHARES
+    }
+
+    private static final class Page {
+
+        private final boolean[] present = new boolean[PAGE_SIZE];
+        private final boolean[] dirty = new boolean[PAGE_SIZE];
+        private final String[] names = new String[PAGE_SIZE];
+        private final int[] balances = new int[PAGE_SIZE];
+        private final int[] quantities = new int[PAGE_SIZE * TICKERS.length];
+
+        private Page() {
+            Arrays.fill(this.quantities, NO_HOLDING);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.book;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.PositionBookProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.CustomersImportedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Owns the authoritative PositionBook of the memory trade engine.
+ * <p>
+ * The book is loaded from the {@code customer} and {@code portfolio_item} tables before the application starts
+ * serving, and dirty customers are written behind in group commits: one transaction per batch of up to
+ * {@code flushSize} customers, with the balance updates and holding upserts each sent as a single batched statement.
+ * A flush runs every {@code flushInterval}, or earlier once {@code flushSize} customers are dirty.
+ * <p>
+ * Every applied trade is also queued for the {@code trade} history and inserted by the next flush, oldest first and
+ * in the same transaction as the batch of customers written with it. The history therefore lags behind the book by
+ * at most one flush, like the balances do.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.engine", havingValue = "memory")
+public class PositionBookEngine implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionBookEngine.class);
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final String LOAD_CUSTOMERS = "SELECT id, name, balance FROM customer";
+    private static final String LOAD_HOLDINGS = "SELECT customer_id, ticker, quantity FROM portfolio_item";
+    private static final String UPDATE_BALANCE = "UPDATE customer SET balance = $1 WHERE id = $2";
+    private static final String MERGE_HOLDING = "MERGE INTO portfolio_item (customer_id, ticker, quantity) KEY (customer_id, ticker) VALUES ($1, $2, $3)";
+    private static final String INSERT_TRADE = "INSERT INTO trade (customer_id, ticker, action, price, quantity, executed_at) VALUES ($1, $2, $3, $4, $5, $6)";
+
+    private final PositionBook book = new PositionBook();
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final PositionBookProperties properties;
+    private final Queue<AppliedTrade> appliedTrades = Queues.<AppliedTrade>unboundedMultiproducer().get();
+    private final List<AppliedTrade> unwrittenTrades = new ArrayList<>();
+    private final Sinks.Many<Boolean> flushRequests = Sinks.many().unicast().onBackpressureBuffer(Queues.<Boolean>one().get());
+    private Sinks.Empty<Void> stopRequests;
+    private CompletableFuture<Void> flusher;
+    private volatile boolean running;
+
+    @Autowired
+    public PositionBookEngine(DatabaseClient databaseClient, TransactionalOperator transactionalOperator, PositionBookProperties properties,
+                              ShardRouting shardRouting) {
+        if (shardRouting.sharded()) {
+            // the book is loaded and flushed with statements spanning all customers
+            throw new IllegalStateException("The memory trade engine does not support more than one database shard");
+        }
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+    }
+
+    /**
+     * Validates and applies a trade to the book and requests an early flush once enough customers are dirty.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return the outcome of the trade
+     */
+    public PositionBook.TradeResult apply(Integer customerId, StockTradeRequest stockTradeRequest) {
+        var result = this.book.apply(customerId, stockTradeRequest);
+        if (result.outcome() == PositionBook.Outcome.APPLIED) {
+            this.appliedTrades.offer(new AppliedTrade(customerId, stockTradeRequest, LocalDateTime.now()));
+        }
+        if (this.book.dirtyCount() >= this.properties.flushSize()) {
+            // a full queue or a concurrent signal both mean a flush is already on its way
+            this.flushRequests.tryEmitNext(Boolean.TRUE);
+        }
+        return result;
+    }
+
+    /**
+     * Validates and applies all legs of a basket to the book as one change and requests an early flush once enough
+     * customers are dirty.
+     *
+     * @param customerId the ID of the customer
+     * @param legs the trades of the basket, in order
+     * @return the outcome of the basket
+     */
+    public PositionBook.BasketResult applyBasket(Integer customerId, List<StockTradeRequest> legs) {
+        var result = this.book.applyBasket(customerId, legs);
+        if (result.outcome() == PositionBook.Outcome.APPLIED) {
+            var executedAt = LocalDateTime.now();
+            for (var leg : legs) {
+                this.appliedTrades.offer(new AppliedTrade(customerId, leg, executedAt));
+            }
+        }
+        if (this.book.dirtyCount() >= this.properties.flushSize()) {
+            this.flushRequests.tryEmitNext(Boolean.TRUE);
+        }
+        return result;
+    }
+
+    /**
+     * Adds imported customers to the book. They are already in the tables, so they are not marked dirty.
+     *
+     * @param event the imported customers
+     */
+    @EventListener
+    public void onCustomersImported(CustomersImportedEvent event) {
+        for (var customer : event.customers()) {
+            this.book.putCustomer(customer.id(), customer.name(), customer.balance());
+            for (var holding : customer.holdings()) {
+                this.book.putHolding(customer.id(), holding.ticker(), holding.quantity());
+            }
+        }
+    }
+
+    public CustomerInformation customerInformation(Integer customerId) {
+        return this.book.customerInformation(customerId);
+    }
+
+    @Override
+    public void start() {
+        this.databaseClient.sql(LOAD_CUSTOMERS)
+                .map(row -> {
+                    this.book.putCustomer(row.get("id", Integer.class), row.get("name", String.class), row.get("balance", Integer.class));
+                    return Boolean.TRUE;
+                })
+                .all()
+                .thenMany(this.databaseClient.sql(LOAD_HOLDINGS)
+                        .map(row -> {
+                            this.book.putHolding(row.get("customer_id", Integer.class), Ticker.valueOf(row.get("ticker", String.class)), row.get("quantity", Integer.class));
+                            return Boolean.TRUE;
+                        })
+                        .all())
+                .blockLast();
+        this.stopRequests = Sinks.empty();
+        this.flusher = Flux.merge(Flux.interval(this.properties.flushInterval()).map(tick -> Boolean.TRUE), this.flushRequests.asFlux())
+                .takeUntilOther(this.stopRequests.asMono())
+                .onBackpressureDrop()
+                .concatMap(signal -> this.flush(), 1)
+                .then()
+                .toFuture();
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        // a flush in progress has already taken its customers' dirty flags, so it is allowed to finish rather than
+        // cancelled, and the final flush only writes what changed since
+        this.stopRequests.tryEmitEmpty();
+        this.flusher.join();
+        this.flush().block();
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Loads before the web server starts serving and writes the last changes after it has stopped.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Writes all dirty customers and applied trades, one group commit per batch.
+     *
+     * @return a Mono completing once nothing is left to write or a batch has failed
+     */
+    Mono<Void> flush() {
+        return this.flushBatch()
+                .expand(written -> written == this.properties.flushSize() ? this.flushBatch() : Mono.empty())
+                .then();
+    }
+
+    /**
+     * Writes the next batch of dirty customers and of applied trades in a single transaction. Customers of a failed
+     * batch are marked dirty again and its trades are kept ahead of the queued ones, so the next flush retries them.
+     * Flushes never overlap, so the trades of a failed batch are only touched by the flush that follows it.
+     *
+     * @return a Mono emitting the larger of the number of customers and the number of trades written
+     */
+    private Mono<Integer> flushBatch() {
+        return Mono.defer(() -> {
+            var customerIds = new int[this.properties.flushSize()];
+            var snapshots = new int[this.properties.flushSize()][PositionBook.snapshotLength()];
+            var count = 0;
+            Integer customerId;
+            while (count < customerIds.length && (customerId = this.book.pollDirty()) != null) {
+                customerIds[count] = customerId;
+                this.book.snapshot(customerId, snapshots[count]);
+                count++;
+            }
+            var trades = new ArrayList<>(this.unwrittenTrades);
+            this.unwrittenTrades.clear();
+            AppliedTrade trade;
+            while (trades.size() < this.properties.flushSize() && (trade = this.appliedTrades.poll()) != null) {
+                trades.add(trade);
+            }
+            if (count == 0 && trades.isEmpty()) {
+                return Mono.just(0);
+            }
+            var written = count;
+            return this.transactionalOperator.transactional(this.databaseClient.inConnectionMany(connection -> write(connection, customerIds, snapshots, written)
+                            .concatWith(insertTrades(connection, trades))).then())
+                    .thenReturn(Math.max(written, trades.size()))
+                    .onErrorResume(e -> {
+                        log.error("Failed to write {} customers and {} trades behind, retrying on the next flush", written, trades.size(), e);
+                        for (int i = 0; i < written; i++) {
+                            this.book.markDirty(customerIds[i]);
+                        }
+                        this.unwrittenTrades.addAll(trades);
+                        return Mono.just(0);
+                    });
+        });
+    }
+
+    private static Flux<Long> insertTrades(Connection connection, List<AppliedTrade> trades) {
+        if (trades.isEmpty()) {
+            return Flux.empty();
+        }
+        var statement = connection.createStatement(INSERT_TRADE);
+        for (int i = 0; i < trades.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            var trade = trades.get(i);
+            statement.bind(0, trade.customerId())
+                    .bind(1, trade.request().ticker().name())
+                    .bind(2, trade.request().action().name())
+                    .bind(3, trade.request().price())
+                    .bind(4, trade.request().quantity())
+                    .bind(5, trade.executedAt());
+        }
+        return Flux.defer(() -> Flux.from(statement.execute())).flatMap(Result::getRowsUpdated);
+    }
+
+    private static Flux<Long> write(Connection connection, int[] customerIds, int[][] snapshots, int count) {
+        if (count == 0) {
+            return Flux.empty();
+        }
+        var balances = connection.createStatement(UPDATE_BALANCE);
+        var holdings = connection.createStatement(MERGE_HOLDING);
+        var hasHoldings = false;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                balances.add();
+            }
+            balances.bind(0, snapshots[i][0]).bind(1, customerIds[i]);
+            for (int t = 0; t < TICKERS.length; t++) {
+                var quantity = snapshots[i][t + 1];
+                if (quantity == PositionBook.NO_HOLDING) {
+                    continue;
+                }
+                if (hasHoldings) {
+                    holdings.add();
+                }
+                holdings.bind(0, customerIds[i]).bind(1, TICKERS[t].name()).bind(2, quantity);
+                hasHoldings = true;
+            }
+        }
+        var holdingUpdates = hasHoldings
+                ? Flux.defer(() -> Flux.from(holdings.execute())).flatMap(Result::getRowsUpdated)
+                : Flux.<Long>empty();
+        return Flux.defer(() -> Flux.from(balances.execute()))
+                .flatMap(Result::getRowsUpdated)
+                .concatWith(holdingUpdates);
+    }
+
+    /**
+     * A trade applied to the book, waiting to be inserted into the trade history.
+     */
+    private record AppliedTrade(Integer customerId, StockTradeRequest request, LocalDateTime executedAt) {
+    }
+}
@@ -0,0 +1,31 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for admission control of trade submissions.
+ *
+ * @param enabled whether trade submissions are admitted through the rate and concurrency limits at all
+ * @param customerRate the sustained number of trades per second admitted for a single customer
+ * @param customerBurst the number of trades a customer may submit at once after being idle
+ * @param maxCustomers the maximum number of customers whose rate is tracked; the least recently seen are forgotten
+ * @param initialLimit the global number of trades in flight admitted on startup
+ * @param minLimit the lowest the global limit is lowered to
+ * @param maxLimit the highest the global limit is raised to
+ * @param targetLatency trades slower than this lower the global limit, faster ones raise it
+ * @param backoffRatio the factor the global limit is multiplied by after a slow or failed trade
+ */
+@ConfigurationProperties(prefix = "trade.admission")
+public record AdmissionProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("100") double customerRate,
+                                  @DefaultValue("200") int customerBurst,
+                                  @DefaultValue("100000") long maxCustomers,
+                                  @DefaultValue("64") int initialLimit,
+                                  @DefaultValue("8") int minLimit,
+                                  @DefaultValue("512") int maxLimit,
+                                  @DefaultValue("50ms") Duration targetLatency,
+                                  @DefaultValue("0.9") double backoffRatio) {
+}
@@ -0,0 +1,13 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for multi-leg basket orders.
+ *
+ * @param maxLegs the largest number of trades accepted in one basket
+ */
+@ConfigurationProperties(prefix = "trade.basket")
+public record BasketTradeProperties(@DefaultValue("32") int maxLegs) {
+}
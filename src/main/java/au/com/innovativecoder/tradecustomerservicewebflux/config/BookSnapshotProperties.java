@@ -0,0 +1,17 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for binary book snapshots.
+ *
+ * @param loadPath the snapshot file the customer and portfolio_item tables are loaded from on startup, or null to keep the sql init data
+ * @param batchSize the number of customers inserted per batched statement while loading
+ */
+@ConfigurationProperties(prefix = "database.snapshot")
+public record BookSnapshotProperties(Path loadPath,
+                                     @DefaultValue("1000") int batchSize) {
+}
@@ -0,0 +1,15 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for streamed bulk trade ingestion.
+ *
+ * @param concurrency the number of customer groups executing trades at the same time
+ * @param prefetch the number of trades buffered per customer group before upstream demand stops
+ */
+@ConfigurationProperties(prefix = "trade.bulk")
+public record BulkTradeProperties(@DefaultValue("32") int concurrency,
+                                  @DefaultValue("64") int prefetch) {
+}
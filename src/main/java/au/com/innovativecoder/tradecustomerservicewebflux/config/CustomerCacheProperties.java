@@ -0,0 +1,19 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-process CustomerInformation cache.
+ *
+ * @param enabled whether customer information is cached at all
+ * @param maximumSize the maximum number of cached customers
+ * @param timeToLive how long a cached customer is served after it was loaded
+ */
+@ConfigurationProperties(prefix = "customer.cache")
+public record CustomerCacheProperties(@DefaultValue("true") boolean enabled,
+                                      @DefaultValue("10000") long maximumSize,
+                                      @DefaultValue("30s") Duration timeToLive) {
+}
@@ -0,0 +1,13 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for streaming the whole book out.
+ *
+ * @param pageSize the number of customers read per keyset page
+ */
+@ConfigurationProperties(prefix = "customer.export")
+public record CustomerExportProperties(@DefaultValue("1000") int pageSize) {
+}
@@ -0,0 +1,16 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for streaming customer imports.
+ *
+ * @param batchSize the number of customers inserted per transaction, with one batched statement for the customers
+ *                  and one for their holdings
+ * @param parallelism the number of batches inserted at the same time
+ */
+@ConfigurationProperties(prefix = "customer.import")
+public record CustomerImportProperties(@DefaultValue("500") int batchSize,
+                                       @DefaultValue("4") int parallelism) {
+}
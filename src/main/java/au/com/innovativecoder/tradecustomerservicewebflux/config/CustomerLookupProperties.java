@@ -0,0 +1,15 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for bulk customer lookups.
+ *
+ * @param chunkSize the maximum number of ids bound into a single IN list
+ * @param concurrency the number of chunk queries running at the same time
+ */
+@ConfigurationProperties(prefix = "customer.lookup")
+public record CustomerLookupProperties(@DefaultValue("500") int chunkSize,
+                                       @DefaultValue("4") int concurrency) {
+}
@@ -0,0 +1,14 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for initializing the schema from {@code sql/data.sql}.
+ *
+ * @param skipIfPresent whether the script is skipped when the {@code customer} table already exists, which
+ *                      keeps it off the startup path of instances sharing a persistent database
+ */
+@ConfigurationProperties(prefix = "database.schema")
+public record DatabaseSchemaProperties(@DefaultValue("false") boolean skipIfPresent) {
+}
@@ -0,0 +1,14 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for warming up the database connections on startup.
+ *
+ * @param enabled whether the pool's initial connections are opened and the application's statements executed on each
+ *                of them before the application starts serving
+ */
+@ConfigurationProperties(prefix = "database.warmup")
+public record DatabaseWarmupProperties(@DefaultValue("true") boolean enabled) {
+}
@@ -0,0 +1,17 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the firm-wide exposure aggregates.
+ *
+ * @param checkEnabled whether the aggregates are periodically compared against the tables
+ * @param checkInterval how often the comparison runs
+ */
+@ConfigurationProperties(prefix = "trade.exposure")
+public record ExposureProperties(@DefaultValue("true") boolean checkEnabled,
+                                 @DefaultValue("1m") Duration checkInterval) {
+}
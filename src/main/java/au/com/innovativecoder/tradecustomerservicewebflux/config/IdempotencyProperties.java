@@ -0,0 +1,21 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for Idempotency-Key handling of trade submissions.
+ *
+ * @param maximumSize the maximum number of keys remembered in memory
+ * @param window how long a key is remembered after its trade completed
+ * @param persistent whether keys are also recorded in the {@code idempotency_key} table, in the trade's transaction,
+ *                   so they survive restarts and are shared by every instance using the same database; not
+ *                   supported by the memory trade engine
+ */
+@ConfigurationProperties(prefix = "trade.idempotency")
+public record IdempotencyProperties(@DefaultValue("100000") long maximumSize,
+                                    @DefaultValue("10m") Duration window,
+                                    @DefaultValue("false") boolean persistent) {
+}
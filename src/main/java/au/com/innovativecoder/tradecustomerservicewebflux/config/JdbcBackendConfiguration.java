@@ -0,0 +1,53 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+
+/**
+ * The JDBC side of the JDBC backend. Spring Boot does not configure a DataSource next to an R2DBC connection
+ * factory, so it is configured here from {@code spring.datasource}, pointing at the same database. Schema
+ * initialization, warm-up and every path other than trades and customer reads keep using R2DBC.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "trade.backend", havingValue = "jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcBackendConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public JdbcClient jdbcClient(DataSource dataSource) {
+        return JdbcClient.create(dataSource);
+    }
+
+    @Bean
+    public TransactionTemplate jdbcTransactionTemplate(DataSource dataSource) {
+        return new TransactionTemplate(new JdbcTransactionManager(dataSource));
+    }
+
+    /**
+     * Runs every blocking call on a virtual thread of its own, so a call waiting for a connection or a statement
+     * parks its thread instead of occupying a carrier.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "jdbc");
+    }
+}
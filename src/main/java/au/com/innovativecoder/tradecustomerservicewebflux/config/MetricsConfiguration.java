@@ -0,0 +1,55 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.metrics.TimedConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.netty4.NettyEventExecutorMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpResources;
+
+/**
+ * Meters that Spring Boot does not bind on its own: connection acquire latency and the event loops
+ * serving HTTP requests. The pool gauges (acquired, idle, pending) are bound by Spring Boot.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    private static final String PRIMARY_CONNECTION_FACTORY = "connectionFactory";
+
+    /**
+     * Wraps the connection factory of the application, which both Spring Boot and {@link ShardConfiguration} name
+     * {@value #PRIMARY_CONNECTION_FACTORY}, so every connection acquisition is timed. Other connection factories,
+     * such as the pools behind it, are left alone so an acquisition is timed once.
+     */
+    @Bean
+    public static BeanPostProcessor timedConnectionFactoryPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (PRIMARY_CONNECTION_FACTORY.equals(beanName) && bean instanceof ConnectionFactory connectionFactory
+                        && !(bean instanceof TimedConnectionFactory)) {
+                    var timer = Timer.builder("r2dbc.pool.acquire")
+                            .description("Time taken to acquire a database connection")
+                            .tag("name", beanName)
+                            .publishPercentileHistogram()
+                            .register(registry.getObject());
+                    return new TimedConnectionFactory(connectionFactory, timer);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Pending tasks of each event loop shared by the Reactor Netty server.
+     */
+    @Bean
+    public MeterBinder nettyEventLoopMetrics() {
+        return registry -> new NettyEventExecutorMetrics(HttpResources.get().onServer(true)).bindTo(registry);
+    }
+}
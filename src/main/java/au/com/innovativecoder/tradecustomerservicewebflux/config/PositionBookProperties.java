@@ -0,0 +1,17 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory position book used by the memory trade engine.
+ *
+ * @param flushInterval how often dirty customers are written behind to the database
+ * @param flushSize the number of dirty customers written per group commit, which also triggers an early flush
+ */
+@ConfigurationProperties(prefix = "trade.book")
+public record PositionBookProperties(@DefaultValue("100ms") Duration flushInterval,
+                                     @DefaultValue("512") int flushSize) {
+}
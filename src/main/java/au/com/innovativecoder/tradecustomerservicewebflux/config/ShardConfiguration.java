@@ -0,0 +1,97 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRoutingConnectionFactory;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Option;
+import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthContributor;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.actuate.r2dbc.ConnectionFactoryHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Replaces the connection factory of Spring Boot with one that routes to a pool per shard when more than one shard
+ * is configured. Every shard gets a pool configured by {@code spring.r2dbc.pool}, so the connections of the
+ * application grow with the number of shards, and the options of {@code spring.r2dbc.properties}.
+ * <p>
+ * Spring Boot binds pool metrics and the database health check to connection factory beans, which do not reach the
+ * pools behind the router, so both are registered here for every shard under the name of its pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnExpression("${database.shards.count:1} > 1")
+public class ShardConfiguration {
+
+    @Bean
+    public ConnectionFactory connectionFactory(ShardProperties shardProperties, R2dbcProperties r2dbcProperties) {
+        var shards = new ArrayList<ConnectionFactory>(shardProperties.count());
+        for (int shard = 0; shard < shardProperties.count(); shard++) {
+            var connectionFactory = ConnectionFactoryBuilder.withUrl(shardProperties.url(shard))
+                    .configure(options -> r2dbcProperties.getProperties().forEach((key, value) -> options.option(Option.valueOf(key), value)))
+                    .username(r2dbcProperties.getUsername())
+                    .password(r2dbcProperties.getPassword())
+                    .build();
+            shards.add(pool(connectionFactory, r2dbcProperties.getPool(), poolName(shard)));
+        }
+        return new ShardRoutingConnectionFactory(shards);
+    }
+
+    /**
+     * Acquired, idle, pending and the other gauges Spring Boot binds for a pool, for the pool of every shard.
+     */
+    @Bean
+    public MeterBinder shardConnectionPoolMetrics(ConnectionFactory connectionFactory) {
+        return registry -> forEachPool(connectionFactory, (name, pool) -> new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(registry));
+    }
+
+    /**
+     * Replaces the health check of Spring Boot, which validates a connection of the router and so of no shard, with
+     * one per shard.
+     */
+    @Bean
+    public ReactiveHealthContributor r2dbcHealthContributor(ConnectionFactory connectionFactory) {
+        var pools = new LinkedHashMap<String, ConnectionPool>();
+        forEachPool(connectionFactory, pools::put);
+        return CompositeReactiveHealthContributor.fromMap(pools, ConnectionFactoryHealthIndicator::new);
+    }
+
+    private static void forEachPool(ConnectionFactory connectionFactory, BiConsumer<String, ConnectionPool> action) {
+        var shards = ShardRoutingConnectionFactory.shardsOf(connectionFactory);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shards.get(shard) instanceof ConnectionPool pool) {
+                action.accept(poolName(shard), pool);
+            }
+        }
+    }
+
+    private static String poolName(int shard) {
+        return "shard-" + shard;
+    }
+
+    private static ConnectionPool pool(ConnectionFactory connectionFactory, R2dbcProperties.Pool properties, String name) {
+        var builder = ConnectionPoolConfiguration.builder(connectionFactory).name(name);
+        var map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(properties.getInitialSize()).to(builder::initialSize);
+        map.from(properties.getMaxSize()).to(builder::maxSize);
+        map.from(properties.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(properties.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(properties.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(properties.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(properties.getValidationQuery()).when(StringUtils::hasText).to(builder::validationQuery);
+        map.from(properties.getValidationDepth()).to(builder::validationDepth);
+        return new ConnectionPool(builder.build());
+    }
+}
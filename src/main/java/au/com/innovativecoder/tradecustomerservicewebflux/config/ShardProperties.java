@@ -0,0 +1,26 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Settings for spreading customers over several databases.
+ *
+ * @param count the number of shards; 1 keeps everything in the database of {@code spring.r2dbc.url}
+ * @param urls the R2DBC URL of every shard, in shard order, or empty to derive them from the template
+ * @param urlTemplate the R2DBC URL of a shard with {@code %d} standing for its index, used when no URLs are given
+ */
+@ConfigurationProperties(prefix = "database.shards")
+public record ShardProperties(@DefaultValue("1") int count,
+                              @DefaultValue List<String> urls,
+                              @DefaultValue("r2dbc:h2:mem:///trade-shard-%d") String urlTemplate) {
+
+    /**
+     * @return the R2DBC URL of the shard
+     */
+    public String url(int shard) {
+        return this.urls.isEmpty() ? this.urlTemplate.formatted(shard) : this.urls.get(shard);
+    }
+}
@@ -0,0 +1,40 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.admission.TradeAdmissionFilter;
+import au.com.innovativecoder.tradecustomerservicewebflux.controller.CustomerController;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.PortfolioItemRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.SchemaInitializer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeHistoryRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.IdempotentTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeLaneExecutor;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Keeps the trade path eager when the {@code startup} profile turns on lazy initialization, so only beans
+ * that are not needed to serve the first trade are deferred. The schema initializer is kept eager too: deferred,
+ * it would run the scripts on first use, which may be after trades have been written.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StartupConfiguration {
+
+    @Bean
+    public static LazyInitializationExcludeFilter tradePathExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                SchemaInitializer.class,
+                CustomerController.class,
+                TradeAdmissionFilter.class,
+                IdempotentTradeService.class,
+                TradeLaneExecutor.class,
+                TradeService.class,
+                TradeRepository.class,
+                TradeHistoryRepository.class,
+                CustomerRepository.class,
+                PortfolioItemRepository.class
+        );
+    }
+}
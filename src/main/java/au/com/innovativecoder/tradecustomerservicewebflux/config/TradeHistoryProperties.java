@@ -0,0 +1,15 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the trade history API.
+ *
+ * @param defaultPageSize the page size used when a request does not ask for one
+ * @param maxPageSize the largest page size a request may ask for
+ */
+@ConfigurationProperties(prefix = "trade.history")
+public record TradeHistoryProperties(@DefaultValue("100") int defaultPageSize,
+                                     @DefaultValue("1000") int maxPageSize) {
+}
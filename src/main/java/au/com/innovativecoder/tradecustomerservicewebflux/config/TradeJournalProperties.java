@@ -0,0 +1,31 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.journal.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the append-only trade journal.
+ *
+ * @param enabled whether accepted trades are journaled
+ * @param directory the directory holding the segment files
+ * @param segmentRecords the number of records per segment file
+ * @param fsyncPolicy when appended records are forced to disk
+ * @param fsyncEvery the number of appends per force with {@link FsyncPolicy#PER_COUNT}
+ * @param fsyncInterval the time between forces with {@link FsyncPolicy#PER_INTERVAL}
+ * @param capacity the number of executed trades that may wait to be journaled before further trades are rejected
+ * @param replayOnStartup whether the customer and portfolio_item tables are rebuilt from the journal on startup
+ */
+@ConfigurationProperties(prefix = "trade.journal")
+public record TradeJournalProperties(@DefaultValue("false") boolean enabled,
+                                     @DefaultValue("journal") Path directory,
+                                     @DefaultValue("1048576") int segmentRecords,
+                                     @DefaultValue("per-count") FsyncPolicy fsyncPolicy,
+                                     @DefaultValue("64") int fsyncEvery,
+                                     @DefaultValue("10ms") Duration fsyncInterval,
+                                     @DefaultValue("8192") int capacity,
+                                     @DefaultValue("false") boolean replayOnStartup) {
+}
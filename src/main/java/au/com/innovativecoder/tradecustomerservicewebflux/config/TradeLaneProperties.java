@@ -0,0 +1,21 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the per-customer trade execution lanes.
+ *
+ * @param enabled whether trades are routed through the lanes at all
+ * @param count the number of lanes; 0 derives it from the available processors
+ * @param capacity the maximum number of trades queued on a single lane
+ */
+@ConfigurationProperties(prefix = "trade.lanes")
+public record TradeLaneProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("0") int count,
+                                  @DefaultValue("256") int capacity) {
+
+    public int resolvedCount() {
+        return count > 0 ? count : Runtime.getRuntime().availableProcessors() * 4;
+    }
+}
@@ -0,0 +1,51 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the trade execution path.
+ *
+ * @param engine where trades are validated and applied
+ * @param writePath how a trade is written to the database by the database engine
+ * @param backend how the database engine and customer reads talk to the database
+ */
+@ConfigurationProperties(prefix = "trade")
+public record TradeProperties(@DefaultValue("database") Engine engine,
+                              @DefaultValue("conditional") WritePath writePath,
+                              @DefaultValue("r2dbc") Backend backend) {
+
+    public enum Engine {
+        /**
+         * Every trade is applied to the database in its own transaction.
+         */
+        DATABASE,
+        /**
+         * Trades are applied to an in-memory position book and written behind to the database in group commits.
+         */
+        MEMORY
+    }
+
+    public enum WritePath {
+        /**
+         * Reads the customer and portfolio item entities, changes them in memory and saves them back.
+         */
+        ENTITY,
+        /**
+         * Applies the balance and holding changes as guarded UPDATE/MERGE statements.
+         */
+        CONDITIONAL
+    }
+
+    public enum Backend {
+        /**
+         * Non-blocking R2DBC connections on the event loops.
+         */
+        R2DBC,
+        /**
+         * Blocking JDBC connections from a Hikari pool, one virtual thread per trade or read. Uses the
+         * conditional statements whatever the write path.
+         */
+        JDBC
+    }
+}
@@ -0,0 +1,31 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.controller;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CacheStatistics;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerInformationCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+
+    private final CustomerInformationCache customerInformationCache;
+
+    @Autowired
+    public CacheController(CustomerInformationCache customerInformationCache) {
+        this.customerInformationCache = customerInformationCache;
+    }
+
+    /**
+     * Retrieves hit, miss and eviction statistics of the customer information cache.
+     *
+     * @return a Mono emitting the CacheStatistics
+     */
+    @GetMapping("/customer-information")
+    public Mono<CacheStatistics> getCustomerInformationStatistics() {
+        return Mono.fromSupplier(customerInformationCache::statistics);
+    }
+}
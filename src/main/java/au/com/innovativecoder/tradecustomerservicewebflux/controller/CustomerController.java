@@ -1,26 +1,57 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.controller;
 
+import au.com.innovativecoder.tradecustomerservicewebflux.admission.TradeAdmissionFilter;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportResult;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.PortfolioUpdate;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
 import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.BasketTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.BulkTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerImportService;
 import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
-import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.IdempotentTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.PortfolioUpdateStreams;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/customers")
 public class CustomerController {
 
     private final CustomerService customerService;
-    private final TradeService tradeService;
+    private final IdempotentTradeService idempotentTradeService;
+    private final BulkTradeService bulkTradeService;
+    private final BasketTradeService basketTradeService;
+    private final PortfolioUpdateStreams portfolioUpdateStreams;
+    private final TradeHistoryService tradeHistoryService;
+    private final CustomerImportService customerImportService;
 
     @Autowired
-    public CustomerController(CustomerService customerService, TradeService tradeService) {
+    public CustomerController(CustomerService customerService, IdempotentTradeService idempotentTradeService, BulkTradeService bulkTradeService,
+                              PortfolioUpdateStreams portfolioUpdateStreams, TradeHistoryService tradeHistoryService,
+                              CustomerImportService customerImportService, BasketTradeService basketTradeService) {
         this.customerService = customerService;
-        this.tradeService = tradeService;
+        this.idempotentTradeService = idempotentTradeService;
+        this.bulkTradeService = bulkTradeService;
+        this.basketTradeService = basketTradeService;
+        this.portfolioUpdateStreams = portfolioUpdateStreams;
+        this.tradeHistoryService = tradeHistoryService;
+        this.customerImportService = customerImportService;
     }
 
     /**
@@ -34,11 +65,97 @@ public class CustomerController {
         return customerService.getCustomerInformation(customerId);
     }
 
+    /**
+     * Streams the changes to a customer's portfolio as Server-Sent Events.
+     *
+     * @param customerId the ID of the customer
+     * @return a Flux emitting the new balance and changed Holding after every committed trade of the customer
+     */
+    @GetMapping(value = "/{customerId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<PortfolioUpdate> streamPortfolioUpdates(@PathVariable("customerId") Integer customerId) {
+        // resolve the customer first so unknown customers get a 404 instead of an empty stream
+        return customerService.getCustomerInformation(customerId)
+                .thenMany(portfolioUpdateStreams.stream(customerId));
+    }
+
+    /**
+     * Retrieves one page of a customer's trade history. The next page starts after the ID of the last trade returned.
+     *
+     * @param customerId the ID of the customer
+     * @param after the ID of the last trade of the previous page
+     * @param limit the maximum number of trades to return
+     * @param ticker only return trades of this ticker
+     * @return a Flux emitting the trades of the page, oldest first
+     */
+    @GetMapping("/{customerId}/trades")
+    public Flux<TradeHistoryItem> getTrades(@PathVariable("customerId") Integer customerId,
+                                            @RequestParam(name = "after", required = false) Long after,
+                                            @RequestParam(name = "limit", required = false) Integer limit,
+                                            @RequestParam(name = "ticker", required = false) Ticker ticker) {
+        return tradeHistoryService.getTrades(customerId, after, limit, ticker);
+    }
+
+    /**
+     * Retrieves customer information for many customer IDs at once.
+     *
+     * @param customerIds the IDs of the customers
+     * @return a Flux emitting one CustomerLookupResult per ID, reporting unknown IDs inline
+     */
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerLookupResult> getCustomersInformation(@RequestParam("ids") List<Integer> customerIds) {
+        return customerService.lookupCustomerInformation(Flux.fromIterable(customerIds));
+    }
+
+    /**
+     * Streams the whole book for end-of-day reconciliation, read page by page as the client consumes it.
+     *
+     * @return a Flux emitting the CustomerInformation of every customer, ordered by ID
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerInformation> exportCustomers() {
+        return customerService.exportCustomers();
+    }
+
+    /**
+     * Retrieves customer information for a set of customer IDs too large for a query string.
+     *
+     * @param customerIds the IDs of the customers, as a JSON array or a newline delimited stream
+     * @return a Flux emitting one CustomerLookupResult per ID, reporting unknown IDs inline
+     */
+    @PostMapping(value = "/lookup", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerLookupResult> lookupCustomerInformation(@RequestBody Flux<Integer> customerIds) {
+        return customerService.lookupCustomerInformation(customerIds);
+    }
+
+    /**
+     * Imports customers and their starting holdings from a CSV body, parsed line by line as it arrives.
+     *
+     * @param lines the lines of the CSV body; the first is the header naming the name, balance and ticker columns
+     * @return a Flux emitting the error of every rejected line and the running totals after every batch
+     */
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerImportResult> importCsv(@RequestBody Flux<String> lines) {
+        return customerImportService.importCsv(lines);
+    }
+
+    /**
+     * Imports customers and their starting holdings from a newline delimited JSON body, parsed line by line as it arrives.
+     *
+     * @param lines the lines of the body, one CustomerImportRow each
+     * @return a Flux emitting the error of every rejected line and the running totals after every batch
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerImportResult> importNdjson(@RequestBody Flux<String> lines) {
+        return customerImportService.importNdjson(lines);
+    }
+
     /**
      * Handles the trading operation for a customer.
      *
      * @param customerId the ID of the customer
      * @param stockTradeRequestMono the request containing stock trade details
+     * @param idempotencyKey identifies retries of the same trade, which return the response of its first execution
      * @return a Mono emitting the StockTradeResponse after the trade operation is executed
      */
 
@@ -48,10 +165,38 @@ public class CustomerController {
     The Mono type is part of Project Reactor, used for handling asynchronous operations in a reactive programming style.
      */
     @PostMapping("/{customerId}/trade")
-    public Mono<StockTradeResponse> trade(@PathVariable("customerId") Integer customerId, @RequestBody Mono<StockTradeRequest> stockTradeRequestMono) {
+    public Mono<StockTradeResponse> trade(@PathVariable("customerId") Integer customerId, @RequestBody Mono<StockTradeRequest> stockTradeRequestMono,
+                                          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
         // the flatMap operator is used to transform the stockTradeRequestMono into another Mono by applying a
-        // function to its value. The function takes the stockTradeRequest and calls the trade method of the TradeService class,
-        // passing the customerId and stockTradeRequest as arguments.
-        return stockTradeRequestMono.flatMap(stockTradeRequest -> tradeService.trade(customerId, stockTradeRequest));
+        // function to its value. The function takes the stockTradeRequest and hands it to the customer's trade lane,
+        // which executes it through the TradeService once all earlier trades of that customer have completed.
+        // A repeated Idempotency-Key is answered with the first execution's response instead.
+        return stockTradeRequestMono.flatMap(stockTradeRequest -> idempotentTradeService.trade(customerId, stockTradeRequest, idempotencyKey));
+    }
+
+    /**
+     * Handles a basket of trades for a customer, which are all executed or, if any of them is rejected, none of them.
+     *
+     * @param customerId the ID of the customer
+     * @param basketTradeRequestMono the request containing the trades of the basket, in order
+     * @return a Mono emitting the BasketTradeResponse after every trade of the basket is executed
+     */
+    @PostMapping("/{customerId}/basket")
+    public Mono<BasketTradeResponse> basket(@PathVariable("customerId") Integer customerId, @RequestBody Mono<BasketTradeRequest> basketTradeRequestMono) {
+        return basketTradeRequestMono.flatMap(basketTradeRequest -> basketTradeService.trade(customerId, basketTradeRequest));
+    }
+
+    /**
+     * Handles a stream of trades for many customers in a single HTTP exchange.
+     * <p>
+     * The exchange itself is not admitted by {@link TradeAdmissionFilter}; each of its trades is, against its
+     * customer's rate and the global limit, and a trade that is not admitted is reported inline like any rejection.
+     *
+     * @param requests the newline delimited stream of customer trades
+     * @return a Flux emitting one CustomerTradeResult per trade as soon as it has been executed or rejected
+     */
+    @PostMapping(value = "/trades", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerTradeResult> trades(@RequestBody Flux<CustomerTradeRequest> requests) {
+        return bulkTradeService.trade(requests);
     }
 }
@@ -0,0 +1,32 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.controller;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.FirmPositions;
+import au.com.innovativecoder.tradecustomerservicewebflux.exposure.ExposureAggregates;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/positions")
+public class PositionController {
+
+    private final ExposureAggregates exposureAggregates;
+
+    @Autowired
+    public PositionController(ExposureAggregates exposureAggregates) {
+        this.exposureAggregates = exposureAggregates;
+    }
+
+    /**
+     * Retrieves the total shares held of every ticker and the total cash balance across all customers,
+     * from aggregates maintained as trades commit rather than by scanning the tables.
+     *
+     * @return a Mono emitting the FirmPositions
+     */
+    @GetMapping
+    public Mono<FirmPositions> getPositions() {
+        return Mono.fromSupplier(exposureAggregates::positions);
+    }
+}
@@ -0,0 +1,80 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.controller;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.admission.TradeAdmission;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.BulkTradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.IdempotentTradeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * RSocket routes for service-to-service traffic, next to the REST API of {@link CustomerController}.
+ * <p>
+ * Payloads are encoded as CBOR unless the requester negotiates another data MIME type on setup. Rejected trades
+ * end the exchange with an RSocket error carrying the rejection message, except on the trade channel, which
+ * reports them inline like the NDJSON trade stream does. Trades are admitted through the same {@link TradeAdmission}
+ * limits as the REST API, so a customer throttled there is throttled here too.
+ */
+@Controller
+@MessageMapping("customers")
+public class TradeRSocketController {
+
+    private final CustomerService customerService;
+    private final IdempotentTradeService idempotentTradeService;
+    private final BulkTradeService bulkTradeService;
+    private final TradeAdmission tradeAdmission;
+
+    @Autowired
+    public TradeRSocketController(CustomerService customerService, IdempotentTradeService idempotentTradeService, BulkTradeService bulkTradeService,
+                                  TradeAdmission tradeAdmission) {
+        this.customerService = customerService;
+        this.idempotentTradeService = idempotentTradeService;
+        this.bulkTradeService = bulkTradeService;
+        this.tradeAdmission = tradeAdmission;
+    }
+
+    /**
+     * Request-response: executes a single trade for a customer.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse after the trade operation is executed
+     */
+    @MessageMapping("{customerId}.trade")
+    public Mono<StockTradeResponse> trade(@DestinationVariable("customerId") Integer customerId, StockTradeRequest stockTradeRequest) {
+        return tradeAdmission.admit(customerId, idempotentTradeService.trade(customerId, stockTradeRequest, null));
+    }
+
+    /**
+     * Request-stream: retrieves customer information for many customer IDs at once.
+     *
+     * @param customerIds the IDs of the customers
+     * @return a Flux emitting one CustomerLookupResult per ID, reporting unknown IDs inline
+     */
+    @MessageMapping("lookup")
+    public Flux<CustomerLookupResult> lookupCustomerInformation(List<Integer> customerIds) {
+        return customerService.lookupCustomerInformation(Flux.fromIterable(customerIds));
+    }
+
+    /**
+     * Request-channel: executes a continuous stream of trades for many customers.
+     *
+     * @param requests the stream of customer trades, flow-controlled by RSocket request-n
+     * @return a Flux emitting one CustomerTradeResult per trade as soon as it has been executed or rejected
+     */
+    @MessageMapping("trades")
+    public Flux<CustomerTradeResult> trades(Flux<CustomerTradeRequest> requests) {
+        return bulkTradeService.trade(requests);
+    }
+}
@@ -0,0 +1,6 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import java.util.List;
+
+public record BasketTradeResponse(Integer customer, List<StockTradeResponse> legs, Integer balance, List<Holding> holdings) {
+}
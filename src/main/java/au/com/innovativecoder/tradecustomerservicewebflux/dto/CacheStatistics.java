@@ -0,0 +1,4 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+public record CacheStatistics(long size, long hitCount, long missCount, double hitRate, long loadFailureCount, long evictionCount) {
+}
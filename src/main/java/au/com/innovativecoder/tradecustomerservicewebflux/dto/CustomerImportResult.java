@@ -0,0 +1,15 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerImportResult(Long line, String error, Long imported, Long failed) {
+
+    public static CustomerImportResult failure(long line, String error) {
+        return new CustomerImportResult(line, error, null, null);
+    }
+
+    public static CustomerImportResult progress(long imported, long failed) {
+        return new CustomerImportResult(null, null, imported, failed);
+    }
+}
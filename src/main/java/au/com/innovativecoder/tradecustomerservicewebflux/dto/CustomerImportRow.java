@@ -0,0 +1,6 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import java.util.List;
+
+public record CustomerImportRow(String name, Integer balance, List<Holding> holdings) {
+}
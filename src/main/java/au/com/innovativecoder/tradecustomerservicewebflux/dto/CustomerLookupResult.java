@@ -0,0 +1,16 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.ProblemDetail;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerLookupResult(Integer customerId, CustomerInformation customer, ProblemDetail problem) {
+
+    public static CustomerLookupResult found(CustomerInformation customer) {
+        return new CustomerLookupResult(customer.id(), customer, null);
+    }
+
+    public static CustomerLookupResult notFound(Integer customerId, ProblemDetail problem) {
+        return new CustomerLookupResult(customerId, null, problem);
+    }
+}
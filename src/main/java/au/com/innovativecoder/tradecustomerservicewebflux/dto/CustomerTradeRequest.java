@@ -0,0 +1,4 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+public record CustomerTradeRequest(Integer customerId, StockTradeRequest trade) {
+}
@@ -0,0 +1,16 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.ProblemDetail;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerTradeResult(Integer customerId, StockTradeResponse response, ProblemDetail problem) {
+
+    public static CustomerTradeResult success(StockTradeResponse response) {
+        return new CustomerTradeResult(response.customer(), response, null);
+    }
+
+    public static CustomerTradeResult failure(Integer customerId, ProblemDetail problem) {
+        return new CustomerTradeResult(customerId, null, problem);
+    }
+}
@@ -0,0 +1,6 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import java.util.List;
+
+public record FirmPositions(long cashBalance, List<TickerPosition> positions) {
+}
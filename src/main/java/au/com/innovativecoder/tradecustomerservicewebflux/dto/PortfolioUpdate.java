@@ -0,0 +1,4 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+public record PortfolioUpdate(Integer customerId, Integer balance, Holding holding) {
+}
@@ -0,0 +1,6 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+
+public record TickerPosition(Ticker ticker, long quantity) {
+}
@@ -0,0 +1,9 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.dto;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+
+import java.time.LocalDateTime;
+
+public record TradeHistoryItem(Long id, Ticker ticker, TradeAction action, Integer price, Integer quantity, Integer totalPrice, LocalDateTime executedAt) {
+}
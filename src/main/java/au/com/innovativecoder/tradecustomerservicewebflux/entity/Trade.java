@@ -0,0 +1,75 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.entity;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+
+public class Trade {
+
+    @Id
+    private Long id;
+    private Integer customerId;
+    private Ticker ticker;
+    private TradeAction action;
+    private Integer price;
+    private Integer quantity;
+    private LocalDateTime executedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public TradeAction getAction() {
+        return action;
+    }
+
+    public void setAction(TradeAction action) {
+        this.action = action;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+
+    public void setPrice(Integer price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public LocalDateTime getExecutedAt() {
+        return executedAt;
+    }
+
+    public void setExecutedAt(LocalDateTime executedAt) {
+        this.executedAt = executedAt;
+    }
+}
@@ -0,0 +1,13 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.event;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+
+import java.util.List;
+
+/**
+ * Published once the transaction of an imported batch of customers has been committed.
+ *
+ * @param customers the imported customers with their generated IDs and starting holdings
+ */
+public record CustomersImportedEvent(List<CustomerInformation> customers) {
+}
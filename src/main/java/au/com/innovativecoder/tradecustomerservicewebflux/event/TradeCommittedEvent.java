@@ -0,0 +1,14 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.event;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+
+/**
+ * Published once the transaction of a trade has been committed.
+ *
+ * @param customerId the ID of the customer
+ * @param request the executed trade
+ * @param balance the customer's balance after the trade
+ * @param quantity the customer's quantity of the traded ticker after the trade
+ */
+public record TradeCommittedEvent(Integer customerId, StockTradeRequest request, Integer balance, Integer quantity) {
+}
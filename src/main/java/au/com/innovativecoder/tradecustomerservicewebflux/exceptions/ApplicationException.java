@@ -0,0 +1,35 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+/**
+ * Base class of the errors that reject a request for a customer.
+ * <p>
+ * Rejections are expected outcomes rather than bugs, so they carry no stack trace, and the message is only
+ * formatted if something asks for it; responses are written from the template and the customer id instead.
+ */
+public abstract class ApplicationException extends RuntimeException {
+
+    private final Integer customerId;
+    private final String messageTemplate;
+
+    protected ApplicationException(Integer customerId, String messageTemplate) {
+        super(null, null, false, false);
+        this.customerId = customerId;
+        this.messageTemplate = messageTemplate;
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * @return the message with a single {@code %d} placeholder for the customer id
+     */
+    public String getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    @Override
+    public String getMessage() {
+        return this.messageTemplate.formatted(this.customerId);
+    }
+}
@@ -5,14 +5,34 @@ import reactor.core.publisher.Mono;
 public class ApplicationExceptions {
 
     public static <T>Mono<T> customerNotFound(Integer customerId) {
-        return Mono.error(new CustomerNotFoundException(customerId));
+        return Mono.error(() -> new CustomerNotFoundException(customerId));
     }
 
     public static <T> Mono<T> insufficientBalance(Integer customerId){
-        return Mono.error(new InsufficientBalanceException(customerId));
+        return Mono.error(() -> new InsufficientBalanceException(customerId));
     }
 
     public static <T> Mono<T> insufficientShares(Integer customerId){
-        return Mono.error(new InsufficientSharesException(customerId));
+        return Mono.error(() -> new InsufficientSharesException(customerId));
+    }
+
+    public static <T> Mono<T> tradeLaneFull(Integer customerId){
+        return Mono.error(() -> new TradeLaneFullException(customerId));
+    }
+
+    public static <T> Mono<T> invalidTradeRequest(Integer customerId){
+        return Mono.error(() -> new InvalidTradeRequestException(customerId));
+    }
+
+    public static <T> Mono<T> idempotencyKeyReused(Integer customerId){
+        return Mono.error(() -> new IdempotencyKeyReusedException(customerId));
+    }
+
+    public static <T> Mono<T> tradingOverloaded(Integer customerId){
+        return Mono.error(() -> new TradingOverloadedException(customerId));
+    }
+
+    public static <T> Mono<T> tradeJournalFailed(Integer customerId){
+        return Mono.error(() -> new TradeJournalFailedException(customerId));
     }
 }
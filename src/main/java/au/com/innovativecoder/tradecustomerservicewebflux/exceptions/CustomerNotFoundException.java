@@ -1,10 +1,10 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
 
-public class CustomerNotFoundException extends RuntimeException {
+public class CustomerNotFoundException extends ApplicationException {
 
-    private static final String MESSAGE = "Customer [id=%d] is not found";
+    public static final String MESSAGE = "Customer [id=%d] is not found";
 
     public CustomerNotFoundException(Integer id) {
-        super(MESSAGE.formatted(id));
+        super(id, MESSAGE);
     }
 }
@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class IdempotencyKeyReusedException extends ApplicationException {
+
+    public static final String MESSAGE = "Idempotency key of customer [id=%d] was already used for a different trade";
+
+    public IdempotencyKeyReusedException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
@@ -1,10 +1,10 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
 
-public class InsufficientBalanceException extends RuntimeException {
+public class InsufficientBalanceException extends ApplicationException {
 
-    private static final String MESSAGE = "Customer [id=%d] does not have enough funds to carry this transaction";
+    public static final String MESSAGE = "Customer [id=%d] does not have enough funds to carry this transaction";
 
     public InsufficientBalanceException(Integer id) {
-        super(MESSAGE.formatted(id));
+        super(id, MESSAGE);
     }
 }
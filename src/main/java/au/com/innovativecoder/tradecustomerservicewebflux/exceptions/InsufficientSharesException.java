@@ -1,11 +1,11 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
 
-public class InsufficientSharesException extends RuntimeException {
+public class InsufficientSharesException extends ApplicationException {
 
-    private static final String MESSAGE = "Customer [id=%d] does not have enough shares to complete this transaction";
+    public static final String MESSAGE = "Customer [id=%d] does not have enough shares to complete this transaction";
 
     public InsufficientSharesException(Integer customerId){
-        super(MESSAGE.formatted(customerId));
+        super(customerId, MESSAGE);
     }
 
 }
@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class InvalidTradeRequestException extends ApplicationException {
+
+    public static final String MESSAGE = "Trade request for customer [id=%d] is missing required fields";
+
+    public InvalidTradeRequestException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class TooManyTradesException extends ApplicationException {
+
+    public static final String MESSAGE = "Customer [id=%d] is submitting trades faster than allowed, please retry later";
+
+    public TooManyTradesException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
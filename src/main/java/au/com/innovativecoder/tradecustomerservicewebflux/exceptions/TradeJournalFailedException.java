@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class TradeJournalFailedException extends ApplicationException {
+
+    public static final String MESSAGE = "Trading is suspended, the trade of customer [id=%d] could not be journaled";
+
+    public TradeJournalFailedException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
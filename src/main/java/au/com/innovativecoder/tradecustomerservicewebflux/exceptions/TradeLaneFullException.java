@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class TradeLaneFullException extends ApplicationException {
+
+    public static final String MESSAGE = "Too many pending trades for customer [id=%d], please retry later";
+
+    public TradeLaneFullException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
@@ -0,0 +1,10 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exceptions;
+
+public class TradingOverloadedException extends ApplicationException {
+
+    public static final String MESSAGE = "Trading is overloaded, the trade of customer [id=%d] was not accepted, please retry later";
+
+    public TradingOverloadedException(Integer customerId) {
+        super(customerId, MESSAGE);
+    }
+}
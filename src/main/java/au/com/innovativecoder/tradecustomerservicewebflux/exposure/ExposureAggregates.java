@@ -0,0 +1,138 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exposure;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.FirmPositions;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TickerPosition;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.CustomersImportedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.ExposureRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Total shares held of every ticker and total cash balance across all customers, kept up to date as trades commit.
+ * <p>
+ * Each total is a striped counter indexed by {@link Ticker#ordinal()}, so concurrent trades never contend on a lock
+ * and reading all of them costs one sum per ticker. The totals are rebuilt from the tables on startup, after the
+ * trade journal has been replayed; trades committed before that are already part of what is loaded and are
+ * ignored. A read sums each counter separately, so while trades commit it may include a trade's shares but not
+ * yet its cash.
+ */
+@Component
+public class ExposureAggregates implements SmartLifecycle {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private final LongAdder[] quantities = new LongAdder[TICKERS.length];
+    private final LongAdder cashBalance = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final ExposureRepository exposureRepository;
+    private volatile boolean running;
+
+    @Autowired
+    public ExposureAggregates(ExposureRepository exposureRepository) {
+        this.exposureRepository = exposureRepository;
+        for (int i = 0; i < this.quantities.length; i++) {
+            this.quantities[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Applies a committed trade to the totals of its ticker and to the cash balance.
+     *
+     * @param event the committed trade
+     */
+    @EventListener
+    public void onTradeCommitted(TradeCommittedEvent event) {
+        if (!this.running) {
+            return;
+        }
+        var request = event.request();
+        var shares = (long) request.quantity();
+        var cash = (long) request.price() * request.quantity();
+        var buy = request.action() == TradeAction.BUY;
+        this.quantities[request.ticker().ordinal()].add(buy ? shares : -shares);
+        this.cashBalance.add(buy ? -cash : cash);
+        this.applied.increment();
+    }
+
+    /**
+     * Adds the balances and starting holdings of imported customers once their batch has been committed.
+     *
+     * @param event the imported customers
+     */
+    @EventListener
+    public void onCustomersImported(CustomersImportedEvent event) {
+        if (!this.running) {
+            return;
+        }
+        for (var customer : event.customers()) {
+            this.cashBalance.add(customer.balance());
+            for (var holding : customer.holdings()) {
+                this.quantities[holding.ticker().ordinal()].add(holding.quantity());
+            }
+        }
+        this.applied.increment();
+    }
+
+    /**
+     * @return the current totals, with a position for every ticker including those nobody holds
+     */
+    public FirmPositions positions() {
+        var positions = new ArrayList<TickerPosition>(TICKERS.length);
+        for (var ticker : TICKERS) {
+            positions.add(new TickerPosition(ticker, this.quantities[ticker.ordinal()].sum()));
+        }
+        return new FirmPositions(this.cashBalance.sum(), positions);
+    }
+
+    /**
+     * @return the number of trades and imports applied since startup, which changes whenever the totals do
+     */
+    long applied() {
+        return this.applied.sum();
+    }
+
+    /**
+     * Moves the totals to the given values by adding the difference, so trades applied concurrently are kept.
+     *
+     * @param expected the totals to move to
+     */
+    void correct(FirmPositions expected) {
+        var current = this.positions();
+        for (int i = 0; i < TICKERS.length; i++) {
+            this.quantities[i].add(expected.positions().get(i).quantity() - current.positions().get(i).quantity());
+        }
+        this.cashBalance.add(expected.cashBalance() - current.cashBalance());
+    }
+
+    @Override
+    public void start() {
+        this.correct(this.exposureRepository.aggregate().block());
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Loads after the trade journal has been replayed and before the web server starts serving.
+     */
+    @Override
+    public int getPhase() {
+        return -50;
+    }
+}
@@ -0,0 +1,104 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exposure;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.ExposureProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.ExposureRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Periodically compares the exposure aggregates against a SQL aggregate of the tables.
+ * <p>
+ * A comparison only counts when no trade was applied while it ran, since the query and the aggregates would
+ * otherwise describe different moments; under constant load most runs are therefore inconclusive. A mismatch is
+ * checked once more after a short delay, to let the event of a just committed trade arrive, and if it persists the
+ * aggregates are corrected to the tables. Balances changed outside of trades, such as newly created customers,
+ * are picked up that way. With the memory engine the tables lag the position book, so the check does not run.
+ */
+@Component
+public class ExposureConsistencyCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(ExposureConsistencyCheck.class);
+    private static final Duration RECHECK_DELAY = Duration.ofMillis(100);
+
+    enum Result {
+        CONSISTENT, INCONSISTENT, INCONCLUSIVE
+    }
+
+    private final ExposureAggregates exposureAggregates;
+    private final ExposureRepository exposureRepository;
+    private final Counter[] results = new Counter[Result.values().length];
+    private final Disposable checker;
+
+    @Autowired
+    public ExposureConsistencyCheck(ExposureAggregates exposureAggregates, ExposureRepository exposureRepository, ExposureProperties properties,
+                                    Optional<PositionBookEngine> positionBookEngine, MeterRegistry registry) {
+        this.exposureAggregates = exposureAggregates;
+        this.exposureRepository = exposureRepository;
+        for (var result : Result.values()) {
+            this.results[result.ordinal()] = Counter.builder("trade.exposure.checks")
+                    .tag("result", result.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        this.checker = properties.checkEnabled() && positionBookEngine.isEmpty()
+                ? Flux.interval(properties.checkInterval())
+                        .concatMap(tick -> this.check()
+                                .onErrorResume(e -> {
+                                    log.warn("Failed to check the exposure aggregates", e);
+                                    return Mono.empty();
+                                }))
+                        .subscribe()
+                : null;
+    }
+
+    /**
+     * Compares the aggregates against the tables, checks a mismatch once more and corrects a persistent one.
+     *
+     * @return a Mono emitting the Result of the check
+     */
+    Mono<Result> check() {
+        return this.compare(false)
+                .flatMap(result -> result == Result.INCONSISTENT ? this.compare(true).delaySubscription(RECHECK_DELAY) : Mono.just(result))
+                .doOnNext(result -> this.results[result.ordinal()].increment());
+    }
+
+    private Mono<Result> compare(boolean correct) {
+        return Mono.defer(() -> {
+            var applied = this.exposureAggregates.applied();
+            return this.exposureRepository.aggregate()
+                    .map(expected -> {
+                        var actual = this.exposureAggregates.positions();
+                        if (this.exposureAggregates.applied() != applied) {
+                            return Result.INCONCLUSIVE;
+                        }
+                        if (actual.equals(expected)) {
+                            return Result.CONSISTENT;
+                        }
+                        if (correct) {
+                            log.warn("Exposure aggregates {} differ from the tables {}, correcting them", actual, expected);
+                            this.exposureAggregates.correct(expected);
+                        }
+                        return Result.INCONSISTENT;
+                    });
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.checker != null) {
+            this.checker.dispose();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+/**
+ * When appended journal records are forced to the storage device.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every record is forced before append returns. The journal writer forces once per group of records it
+     * drained together, before any trade of the group is acknowledged.
+     */
+    PER_TRADE,
+    /**
+     * Records are forced in groups, once every {@code fsyncEvery} appends. A trade is acknowledged once its record
+     * is in the page cache, which survives a process crash but not an operating system crash.
+     */
+    PER_COUNT,
+    /**
+     * Records are forced in groups by a background thread every {@code fsyncInterval}.
+     */
+    PER_INTERVAL
+}
@@ -0,0 +1,6 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+
+public record JournalRecord(long sequence, long timestamp, Integer customerId, StockTradeRequest request) {
+}
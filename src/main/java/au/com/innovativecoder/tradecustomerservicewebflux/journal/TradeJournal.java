@@ -0,0 +1,251 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of accepted trades, written to memory-mapped segment files.
+ * <p>
+ * Every record has the same size: a sequence number, a timestamp, the trade fields and a CRC32C over all of them.
+ * Sequence numbers are contiguous across segments, so a record is valid only if its checksum matches and its
+ * sequence follows the previous one. Opening a journal scans the last segment up to the first invalid record,
+ * which is where a crash may have torn a write, clears everything after it and continues appending there.
+ * <p>
+ * Writes land in the page cache as soon as they are copied into the mapping, so they survive a process crash;
+ * the {@link FsyncPolicy} decides how often they are forced to the device to also survive an operating system crash.
+ */
+public final class TradeJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 36;
+
+    private static final int PAYLOAD_SIZE = 32;
+    private static final String SEGMENT_PREFIX = "trade-journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final TradeAction[] ACTIONS = TradeAction.values();
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final FsyncPolicy fsyncPolicy;
+    private final int fsyncEvery;
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private final Scheduler fsyncScheduler;
+    private final Disposable fsyncTask;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence;
+    private int unforced;
+
+    public TradeJournal(Path directory, int segmentRecords, FsyncPolicy fsyncPolicy, int fsyncEvery, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncEvery = fsyncEvery;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open trade journal in " + directory, e);
+        }
+        if (fsyncPolicy == FsyncPolicy.PER_INTERVAL) {
+            var nanos = fsyncInterval.toNanos();
+            this.fsyncScheduler = Schedulers.newSingle("trade-journal-fsync", true);
+            this.fsyncTask = this.fsyncScheduler.schedulePeriodically(this::force, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.fsyncScheduler = null;
+            this.fsyncTask = null;
+        }
+    }
+
+    /**
+     * Appends an accepted trade.
+     *
+     * @param customerId the ID of the customer
+     * @param request the accepted trade
+     * @return the sequence number of the record
+     */
+    public synchronized long append(Integer customerId, StockTradeRequest request) {
+        var sequence = write(customerId, request);
+        sync();
+        return sequence;
+    }
+
+    /**
+     * Appends an accepted trade without applying the fsync policy. Callers appending a group of trades call
+     * {@link #sync()} once after the group, so the group is forced together.
+     *
+     * @param customerId the ID of the customer
+     * @param request the accepted trade
+     * @return the sequence number of the record
+     */
+    public synchronized long write(Integer customerId, StockTradeRequest request) {
+        if (this.position == this.segment.capacity()) {
+            roll();
+        }
+        var sequence = this.nextSequence++;
+        encode(this.scratch, sequence, System.currentTimeMillis(), customerId, request);
+        this.crc.reset();
+        this.crc.update(this.scratch.array(), 0, PAYLOAD_SIZE);
+        this.scratch.putInt(PAYLOAD_SIZE, (int) this.crc.getValue());
+        this.segment.put(this.position, this.scratch.array(), 0, RECORD_SIZE);
+        this.position += RECORD_SIZE;
+        this.unforced++;
+        return sequence;
+    }
+
+    /**
+     * Applies the fsync policy to the records written so far: with {@link FsyncPolicy#PER_TRADE} they are forced
+     * at once, with {@link FsyncPolicy#PER_COUNT} once {@code fsyncEvery} of them are pending.
+     */
+    public synchronized void sync() {
+        if (this.fsyncPolicy == FsyncPolicy.PER_TRADE
+                || (this.fsyncPolicy == FsyncPolicy.PER_COUNT && this.unforced >= this.fsyncEvery)) {
+            force();
+        }
+    }
+
+    /**
+     * Forces every record appended so far to the storage device.
+     */
+    public synchronized void force() {
+        if (this.unforced > 0) {
+            this.segment.force();
+            this.unforced = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.fsyncTask != null) {
+            this.fsyncTask.dispose();
+            this.fsyncScheduler.dispose();
+        }
+        force();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the last segment and positions the journal after its last valid record, or starts a new journal.
+     */
+    private void recover() throws IOException {
+        var segments = segments(this.directory);
+        if (segments.isEmpty()) {
+            open(1);
+            return;
+        }
+        var last = segments.get(segments.size() - 1);
+        var firstSequence = firstSequence(last);
+        this.channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.channel.size());
+        var crc = new CRC32C();
+        var expected = firstSequence;
+        var offset = 0;
+        while (offset + RECORD_SIZE <= this.segment.capacity() && decode(this.segment, offset, expected, crc) != null) {
+            offset += RECORD_SIZE;
+            expected++;
+        }
+        // clear whatever a torn or stale write left behind, so it can never be mistaken for a record later on
+        for (int i = offset; i < this.segment.capacity(); i++) {
+            this.segment.put(i, (byte) 0);
+        }
+        this.segment.force();
+        this.position = offset;
+        this.nextSequence = expected;
+    }
+
+    private void roll() {
+        this.segment.force();
+        this.unforced = 0;
+        try {
+            this.channel.close();
+            open(this.nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll trade journal segment", e);
+        }
+    }
+
+    private void open(long firstSequence) throws IOException {
+        var path = this.directory.resolve(SEGMENT_PREFIX + "%020d".formatted(firstSequence) + SEGMENT_SUFFIX);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) this.segmentRecords * RECORD_SIZE);
+        this.position = 0;
+        this.nextSequence = firstSequence;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        var name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static long firstSequence(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void encode(ByteBuffer buffer, long sequence, long timestamp, Integer customerId, StockTradeRequest request) {
+        buffer.putLong(0, sequence)
+                .putLong(8, timestamp)
+                .putInt(16, customerId)
+                .putInt(20, request.price())
+                .putInt(24, request.quantity())
+                .put(28, (byte) request.ticker().ordinal())
+                .put(29, (byte) request.action().ordinal())
+                .putShort(30, (short) 0);
+    }
+
+    /**
+     * Decodes the record at an offset.
+     *
+     * @return the record, or null if it is not the valid record with the expected sequence number
+     */
+    static JournalRecord decode(ByteBuffer buffer, int offset, long expectedSequence, CRC32C crc) {
+        crc.reset();
+        crc.update(buffer.slice(offset, PAYLOAD_SIZE));
+        var sequence = buffer.getLong(offset);
+        if ((int) crc.getValue() != buffer.getInt(offset + PAYLOAD_SIZE) || sequence != expectedSequence) {
+            return null;
+        }
+        var ticker = buffer.get(offset + 28);
+        var action = buffer.get(offset + 29);
+        if (ticker < 0 || ticker >= TICKERS.length || action < 0 || action >= ACTIONS.length) {
+            return null;
+        }
+        var request = new StockTradeRequest(TICKERS[ticker], buffer.getInt(offset + 20), buffer.getInt(offset + 24), ACTIONS[action]);
+        return new JournalRecord(sequence, buffer.getLong(offset + 8), buffer.getInt(offset + 16), request);
+    }
+}
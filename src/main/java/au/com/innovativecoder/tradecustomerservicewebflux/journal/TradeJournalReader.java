@@ -0,0 +1,113 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the valid records of a journal in sequence order, one segment mapping at a time.
+ * Reading ends at the first record that fails its checksum or breaks the sequence.
+ */
+public final class TradeJournalReader implements Iterator<JournalRecord>, Closeable {
+
+    private final List<Path> segments;
+    private final CRC32C crc = new CRC32C();
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int offset;
+    private long expectedSequence;
+    private JournalRecord next;
+    private boolean ended;
+
+    public TradeJournalReader(Path directory) {
+        try {
+            this.segments = TradeJournal.segments(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list trade journal segments in " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null && !this.ended) {
+            this.next = advance();
+            this.ended = this.next == null;
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var record = this.next;
+        this.next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        closeSegment();
+    }
+
+    private JournalRecord advance() {
+        while (true) {
+            if (this.segment == null && !openNextSegment()) {
+                return null;
+            }
+            if (this.offset + TradeJournal.RECORD_SIZE <= this.segment.capacity()) {
+                var record = TradeJournal.decode(this.segment, this.offset, this.expectedSequence, this.crc);
+                if (record == null) {
+                    return null;
+                }
+                this.offset += TradeJournal.RECORD_SIZE;
+                this.expectedSequence++;
+                return record;
+            }
+            closeSegment();
+        }
+    }
+
+    private boolean openNextSegment() {
+        if (this.segmentIndex == this.segments.size()) {
+            return false;
+        }
+        var path = this.segments.get(this.segmentIndex);
+        // older segments may have been archived, so the journal starts wherever its first remaining segment does
+        if (this.segmentIndex++ == 0) {
+            this.expectedSequence = TradeJournal.firstSequence(path);
+        } else if (TradeJournal.firstSequence(path) != this.expectedSequence) {
+            return false;
+        }
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+            this.offset = 0;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open trade journal segment " + path, e);
+        }
+    }
+
+    private void closeSegment() {
+        this.segment = null;
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.channel = null;
+        }
+    }
+}
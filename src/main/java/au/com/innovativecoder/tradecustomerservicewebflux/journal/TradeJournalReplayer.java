@@ -0,0 +1,103 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.SchemaInitializer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rebuilds the {@code customer} and {@code portfolio_item} tables from the trade journal on startup.
+ * <p>
+ * The journal holds trades, not balances, so it is replayed on top of the freshly initialized schema from
+ * {@code sql/data.sql}, in journal order and in transactions of {@value #BATCH_SIZE} records. Replayed trades
+ * are written straight through the TradeRepository, so they are neither journaled again nor published as events.
+ * With several shards, every batch is split by shard into one transaction per shard, which keeps the order of each
+ * customer's trades. A record that does not apply fails startup instead of being skipped, as the journal only holds
+ * trades and cannot rebuild customers that {@code sql/data.sql} does not create. For the same reason customers cannot
+ * be imported while trades are journaled, and a book snapshot cannot be loaded when the journal is replayed.
+ * Replay also refuses to start when the schema initializer skipped {@code sql/data.sql} because the schema was
+ * already present, as the journal would then be applied a second time on top of the balances it already built.
+ * Replay runs before the position book is loaded and before the web server starts serving.
+ */
+@Component
+@ConditionalOnProperty(name = {"trade.journal.enabled", "trade.journal.replay-on-startup"}, havingValue = "true")
+public class TradeJournalReplayer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeJournalReplayer.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final TradeRepository tradeRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final TradeJournalProperties properties;
+    private final ShardRouting shardRouting;
+    private final SchemaInitializer schemaInitializer;
+    private volatile boolean running;
+
+    @Autowired
+    public TradeJournalReplayer(TradeRepository tradeRepository, TransactionalOperator transactionalOperator, TradeJournalProperties properties,
+                                ShardRouting shardRouting, SchemaInitializer schemaInitializer) {
+        this.tradeRepository = tradeRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+        this.schemaInitializer = schemaInitializer;
+    }
+
+    @Override
+    public void start() {
+        if (this.schemaInitializer.skippedExistingSchema()) {
+            throw new IllegalStateException("The trade journal is replayed on top of freshly initialized tables, but the sql init scripts were "
+                    + "skipped on an existing schema; unset database.schema.skip-if-present or trade.journal.replay-on-startup");
+        }
+        var replayed = Flux.using(() -> new TradeJournalReader(this.properties.directory()), reader -> Flux.fromIterable(() -> reader), TradeJournalReader::close)
+                .buffer(BATCH_SIZE)
+                .concatMap(batch -> Flux.fromIterable(this.shardRouting.partition(batch, JournalRecord::customerId).entrySet())
+                        .concatMap(shard -> this.shardRouting.onShard(shard.getKey(),
+                                this.transactionalOperator.transactional(Flux.fromIterable(shard.getValue()).concatMap(this::replay)))))
+                .count()
+                .block();
+        log.info("Replayed {} trades from the trade journal in {}", replayed, this.properties.directory());
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        return -100;
+    }
+
+    private Mono<Long> replay(JournalRecord record) {
+        var customerId = record.customerId();
+        var request = record.request();
+        var applied = switch (request.action()) {
+            case BUY -> this.tradeRepository.debitBalance(customerId, request.totalPrice())
+                    .flatMap(balance -> this.tradeRepository.addShares(customerId, request.ticker(), request.quantity()));
+            case SELL -> this.tradeRepository.removeShares(customerId, request.ticker(), request.quantity())
+                    .flatMap(quantity -> this.tradeRepository.creditBalance(customerId, request.totalPrice()));
+        };
+        // every journaled trade was accepted against the state the records before it left, so one that does not apply
+        // means the tables differ from the ones the journal was written against, and carrying on would diverge
+        return applied
+                .map(result -> record.sequence())
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(("Journal record %d does not apply to customer %d, who is missing or "
+                        + "cannot cover it; the tables differ from the ones the journal was written against").formatted(record.sequence(), customerId))));
+    }
+}
@@ -0,0 +1,176 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradeJournalFailedException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appends every executed trade to the trade journal before the trade is acknowledged.
+ * <p>
+ * Trades complete on an event loop or, with the JDBC backend, a virtual thread. Neither may wait for the disk, so an
+ * executed trade is queued and its caller waits for a completion instead. A single writer thread drains the queue in
+ * groups of up to {@value #MAX_GROUP} entries, appends each group, applies the fsync policy once and only then signals
+ * the completions, so the cost of a force is shared by every trade executed while the previous group was written.
+ * <p>
+ * At most {@code capacity} records wait for the writer. A trade that would exceed that is rejected before it is
+ * executed, so a disk that falls behind slows trading down instead of filling the heap. If a group cannot be written,
+ * its trades, which have been applied but are not in the journal, fail, and every later trade is rejected: the
+ * journal must not have a gap that a replay would silently step over.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.journal.enabled", havingValue = "true")
+public class TradeJournalWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeJournalWriter.class);
+    private static final int MAX_GROUP = 1024;
+    private static final long POLL_MILLIS = 100;
+
+    private final TradeJournal journal;
+    private final int capacity;
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final BlockingQueue<PendingTrades> pending;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean failed;
+
+    @Autowired
+    public TradeJournalWriter(TradeJournalProperties properties) {
+        this.journal = new TradeJournal(
+                properties.directory(),
+                properties.segmentRecords(),
+                properties.fsyncPolicy(),
+                properties.fsyncEvery(),
+                properties.fsyncInterval()
+        );
+        this.capacity = properties.capacity();
+        this.pending = new ArrayBlockingQueue<>(properties.capacity());
+        this.writer = Thread.ofPlatform().name("trade-journal-writer").start(this::write);
+    }
+
+    /**
+     * Executes trades of a customer and journals them once they have been executed. The result is emitted only
+     * after the records have been written and the fsync policy has been applied to them.
+     *
+     * @param customerId the ID of the customer
+     * @param requests the trades the work executes, in order
+     * @param trade the work executing the trades, emitting a result only if all of them have been applied
+     * @return a Mono emitting the result of the work once its trades are journaled
+     */
+    public <T> Mono<T> journal(Integer customerId, List<StockTradeRequest> requests, Mono<T> trade) {
+        return Mono.defer(() -> {
+            if (this.failed) {
+                return ApplicationExceptions.tradeJournalFailed(customerId);
+            }
+            var records = requests.size();
+            if (this.reserved.addAndGet(records) > this.capacity) {
+                this.reserved.addAndGet(-records);
+                return ApplicationExceptions.tradingOverloaded(customerId);
+            }
+            var entry = new PendingTrades(customerId, requests);
+            return trade
+                    .doOnNext(result -> this.enqueue(entry))
+                    .doFinally(signal -> {
+                        if (!entry.queued) {
+                            this.reserved.addAndGet(-records);
+                        }
+                    })
+                    .flatMap(result -> entry.journaled.asMono().thenReturn(result));
+        });
+    }
+
+    /**
+     * Writes every trade queued so far, then closes the journal.
+     */
+    @PreDestroy
+    public void close() {
+        this.running = false;
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.journal.close();
+    }
+
+    private void enqueue(PendingTrades entry) {
+        entry.queued = true;
+        // cannot fail, every queued entry holds at least one of the reserved records
+        this.pending.add(entry);
+    }
+
+    private void write() {
+        var group = new ArrayList<PendingTrades>(MAX_GROUP);
+        while (this.running || !this.pending.isEmpty()) {
+            try {
+                var first = this.pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                this.pending.drainTo(group, MAX_GROUP - 1);
+                if (!this.failed) {
+                    this.append(group);
+                }
+                for (var entry : group) {
+                    this.reserved.addAndGet(-entry.requests.size());
+                    if (this.failed) {
+                        entry.journaled.tryEmitError(new TradeJournalFailedException(entry.customerId));
+                    } else {
+                        entry.journaled.tryEmitEmpty();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void append(List<PendingTrades> group) {
+        try {
+            for (var entry : group) {
+                for (var request : entry.requests) {
+                    this.journal.write(entry.customerId, request);
+                }
+            }
+            this.journal.sync();
+        } catch (RuntimeException e) {
+            log.error("Failed to journal {} executed trades, no further trades are accepted", group.size(), e);
+            this.failed = true;
+        }
+    }
+
+    /**
+     * The executed trades of one caller, waiting to be journaled.
+     */
+    private static final class PendingTrades {
+
+        private final Integer customerId;
+        private final List<StockTradeRequest> requests;
+        private final Sinks.Empty<Void> journaled = Sinks.empty();
+        private boolean queued;
+
+        private PendingTrades(Integer customerId, List<StockTradeRequest> requests) {
+            this.customerId = customerId;
+            this.requests = requests;
+        }
+    }
+}
@@ -5,9 +5,12 @@ import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformatio
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
 import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
 import au.com.innovativecoder.tradecustomerservicewebflux.entity.PortfolioItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Trade;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class EntityDtoMapper {
@@ -44,4 +47,27 @@ public class EntityDtoMapper {
                 balance
         );
     }
+
+    public static Trade toTrade(Integer customerId, StockTradeRequest stockTradeRequest) {
+        var trade = new Trade();
+        trade.setCustomerId(customerId);
+        trade.setTicker(stockTradeRequest.ticker());
+        trade.setAction(stockTradeRequest.action());
+        trade.setPrice(stockTradeRequest.price());
+        trade.setQuantity(stockTradeRequest.quantity());
+        trade.setExecutedAt(LocalDateTime.now());
+        return trade;
+    }
+
+    public static TradeHistoryItem toTradeHistoryItem(Trade trade) {
+        return new TradeHistoryItem(
+                trade.getId(),
+                trade.getTicker(),
+                trade.getAction(),
+                trade.getPrice(),
+                trade.getQuantity(),
+                trade.getPrice() * trade.getQuantity(),
+                trade.getExecutedAt()
+        );
+    }
 }
@@ -0,0 +1,58 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long it takes to acquire a connection from the wrapped ConnectionFactory, which for the
+ * connection pool includes the time spent waiting for a connection to be released.
+ * <p>
+ * The pool stays reachable through {@link Wrapped}, so its own gauges are still bound.
+ */
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+    private final ConnectionFactory delegate;
+    private final Timer acquireTimer;
+
+    public TimedConnectionFactory(ConnectionFactory delegate, Timer acquireTimer) {
+        this.delegate = delegate;
+        this.acquireTimer = acquireTimer;
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return Mono.<Connection>from(this.delegate.create())
+                    .doOnSuccess(connection -> this.acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return this.delegate;
+    }
+
+    /**
+     * Disposes the wrapped pool when the application context closes.
+     */
+    @Override
+    public void dispose() {
+        if (this.delegate instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+}
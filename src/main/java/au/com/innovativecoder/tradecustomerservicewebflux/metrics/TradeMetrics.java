@@ -0,0 +1,313 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.metrics;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.reactivestreams.Subscription;
+import org.springframework.stereotype.Component;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Timers for the stages of the trade pipeline and counters for the outcome of every trade.
+ * <p>
+ * Every meter is registered up front and looked up by ordinal, so recording never builds tags or allocates.
+ * Timing a stage or counting the outcome of a trade wraps its Mono in a single operator, which allocates the operator
+ * and one subscriber per subscription and nothing else.
+ */
+@Component
+public class TradeMetrics {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final TradeAction[] ACTIONS = TradeAction.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    public enum Stage {
+        CUSTOMER_LOOKUP,
+        PORTFOLIO_LOOKUP,
+        PERSISTENCE,
+        BALANCE_UPDATE,
+        HOLDING_UPDATE,
+        HISTORY
+    }
+
+    public enum Outcome {
+        OK,
+        INSUFFICIENT_BALANCE,
+        INSUFFICIENT_SHARES,
+        NOT_FOUND
+    }
+
+    private final Timer[] stages;
+    private final Counter[] outcomes;
+
+    @Autowired
+    public TradeMetrics(MeterRegistry registry) {
+        var stageValues = Stage.values();
+        this.stages = new Timer[stageValues.length];
+        for (var stage : stageValues) {
+            this.stages[stage.ordinal()] = Timer.builder("trade.stage")
+                    .description("Time spent in a stage of the trade pipeline")
+                    .tag("stage", tagValue(stage))
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.outcomes = new Counter[OUTCOMES.length * TICKERS.length * ACTIONS.length];
+        for (var outcome : OUTCOMES) {
+            for (var ticker : TICKERS) {
+                for (var action : ACTIONS) {
+                    this.outcomes[index(outcome, ticker, action)] = Counter.builder("trade.validation")
+                            .description("Trades by validation outcome")
+                            .tag("outcome", tagValue(outcome))
+                            .tag("ticker", ticker.name())
+                            .tag("action", action.name())
+                            .register(registry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Times each subscription to a stage of the trade pipeline, until it completes, fails or is cancelled.
+     *
+     * @param stage the stage
+     * @param mono the work of the stage
+     * @return a Mono emitting the result of the stage
+     */
+    public <T> Mono<T> time(Stage stage, Mono<T> mono) {
+        return new TimedMono<>(mono, this.stages[stage.ordinal()]);
+    }
+
+    /**
+     * Counts the outcome of a trade once it has completed: OK on success, or the business rule that rejected it.
+     * Other failures are left to the HTTP server metrics.
+     *
+     * @param stockTradeRequest the request containing stock trade details
+     * @param trade the trade
+     * @return a Mono emitting the result of the trade
+     */
+    public <T> Mono<T> countOutcome(StockTradeRequest stockTradeRequest, Mono<T> trade) {
+        return new OutcomeMono<>(trade, this, stockTradeRequest, null);
+    }
+
+    /**
+     * Counts the outcome of a basket once it has completed against every one of its legs, since they are applied or
+     * rejected together.
+     *
+     * @param legs the trades of the basket
+     * @param basket the basket
+     * @return a Mono emitting the result of the basket
+     */
+    public <T> Mono<T> countOutcomes(List<StockTradeRequest> legs, Mono<T> basket) {
+        return new OutcomeMono<>(basket, this, null, legs);
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        this.stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(Outcome outcome, Ticker ticker, TradeAction action) {
+        if (ticker != null && action != null) {
+            this.outcomes[index(outcome, ticker, action)].increment();
+        }
+    }
+
+    private static Outcome outcome(Throwable e) {
+        if (e instanceof InsufficientBalanceException) {
+            return Outcome.INSUFFICIENT_BALANCE;
+        }
+        if (e instanceof InsufficientSharesException) {
+            return Outcome.INSUFFICIENT_SHARES;
+        }
+        if (e instanceof CustomerNotFoundException) {
+            return Outcome.NOT_FOUND;
+        }
+        return null;
+    }
+
+    private static int index(Outcome outcome, Ticker ticker, TradeAction action) {
+        return (outcome.ordinal() * TICKERS.length + ticker.ordinal()) * ACTIONS.length + action.ordinal();
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private static final class TimedMono<T> extends MonoOperator<T, T> {
+
+        private final Timer timer;
+
+        private TimedMono(Mono<? extends T> source, Timer timer) {
+            super(source);
+            this.timer = timer;
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super T> actual) {
+            this.source.subscribe(new TimedSubscriber<>(actual, this.timer));
+        }
+    }
+
+    /**
+     * Records the time from subscription to the first of value, completion, error or cancellation. Cancellation may
+     * race with the other signals, so the timer is claimed through an atomic field.
+     */
+    private static final class TimedSubscriber<T> extends ForwardingSubscriber<T> {
+
+        private static final AtomicIntegerFieldUpdater<TimedSubscriber> RECORDED =
+                AtomicIntegerFieldUpdater.newUpdater(TimedSubscriber.class, "recorded");
+
+        private final Timer timer;
+        private final long start = System.nanoTime();
+        private volatile int recorded;
+
+        private TimedSubscriber(CoreSubscriber<? super T> actual, Timer timer) {
+            super(actual);
+            this.timer = timer;
+        }
+
+        @Override
+        void onSignal(Throwable error) {
+            if (RECORDED.compareAndSet(this, 0, 1)) {
+                this.timer.record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        void onCancel() {
+            this.onSignal(null);
+        }
+    }
+
+    private static final class OutcomeMono<T> extends MonoOperator<T, T> {
+
+        private final TradeMetrics metrics;
+        private final StockTradeRequest trade;
+        private final List<StockTradeRequest> legs;
+
+        private OutcomeMono(Mono<? extends T> source, TradeMetrics metrics, StockTradeRequest trade, List<StockTradeRequest> legs) {
+            super(source);
+            this.metrics = metrics;
+            this.trade = trade;
+            this.legs = legs;
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super T> actual) {
+            this.source.subscribe(new OutcomeSubscriber<>(actual, this));
+        }
+    }
+
+    /**
+     * Counts OK on the value, or on completion of an empty trade, and the business rule on an error. The signals of a
+     * subscriber are serial, so a plain flag keeps the value and the completion after it from counting twice.
+     */
+    private static final class OutcomeSubscriber<T> extends ForwardingSubscriber<T> {
+
+        private final OutcomeMono<T> parent;
+        private boolean counted;
+
+        private OutcomeSubscriber(CoreSubscriber<? super T> actual, OutcomeMono<T> parent) {
+            super(actual);
+            this.parent = parent;
+        }
+
+        @Override
+        void onSignal(Throwable error) {
+            if (this.counted) {
+                return;
+            }
+            this.counted = true;
+            var outcome = error == null ? Outcome.OK : outcome(error);
+            if (outcome == null) {
+                return;
+            }
+            if (this.parent.trade != null) {
+                this.parent.metrics.recordOutcome(outcome, this.parent.trade.ticker(), this.parent.trade.action());
+                return;
+            }
+            for (var leg : this.parent.legs) {
+                this.parent.metrics.recordOutcome(outcome, leg.ticker(), leg.action());
+            }
+        }
+    }
+
+    /**
+     * Passes every signal through, telling the subclass about the value, completion or error before the downstream
+     * sees it.
+     */
+    private abstract static class ForwardingSubscriber<T> implements CoreSubscriber<T>, Subscription {
+
+        private final CoreSubscriber<? super T> actual;
+        private Subscription upstream;
+
+        private ForwardingSubscriber(CoreSubscriber<? super T> actual) {
+            this.actual = actual;
+        }
+
+        /**
+         * @param error the error the source failed with, or null on a value or completion
+         */
+        abstract void onSignal(Throwable error);
+
+        void onCancel() {
+        }
+
+        @Override
+        public Context currentContext() {
+            return this.actual.currentContext();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (Operators.validate(this.upstream, subscription)) {
+                this.upstream = subscription;
+                this.actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T value) {
+            this.onSignal(null);
+            this.actual.onNext(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.onSignal(error);
+            this.actual.onError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            this.onSignal(null);
+            this.actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            this.upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            this.onCancel();
+            this.upstream.cancel();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportRow;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Inserts imported customers and their starting holdings with batched statements, and replaces the whole book
+ * when a snapshot is loaded.
+ */
+@Repository
+public class CustomerImportRepository {
+
+    private static final String INSERT_CUSTOMER = "INSERT INTO customer (name, balance) VALUES ($1, $2)";
+    private static final String INSERT_HOLDING = "INSERT INTO portfolio_item (customer_id, ticker, quantity) VALUES ($1, $2, $3)";
+    private static final String INSERT_CUSTOMER_WITH_ID = "INSERT INTO customer (id, name, balance) VALUES ($1, $2, $3)";
+    private static final String[] DELETE_ALL = {
+            "DELETE FROM idempotency_key",
+            "DELETE FROM trade",
+            "DELETE FROM portfolio_item",
+            "DELETE FROM customer"
+    };
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public CustomerImportRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Inserts a batch of customers as a single batched statement, then all of their holdings as another.
+     * Callers are expected to run it in a transaction so a failed batch leaves nothing behind.
+     *
+     * @param rows the validated customers to insert
+     * @return a Mono emitting the generated customer IDs, in the order of the rows
+     */
+    public Mono<List<Integer>> insert(List<CustomerImportRow> rows) {
+        return this.databaseClient.inConnection(connection -> insertCustomers(connection, rows)
+                .flatMap(ids -> insertHoldings(connection, rows, CustomerImportRow::holdings, ids::get).thenReturn(ids)));
+    }
+
+    /**
+     * Deletes every customer together with their holdings, trades and idempotency keys.
+     *
+     * @return a Mono completing once all rows are gone
+     */
+    public Mono<Void> deleteAll() {
+        return Flux.fromArray(DELETE_ALL)
+                .concatMap(statement -> this.databaseClient.sql(statement).fetch().rowsUpdated())
+                .then();
+    }
+
+    /**
+     * Inserts a batch of customers under the IDs they already have, then all of their holdings.
+     * Callers are expected to run it in a transaction and to restart the ID sequence once all batches are in.
+     *
+     * @param customers the customers to insert
+     * @return a Mono emitting the number of holdings inserted
+     */
+    public Mono<Long> insertWithIds(List<CustomerInformation> customers) {
+        return this.databaseClient.inConnection(connection -> {
+            var statement = connection.createStatement(INSERT_CUSTOMER_WITH_ID);
+            for (int i = 0; i < customers.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                var customer = customers.get(i);
+                statement.bind(0, customer.id());
+                bindNullable(statement, 1, customer.name(), String.class);
+                bindNullable(statement, 2, customer.balance(), Integer.class);
+            }
+            return Flux.defer(() -> Flux.from(statement.execute()))
+                    .flatMap(Result::getRowsUpdated)
+                    .then(insertHoldings(connection, customers, CustomerInformation::holdings, i -> customers.get(i).id()));
+        });
+    }
+
+    /**
+     * Makes the ID sequence continue at the given ID. Identity options are part of the DDL and cannot take bind parameters.
+     *
+     * @param nextId the ID of the next customer created
+     * @return a Mono completing once the sequence has been restarted
+     */
+    public Mono<Void> restartIds(int nextId) {
+        return this.databaseClient.sql("ALTER TABLE customer ALTER COLUMN id RESTART WITH " + nextId).then();
+    }
+
+    private static Mono<List<Integer>> insertCustomers(Connection connection, List<CustomerImportRow> rows) {
+        var customers = connection.createStatement(INSERT_CUSTOMER).returnGeneratedValues("id");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                customers.add();
+            }
+            customers.bind(0, rows.get(i).name()).bind(1, rows.get(i).balance());
+        }
+        return Flux.defer(() -> Flux.from(customers.execute()))
+                .concatMap(result -> result.map(row -> row.get(0, Integer.class)))
+                .collectList();
+    }
+
+    /**
+     * Inserts the holdings of a batch of customers in one batched statement.
+     *
+     * @param customers the customers whose holdings to insert
+     * @param holdingsOf the holdings of a customer
+     * @param idAt the ID of the customer at an index of the batch
+     * @return a Mono emitting the number of holdings inserted
+     */
+    private static <T> Mono<Long> insertHoldings(Connection connection, List<T> customers, Function<T, List<Holding>> holdingsOf, IntFunction<Integer> idAt) {
+        var holdings = connection.createStatement(INSERT_HOLDING);
+        var hasHoldings = false;
+        for (int i = 0; i < customers.size(); i++) {
+            for (var holding : holdingsOf.apply(customers.get(i))) {
+                if (hasHoldings) {
+                    holdings.add();
+                }
+                holdings.bind(0, idAt.apply(i)).bind(1, holding.ticker().name()).bind(2, holding.quantity());
+                hasHoldings = true;
+            }
+        }
+        if (!hasHoldings) {
+            return Mono.just(0L);
+        }
+        return Flux.defer(() -> Flux.from(holdings.execute()))
+                .flatMap(Result::getRowsUpdated)
+                .reduce(0L, Long::sum);
+    }
+
+    private static <T> void bindNullable(Statement statement, int index, T value, Class<T> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Loads CustomerInformation read models straight from the database.
+ */
+@Repository
+public class CustomerInformationRepository {
+
+    static final String FIND_BY_ID = """
+            SELECT c.id, c.name, c.balance, p.ticker, p.quantity
+            FROM customer c
+            LEFT JOIN portfolio_item p ON p.customer_id = c.id
+            WHERE c.id = :customerId
+            ORDER BY p.id""";
+
+    static final String FIND_ALL_BY_ID = """
+            SELECT c.id, c.name, c.balance, p.ticker, p.quantity
+            FROM customer c
+            LEFT JOIN portfolio_item p ON p.customer_id = c.id
+            WHERE c.id IN (:customerIds)
+            ORDER BY c.id, p.id""";
+
+    static final String FIND_PAGE_AFTER = """
+            SELECT c.id, c.name, c.balance, p.ticker, p.quantity
+            FROM (SELECT id, name, balance FROM customer WHERE id > :after ORDER BY id LIMIT :limit) c
+            LEFT JOIN portfolio_item p ON p.customer_id = c.id
+            ORDER BY c.id, p.id""";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public CustomerInformationRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Loads a customer and all of their holdings with a single LEFT JOIN.
+     * Rows are folded into the result as they arrive, without materializing portfolio item entities.
+     *
+     * @param customerId the ID of the customer
+     * @return a Mono emitting the CustomerInformation, or empty if the customer does not exist
+     */
+    public Mono<CustomerInformation> findById(Integer customerId) {
+        return Mono.defer(() -> {
+            var folder = new CustomerInformationFolder();
+            return this.databaseClient.sql(FIND_BY_ID)
+                    .bind("customerId", customerId)
+                    .map(folder::accept)
+                    .all()
+                    .then(Mono.fromSupplier(folder::build));
+        });
+    }
+
+    /**
+     * Loads several customers and their holdings with a single LEFT JOIN over an IN list.
+     * Rows arrive ordered by customer, so each customer is emitted as soon as the next one starts.
+     * Ids that do not exist are simply absent from the result.
+     *
+     * @param customerIds the IDs of the customers; callers are expected to bound the size of the list
+     * @return a Flux emitting the CustomerInformation of every existing customer, ordered by ID
+     */
+    public Flux<CustomerInformation> findAllById(Collection<Integer> customerIds) {
+        if (customerIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return fold(this.databaseClient.sql(FIND_ALL_BY_ID)
+                .bind("customerIds", customerIds));
+    }
+
+    /**
+     * Loads one page of customers and their holdings in ID order, seeking past the last customer of the previous
+     * page through the primary key instead of skipping an offset, so every page costs the same however deep it is.
+     * The limit applies to customers, not rows, so a page never splits the holdings of a customer.
+     *
+     * @param after the ID of the last customer of the previous page, or 0 for the first page
+     * @param limit the maximum number of customers on the page
+     * @return a Flux emitting the CustomerInformation of the customers on the page, ordered by ID
+     */
+    public Flux<CustomerInformation> findPageAfter(int after, int limit) {
+        return fold(this.databaseClient.sql(FIND_PAGE_AFTER)
+                .bind("after", after)
+                .bind("limit", limit));
+    }
+
+    /**
+     * Folds the rows of a query ordered by customer into one folder per customer, emitting each customer as soon as
+     * the next one starts. Consecutive rows of a customer are folded into the same folder, so the window of a
+     * customer repeats one instance and only its last element has to be kept.
+     */
+    private static Flux<CustomerInformation> fold(DatabaseClient.GenericExecuteSpec query) {
+        return Flux.defer(() -> {
+            var rows = new CustomerRows();
+            return query.map(rows::accept)
+                    .all()
+                    .windowUntilChanged()
+                    .concatMap(Flux::last)
+                    .map(CustomerInformationFolder::build);
+        });
+    }
+
+    /**
+     * Hands every row to the folder of its customer, starting a new folder whenever the customer changes.
+     */
+    private static final class CustomerRows {
+
+        private CustomerInformationFolder current;
+
+        CustomerInformationFolder accept(Readable row) {
+            var id = row.get("id", Integer.class);
+            if (this.current == null || !this.current.id.equals(id)) {
+                this.current = new CustomerInformationFolder();
+            }
+            return this.current.accept(row);
+        }
+    }
+
+    /**
+     * Accumulates the rows of one customer. The customer columns repeat on every row; the holding columns
+     * are null on the single row of a customer without holdings.
+     */
+    static final class CustomerInformationFolder {
+
+        private Integer id;
+        private String name;
+        private Integer balance;
+        private final List<Holding> holdings = new ArrayList<>(Ticker.values().length);
+
+        CustomerInformationFolder accept(Readable row) {
+            if (this.id == null) {
+                this.id = row.get("id", Integer.class);
+                this.name = row.get("name", String.class);
+                this.balance = row.get("balance", Integer.class);
+            }
+            var ticker = row.get("ticker", String.class);
+            if (ticker != null) {
+                this.holdings.add(new Holding(Ticker.valueOf(ticker), row.get("quantity", Integer.class)));
+            }
+            return this;
+        }
+
+        CustomerInformation build() {
+            return this.id == null ? null : new CustomerInformation(this.id, this.name, this.balance, List.copyOf(this.holdings));
+        }
+    }
+}
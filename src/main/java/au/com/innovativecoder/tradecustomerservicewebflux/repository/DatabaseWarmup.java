@@ -0,0 +1,132 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.DatabaseWarmupProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRoutingConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opens the connection pool's initial connections and runs every statement of the trade and read paths once on each
+ * of them, so the first requests after startup neither wait for a connection to be created nor for a statement to be
+ * parsed. Each statement runs against a customer that does not exist, so nothing is changed. With several shards
+ * the pool of every shard is warmed up, all shards at the same time.
+ * <p>
+ * Warm-up runs before the journal is replayed, before the position book is loaded and before the web server starts
+ * serving, so readiness is only reported once it is done.
+ */
+@Component
+public class DatabaseWarmup implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseWarmup.class);
+    private static final Integer NO_CUSTOMER = -1;
+
+    private final ConnectionFactory connectionFactory;
+    private final TransactionalOperator transactionalOperator;
+    private final CustomerRepository customerRepository;
+    private final PortfolioItemRepository portfolioItemRepository;
+    private final CustomerInformationRepository customerInformationRepository;
+    private final TradeRepository tradeRepository;
+    private final TradeHistoryRepository tradeHistoryRepository;
+    private final DatabaseWarmupProperties properties;
+    private final ShardRouting shardRouting;
+    private volatile int warmedUpConnections;
+    private volatile boolean running;
+
+    @Autowired
+    public DatabaseWarmup(ConnectionFactory connectionFactory, TransactionalOperator transactionalOperator,
+                          CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository,
+                          CustomerInformationRepository customerInformationRepository, TradeRepository tradeRepository,
+                          TradeHistoryRepository tradeHistoryRepository, DatabaseWarmupProperties properties, ShardRouting shardRouting) {
+        this.connectionFactory = connectionFactory;
+        this.transactionalOperator = transactionalOperator;
+        this.customerRepository = customerRepository;
+        this.portfolioItemRepository = portfolioItemRepository;
+        this.customerInformationRepository = customerInformationRepository;
+        this.tradeRepository = tradeRepository;
+        this.tradeHistoryRepository = tradeHistoryRepository;
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+    }
+
+    @Override
+    public void start() {
+        if (this.properties.enabled()) {
+            var shards = ShardRoutingConnectionFactory.shardsOf(this.connectionFactory);
+            var connections = this.shardRouting.onEveryShard(shard -> this.warmup(shards.isEmpty() ? this.connectionFactory : shards.get(shard)))
+                    .reduce(0, Integer::sum)
+                    .block();
+            this.warmedUpConnections = connections;
+            log.info("Warmed up {} database connections", connections);
+        }
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        return -200;
+    }
+
+    /**
+     * @return the number of connections that have run every warm-up statement, over all shards, or 0 until warm-up is done
+     */
+    public int warmedUpConnections() {
+        return this.warmedUpConnections;
+    }
+
+    /**
+     * @return a Mono emitting the number of connections warmed up
+     */
+    private Mono<Integer> warmup(ConnectionFactory connectionFactory) {
+        var pool = pool(connectionFactory);
+        return (pool == null ? Mono.just(1) : pool.warmup().map(created -> Math.max(1, created)))
+                // every round holds its own connection for the length of its transaction, so each connection runs them all
+                .flatMap(connections -> Flux.range(0, connections)
+                        .flatMap(i -> this.transactionalOperator.transactional(this.executeStatements()), connections)
+                        .then(Mono.just(connections)));
+    }
+
+    private Mono<Void> executeStatements() {
+        return Flux.concat(
+                this.customerRepository.findById(NO_CUSTOMER).then(),
+                this.customerRepository.existsById(NO_CUSTOMER).then(),
+                this.portfolioItemRepository.findByCustomerIdAndTicker(NO_CUSTOMER, Ticker.APPLE).then(),
+                this.portfolioItemRepository.findAllByCustomerId(NO_CUSTOMER).then(),
+                this.customerInformationRepository.findById(NO_CUSTOMER).then(),
+                this.tradeRepository.debitBalance(NO_CUSTOMER, 0).then(),
+                this.tradeRepository.creditBalance(NO_CUSTOMER, 0).then(),
+                this.tradeRepository.removeShares(NO_CUSTOMER, Ticker.APPLE, 0).then(),
+                this.tradeHistoryRepository.findPage(NO_CUSTOMER, 0L, 1).then()
+        ).then();
+    }
+
+    private static ConnectionPool pool(Object connectionFactory) {
+        if (connectionFactory instanceof ConnectionPool pool) {
+            return pool;
+        }
+        if (connectionFactory instanceof Wrapped<?> wrapped) {
+            return pool(wrapped.unwrap());
+        }
+        return null;
+    }
+}
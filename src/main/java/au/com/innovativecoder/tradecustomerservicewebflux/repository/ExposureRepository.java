@@ -0,0 +1,75 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.FirmPositions;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TickerPosition;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+
+/**
+ * Aggregates holdings and balances across all customers with a full scan of both tables, on every shard.
+ */
+@Repository
+public class ExposureRepository {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final String AGGREGATE = """
+            SELECT ticker, SUM(quantity) AS total FROM portfolio_item GROUP BY ticker
+            UNION ALL
+            SELECT NULL, SUM(balance) FROM customer""";
+
+    private final DatabaseClient databaseClient;
+    private final ShardRouting shardRouting;
+
+    @Autowired
+    public ExposureRepository(DatabaseClient databaseClient, ShardRouting shardRouting) {
+        this.databaseClient = databaseClient;
+        this.shardRouting = shardRouting;
+    }
+
+    /**
+     * Sums the shares held of every ticker and the balances of all customers in a single statement per shard,
+     * running on all shards at the same time.
+     *
+     * @return a Mono emitting the FirmPositions, with a position for every ticker including those nobody holds
+     */
+    public Mono<FirmPositions> aggregate() {
+        return this.shardRouting.onEveryShard(shard -> this.aggregateShard())
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] += b[i];
+                    }
+                    return a;
+                })
+                .map(totals -> {
+                    var positions = new ArrayList<TickerPosition>(TICKERS.length);
+                    for (var ticker : TICKERS) {
+                        positions.add(new TickerPosition(ticker, totals[ticker.ordinal()]));
+                    }
+                    return new FirmPositions(totals[TICKERS.length], positions);
+                });
+    }
+
+    /**
+     * @return a Mono emitting the total of every ticker by ordinal, followed by the cash balance
+     */
+    private Mono<long[]> aggregateShard() {
+        return Mono.defer(() -> {
+            var totals = new long[TICKERS.length + 1];
+            return this.databaseClient.sql(AGGREGATE)
+                    .map(row -> {
+                        var ticker = row.get("ticker", String.class);
+                        var total = row.get("total", Long.class);
+                        totals[ticker == null ? TICKERS.length : Ticker.valueOf(ticker).ordinal()] = total == null ? 0 : total;
+                        return Boolean.TRUE;
+                    })
+                    .all()
+                    .then(Mono.just(totals));
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records the outcome of trades submitted with an Idempotency-Key. The primary key on
+ * (customer_id, idempotency_key) makes a second execution of the same key fail, and roll back, at commit.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    static final String INSERT = """
+            INSERT INTO idempotency_key (customer_id, idempotency_key, ticker, price, quantity, action, balance, created_at)
+            VALUES (:customerId, :idempotencyKey, :ticker, :price, :quantity, :action, :balance, CURRENT_TIMESTAMP)""";
+
+    private static final String FIND = """
+            SELECT ticker, price, quantity, action, balance FROM idempotency_key
+            WHERE customer_id = :customerId AND idempotency_key = :idempotencyKey""";
+
+    private static final String DELETE_OLDER_THAN = "DELETE FROM idempotency_key WHERE created_at < :cutoff";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public IdempotencyKeyRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Records a completed trade under its key.
+     *
+     * @param customerId the ID of the customer
+     * @param idempotencyKey the key the trade was submitted with
+     * @param stockTradeRequest the request containing stock trade details
+     * @param balance the customer's balance after the trade
+     * @return a Mono completing once the key is recorded
+     */
+    public Mono<Void> insert(Integer customerId, String idempotencyKey, StockTradeRequest stockTradeRequest, Integer balance) {
+        return this.databaseClient.sql(INSERT)
+                .bind("customerId", customerId)
+                .bind("idempotencyKey", idempotencyKey)
+                .bind("ticker", stockTradeRequest.ticker().name())
+                .bind("price", stockTradeRequest.price())
+                .bind("quantity", stockTradeRequest.quantity())
+                .bind("action", stockTradeRequest.action().name())
+                .bind("balance", balance)
+                .then();
+    }
+
+    /**
+     * Finds the trade recorded under a key.
+     *
+     * @param customerId the ID of the customer
+     * @param idempotencyKey the key the trade was submitted with
+     * @return a Mono emitting the original request and response, or empty if the key is unknown
+     */
+    public Mono<IdempotentTrade> find(Integer customerId, String idempotencyKey) {
+        return this.databaseClient.sql(FIND)
+                .bind("customerId", customerId)
+                .bind("idempotencyKey", idempotencyKey)
+                .map(row -> {
+                    var request = new StockTradeRequest(
+                            Ticker.valueOf(row.get("ticker", String.class)),
+                            row.get("price", Integer.class),
+                            row.get("quantity", Integer.class),
+                            TradeAction.valueOf(row.get("action", String.class)));
+                    return new IdempotentTrade(request, EntityDtoMapper.toStockTradeResponse(request, customerId, row.get("balance", Integer.class)));
+                })
+                .one();
+    }
+
+    /**
+     * Forgets keys recorded before a point in time.
+     *
+     * @param cutoff keys recorded before this are deleted
+     * @return a Mono emitting the number of deleted keys
+     */
+    public Mono<Long> deleteOlderThan(LocalDateTime cutoff) {
+        return this.databaseClient.sql(DELETE_OLDER_THAN)
+                .bind("cutoff", cutoff)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public record IdempotentTrade(StockTradeRequest request, StockTradeResponse response) {
+    }
+}
@@ -0,0 +1,182 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The statements of the TradeRepository, CustomerInformationRepository and IdempotencyKeyRepository over blocking
+ * JDBC, for the JDBC backend. The SQL is shared with the R2DBC repositories, so both backends run exactly the same
+ * statements. Every method blocks and joins the JDBC transaction of the calling thread, if any.
+ */
+@Repository
+@ConditionalOnProperty(name = "trade.backend", havingValue = "jdbc")
+public class JdbcTradeRepository {
+
+    private static final String EXISTS_BY_ID = "SELECT COUNT(*) FROM customer WHERE id = :customerId";
+    private static final String INSERT_TRADE = """
+            INSERT INTO trade (customer_id, ticker, action, price, quantity, executed_at)
+            VALUES (:customerId, :ticker, :action, :price, :quantity, :executedAt)""";
+
+    private final JdbcClient jdbcClient;
+
+    @Autowired
+    public JdbcTradeRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    /**
+     * @return the new balance, or empty if the customer does not exist or cannot cover the amount
+     */
+    public Optional<Integer> debitBalance(Integer customerId, Integer amount) {
+        return this.jdbcClient.sql(TradeRepository.DEBIT_BALANCE)
+                .param("amount", amount)
+                .param("customerId", customerId)
+                .param("minimum", amount)
+                .query(Integer.class)
+                .optional();
+    }
+
+    /**
+     * @return the new balance, or empty if the customer does not exist
+     */
+    public Optional<Integer> creditBalance(Integer customerId, Integer amount) {
+        return this.jdbcClient.sql(TradeRepository.CREDIT_BALANCE)
+                .param("amount", amount)
+                .param("customerId", customerId)
+                .query(Integer.class)
+                .optional();
+    }
+
+    /**
+     * @return the new quantity of the holding, which is created if it does not exist yet
+     */
+    public Integer addShares(Integer customerId, Ticker ticker, Integer quantity) {
+        return this.jdbcClient.sql(TradeRepository.ADD_SHARES)
+                .param("customerId", customerId)
+                .param("ticker", ticker.name())
+                .param("quantity", quantity)
+                .query(Integer.class)
+                .single();
+    }
+
+    /**
+     * @return the new quantity of the holding, or empty if the holding does not have enough shares
+     */
+    public Optional<Integer> removeShares(Integer customerId, Ticker ticker, Integer quantity) {
+        return this.jdbcClient.sql(TradeRepository.REMOVE_SHARES)
+                .param("quantity", quantity)
+                .param("customerId", customerId)
+                .param("ticker", ticker.name())
+                .param("minimum", quantity)
+                .query(Integer.class)
+                .optional();
+    }
+
+    public boolean existsById(Integer customerId) {
+        return this.jdbcClient.sql(EXISTS_BY_ID)
+                .param("customerId", customerId)
+                .query(Long.class)
+                .single() > 0;
+    }
+
+    /**
+     * Appends the trade to the trade history.
+     */
+    public void insertTrade(Integer customerId, StockTradeRequest stockTradeRequest) {
+        this.jdbcClient.sql(INSERT_TRADE)
+                .param("customerId", customerId)
+                .param("ticker", stockTradeRequest.ticker().name())
+                .param("action", stockTradeRequest.action().name())
+                .param("price", stockTradeRequest.price())
+                .param("quantity", stockTradeRequest.quantity())
+                .param("executedAt", LocalDateTime.now())
+                .update();
+    }
+
+    /**
+     * Records a completed trade under its key.
+     */
+    public void insertIdempotencyKey(Integer customerId, String idempotencyKey, StockTradeRequest stockTradeRequest, Integer balance) {
+        this.jdbcClient.sql(IdempotencyKeyRepository.INSERT)
+                .param("customerId", customerId)
+                .param("idempotencyKey", idempotencyKey)
+                .param("ticker", stockTradeRequest.ticker().name())
+                .param("price", stockTradeRequest.price())
+                .param("quantity", stockTradeRequest.quantity())
+                .param("action", stockTradeRequest.action().name())
+                .param("balance", balance)
+                .update();
+    }
+
+    /**
+     * @return the customer and all of their holdings, or empty if the customer does not exist
+     */
+    public Optional<CustomerInformation> findCustomerInformation(Integer customerId) {
+        var customers = new LinkedHashMap<Integer, CustomerInformationFolder>(2);
+        this.jdbcClient.sql(CustomerInformationRepository.FIND_BY_ID)
+                .param("customerId", customerId)
+                .query(resultSet -> fold(customers, resultSet));
+        return customers.values().stream().findFirst().map(CustomerInformationFolder::build);
+    }
+
+    /**
+     * @return the CustomerInformation of every existing customer, ordered by ID
+     */
+    public List<CustomerInformation> findAllCustomerInformation(Collection<Integer> customerIds) {
+        if (customerIds.isEmpty()) {
+            return List.of();
+        }
+        var customers = new LinkedHashMap<Integer, CustomerInformationFolder>();
+        this.jdbcClient.sql(CustomerInformationRepository.FIND_ALL_BY_ID)
+                .param("customerIds", customerIds)
+                .query(resultSet -> fold(customers, resultSet));
+        return customers.values().stream().map(CustomerInformationFolder::build).toList();
+    }
+
+    private static void fold(LinkedHashMap<Integer, CustomerInformationFolder> customers, ResultSet resultSet) throws SQLException {
+        var folder = customers.computeIfAbsent(resultSet.getInt("id"), id -> new CustomerInformationFolder());
+        folder.accept(resultSet);
+    }
+
+    /**
+     * Accumulates the rows of one customer, like the folder of the CustomerInformationRepository.
+     */
+    private static final class CustomerInformationFolder {
+
+        private Integer id;
+        private String name;
+        private Integer balance;
+        private final List<Holding> holdings = new ArrayList<>(Ticker.values().length);
+
+        void accept(ResultSet row) throws SQLException {
+            if (this.id == null) {
+                this.id = row.getInt("id");
+                this.name = row.getString("name");
+                this.balance = row.getObject("balance", Integer.class);
+            }
+            var ticker = row.getString("ticker");
+            if (ticker != null) {
+                this.holdings.add(new Holding(Ticker.valueOf(ticker), row.getObject("quantity", Integer.class)));
+            }
+        }
+
+        CustomerInformation build() {
+            return new CustomerInformation(this.id, this.name, this.balance, List.copyOf(this.holdings));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.DatabaseSchemaProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRoutingConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.autoconfigure.sql.init.SqlR2dbcScriptDatabaseInitializer;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the {@code spring.sql.init} scripts like Spring Boot does, unless configured to skip them once the
+ * schema is already in place.
+ * <p>
+ * With several shards the scripts run on every shard. Each shard then drops the seeded customers that belong to
+ * another shard and hands out only ids of its own residue class, continuing after the seeded ones, so that
+ * {@code id mod count} always names the shard holding a customer.
+ * <p>
+ * Whether the scripts were skipped is remembered, so that startup work that assumes fresh tables, such as replaying
+ * the trade journal, can refuse to run on top of the data that was already there.
+ */
+@Component
+public class SchemaInitializer extends SqlR2dbcScriptDatabaseInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaInitializer.class);
+    private static final String SCHEMA_PRESENT = """
+            SELECT COUNT(*) AS tables FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'CUSTOMER'""";
+    private static final String LAST_SEEDED_ID = "SELECT COALESCE(MAX(id), 0) AS id FROM customer";
+    private static final String[] DELETE_OTHER_SHARDS = {
+            "DELETE FROM idempotency_key WHERE MOD(customer_id, :count) <> :shard",
+            "DELETE FROM trade WHERE MOD(customer_id, :count) <> :shard",
+            "DELETE FROM portfolio_item WHERE MOD(customer_id, :count) <> :shard",
+            "DELETE FROM customer WHERE MOD(id, :count) <> :shard"
+    };
+
+    private final ConnectionFactory connectionFactory;
+    private final SqlInitializationProperties sqlInitializationProperties;
+    private final DatabaseSchemaProperties properties;
+    private volatile boolean skipped;
+
+    @Autowired
+    public SchemaInitializer(ConnectionFactory connectionFactory, SqlInitializationProperties sqlInitializationProperties,
+                             DatabaseSchemaProperties properties) {
+        super(connectionFactory, sqlInitializationProperties);
+        this.connectionFactory = connectionFactory;
+        this.sqlInitializationProperties = sqlInitializationProperties;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        var shards = ShardRoutingConnectionFactory.shardsOf(this.connectionFactory);
+        if (shards.isEmpty()) {
+            return this.initialize(this.connectionFactory, super::initializeDatabase);
+        }
+        var initialized = false;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            var connectionFactory = shards.get(shard);
+            var index = shard;
+            initialized |= this.initialize(connectionFactory, () -> {
+                var scripts = new SqlR2dbcScriptDatabaseInitializer(connectionFactory, this.sqlInitializationProperties).initializeDatabase();
+                if (scripts) {
+                    partition(connectionFactory, index, shards.size());
+                }
+                return scripts;
+            });
+        }
+        return initialized;
+    }
+
+    /**
+     * @return whether the sql init scripts were skipped on a shard because its schema was already present, leaving
+     *         the data it held before startup in place
+     */
+    public boolean skippedExistingSchema() {
+        return this.skipped;
+    }
+
+    private boolean initialize(ConnectionFactory connectionFactory, BooleanSupplier scripts) {
+        if (this.properties.skipIfPresent() && schemaPresent(connectionFactory)) {
+            log.info("Schema already present, skipping sql init scripts");
+            this.skipped = true;
+            return false;
+        }
+        return scripts.getAsBoolean();
+    }
+
+    /**
+     * Keeps only the seeded rows of the shard and makes the shard hand out ids {@code shard mod count} from then on.
+     */
+    private static void partition(ConnectionFactory connectionFactory, int shard, int count) {
+        var databaseClient = DatabaseClient.create(connectionFactory);
+        var lastSeededId = databaseClient.sql(LAST_SEEDED_ID)
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .block();
+        for (var statement : DELETE_OTHER_SHARDS) {
+            databaseClient.sql(statement)
+                    .bind("count", count)
+                    .bind("shard", shard)
+                    .fetch()
+                    .rowsUpdated()
+                    .block();
+        }
+        var nextId = ShardRouting.firstIdAfter(lastSeededId, shard, count);
+        // identity options are part of the DDL and cannot take bind parameters
+        databaseClient.sql("ALTER TABLE customer ALTER COLUMN id SET INCREMENT BY " + count)
+                .then()
+                .block();
+        databaseClient.sql("ALTER TABLE customer ALTER COLUMN id RESTART WITH " + nextId)
+                .then()
+                .block();
+    }
+
+    private static boolean schemaPresent(ConnectionFactory connectionFactory) {
+        var tables = DatabaseClient.create(connectionFactory)
+                .sql(SCHEMA_PRESENT)
+                .map(row -> row.get("tables", Long.class))
+                .one()
+                .block();
+        return tables != null && tables > 0;
+    }
+}
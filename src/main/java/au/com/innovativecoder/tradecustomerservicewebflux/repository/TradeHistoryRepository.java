@@ -0,0 +1,22 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Trade;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface TradeHistoryRepository extends ReactiveCrudRepository<Trade, Long> {
+
+    /**
+     * Reads the page of a customer's trades that follows a given trade id, seeking on the (customer_id, id) index
+     * instead of skipping rows, so every page costs the same however deep it is.
+     */
+    @Query("SELECT * FROM trade WHERE customer_id = :customerId AND id > :after ORDER BY id LIMIT :limit")
+    Flux<Trade> findPage(Integer customerId, Long after, Integer limit);
+
+    @Query("SELECT * FROM trade WHERE customer_id = :customerId AND ticker = :ticker AND id > :after ORDER BY id LIMIT :limit")
+    Flux<Trade> findPage(Integer customerId, Ticker ticker, Long after, Integer limit);
+}
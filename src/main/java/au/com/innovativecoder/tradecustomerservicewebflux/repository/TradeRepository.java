@@ -0,0 +1,215 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import io.r2dbc.spi.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies trade side effects with single guarded statements instead of read-then-write round trips.
+ * <p>
+ * Each statement is wrapped in an H2 {@code FINAL TABLE} so the affected row is returned in the same round trip.
+ * An empty result therefore means that no row was affected, either because the row does not exist or because
+ * its guard condition did not hold. The statements for baskets apply the net change of many trades at once, with
+ * one batched statement per table however many trades there are.
+ */
+@Repository
+public class TradeRepository {
+
+    static final String DEBIT_BALANCE = """
+            SELECT balance FROM FINAL TABLE (
+                UPDATE customer SET balance = balance - :amount WHERE id = :customerId AND balance >= :minimum
+            )""";
+
+    static final String CREDIT_BALANCE = """
+            SELECT balance FROM FINAL TABLE (
+                UPDATE customer SET balance = balance + :amount WHERE id = :customerId
+            )""";
+
+    static final String ADD_SHARES = """
+            SELECT quantity FROM FINAL TABLE (
+                MERGE INTO portfolio_item p
+                USING (VALUES (CAST(:customerId AS INT), CAST(:ticker AS VARCHAR(10)), CAST(:quantity AS INT)))
+                    AS s(customer_id, ticker, quantity)
+                ON p.customer_id = s.customer_id AND p.ticker = s.ticker
+                WHEN MATCHED THEN UPDATE SET quantity = p.quantity + s.quantity
+                WHEN NOT MATCHED THEN INSERT (customer_id, ticker, quantity) VALUES (s.customer_id, s.ticker, s.quantity)
+            )""";
+
+    static final String REMOVE_SHARES = """
+            SELECT quantity FROM FINAL TABLE (
+                UPDATE portfolio_item SET quantity = quantity - :quantity
+                WHERE customer_id = :customerId AND ticker = :ticker AND quantity >= :minimum
+            )""";
+
+    private static final String CHANGE_BALANCE = """
+            SELECT balance FROM FINAL TABLE (
+                UPDATE customer SET balance = balance + :amount WHERE id = :customerId AND balance + :amount >= 0
+            )""";
+
+    private static final String CHANGE_HOLDING = """
+            MERGE INTO portfolio_item p
+            USING (VALUES (CAST($1 AS INT), CAST($2 AS VARCHAR(10)), CAST($3 AS INT))) AS s(customer_id, ticker, quantity)
+            ON p.customer_id = s.customer_id AND p.ticker = s.ticker
+            WHEN MATCHED AND p.quantity + s.quantity >= 0 THEN UPDATE SET quantity = p.quantity + s.quantity
+            WHEN NOT MATCHED AND s.quantity >= 0 THEN INSERT (customer_id, ticker, quantity) VALUES (s.customer_id, s.ticker, s.quantity)""";
+
+    private static final String INSERT_TRADE = """
+            INSERT INTO trade (customer_id, ticker, action, price, quantity, executed_at) VALUES ($1, $2, $3, $4, $5, $6)""";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public TradeRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Debits the customer's balance if it covers the amount.
+     *
+     * @param customerId the ID of the customer
+     * @param amount the amount to debit
+     * @return a Mono emitting the new balance, or empty if the customer does not exist or cannot cover the amount
+     */
+    public Mono<Integer> debitBalance(Integer customerId, Integer amount) {
+        return this.databaseClient.sql(DEBIT_BALANCE)
+                .bind("amount", amount)
+                .bind("customerId", customerId)
+                .bind("minimum", amount)
+                .map(row -> row.get("balance", Integer.class))
+                .one();
+    }
+
+    /**
+     * Credits the customer's balance.
+     *
+     * @param customerId the ID of the customer
+     * @param amount the amount to credit
+     * @return a Mono emitting the new balance, or empty if the customer does not exist
+     */
+    public Mono<Integer> creditBalance(Integer customerId, Integer amount) {
+        return this.databaseClient.sql(CREDIT_BALANCE)
+                .bind("amount", amount)
+                .bind("customerId", customerId)
+                .map(row -> row.get("balance", Integer.class))
+                .one();
+    }
+
+    /**
+     * Adds shares to the customer's holding, creating the holding if it does not exist yet.
+     *
+     * @param customerId the ID of the customer
+     * @param ticker the ticker of the holding
+     * @param quantity the number of shares to add
+     * @return a Mono emitting the new quantity of the holding
+     */
+    public Mono<Integer> addShares(Integer customerId, Ticker ticker, Integer quantity) {
+        return this.databaseClient.sql(ADD_SHARES)
+                .bind("customerId", customerId)
+                .bind("ticker", ticker.name())
+                .bind("quantity", quantity)
+                .map(row -> row.get("quantity", Integer.class))
+                .one();
+    }
+
+    /**
+     * Removes shares from the customer's holding if it holds enough of them.
+     *
+     * @param customerId the ID of the customer
+     * @param ticker the ticker of the holding
+     * @param quantity the number of shares to remove
+     * @return a Mono emitting the new quantity of the holding, or empty if the holding does not have enough shares
+     */
+    public Mono<Integer> removeShares(Integer customerId, Ticker ticker, Integer quantity) {
+        return this.databaseClient.sql(REMOVE_SHARES)
+                .bind("quantity", quantity)
+                .bind("customerId", customerId)
+                .bind("ticker", ticker.name())
+                .bind("minimum", quantity)
+                .map(row -> row.get("quantity", Integer.class))
+                .one();
+    }
+
+    /**
+     * Adds a signed amount to the customer's balance if the balance does not go below zero.
+     *
+     * @param customerId the ID of the customer
+     * @param amount the amount to add, negative to debit
+     * @return a Mono emitting the new balance, or empty if the customer does not exist or cannot cover the amount
+     */
+    public Mono<Integer> changeBalance(Integer customerId, Integer amount) {
+        return this.databaseClient.sql(CHANGE_BALANCE)
+                .bind("amount", amount)
+                .bind("customerId", customerId)
+                .map(row -> row.get("balance", Integer.class))
+                .one();
+    }
+
+    /**
+     * Adds signed quantities to several holdings of the customer with one batched statement, creating holdings that
+     * do not exist yet. A holding is left unchanged if its quantity would go below zero.
+     *
+     * @param customerId the ID of the customer
+     * @param changes the quantity to add per ticker, negative to remove shares
+     * @return a Mono emitting the number of holdings changed, which is less than the number of changes if any guard did not hold
+     */
+    public Mono<Long> changeHoldings(Integer customerId, Map<Ticker, Integer> changes) {
+        if (changes.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return this.databaseClient.inConnection(connection -> {
+            var statement = connection.createStatement(CHANGE_HOLDING);
+            var first = true;
+            for (var change : changes.entrySet()) {
+                if (!first) {
+                    statement.add();
+                }
+                statement.bind(0, customerId).bind(1, change.getKey().name()).bind(2, change.getValue());
+                first = false;
+            }
+            return Flux.defer(() -> Flux.from(statement.execute()))
+                    .flatMap(Result::getRowsUpdated)
+                    .reduce(0L, Long::sum);
+        });
+    }
+
+    /**
+     * Appends several trades of the customer to the trade history with one batched statement.
+     *
+     * @param customerId the ID of the customer
+     * @param trades the executed trades, in execution order
+     * @return a Mono emitting the number of trades inserted
+     */
+    public Mono<Long> insertTrades(Integer customerId, List<StockTradeRequest> trades) {
+        if (trades.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return this.databaseClient.inConnection(connection -> {
+            var statement = connection.createStatement(INSERT_TRADE);
+            var executedAt = LocalDateTime.now();
+            for (int i = 0; i < trades.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                var trade = trades.get(i);
+                statement.bind(0, customerId)
+                        .bind(1, trade.ticker().name())
+                        .bind(2, trade.action().name())
+                        .bind(3, trade.price())
+                        .bind(4, trade.quantity())
+                        .bind(5, executedAt);
+            }
+            return Flux.defer(() -> Flux.from(statement.execute()))
+                    .flatMap(Result::getRowsUpdated)
+                    .reduce(0L, Long::sum);
+        });
+    }
+}
@@ -0,0 +1,241 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.BasketTradeProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import au.com.innovativecoder.tradecustomerservicewebflux.journal.TradeJournalWriter;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.metrics.TradeMetrics;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerInformationRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Executes basket orders: several trades of one customer that are applied together or not at all.
+ * <p>
+ * Against the database a basket costs the same number of statements however many legs it has. The customer and all
+ * of their holdings are read once, and every leg is checked in order against that read, so a basket is accepted
+ * exactly when the same trades submitted one after another would be. The net change of the balance and of every
+ * traded holding is then written with one guarded update of the balance, one batched upsert of the holdings and one
+ * batched insert into the trade history, all in one transaction. The guards check the net result again, so a change
+ * made to the customer by someone else since the read rolls the basket back instead of overdrawing it.
+ * <p>
+ * With the memory engine the basket is applied to the position book under the customer's lock. Either way, baskets
+ * run on the customer's trade lane, and a TradeCommittedEvent is published for every leg once the basket has been
+ * committed, with the balance and quantity the leg left behind. With the trade journal enabled, the response waits
+ * until every leg has been journaled.
+ */
+@Service
+public class BasketTradeService {
+
+    private static final Logger log = LoggerFactory.getLogger(BasketTradeService.class);
+
+    private final TradeLaneExecutor tradeLaneExecutor;
+    private final CustomerInformationRepository customerInformationRepository;
+    private final TradeRepository tradeRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PositionBookEngine positionBookEngine;
+    private final ShardRouting shardRouting;
+    private final TradeMetrics tradeMetrics;
+    private final TradeJournalWriter tradeJournalWriter;
+    private final int maxLegs;
+
+    @Autowired
+    public BasketTradeService(TradeLaneExecutor tradeLaneExecutor, CustomerInformationRepository customerInformationRepository,
+                              TradeRepository tradeRepository, TransactionalOperator transactionalOperator, ApplicationEventPublisher eventPublisher,
+                              Optional<PositionBookEngine> positionBookEngine, ShardRouting shardRouting, TradeMetrics tradeMetrics,
+                              BasketTradeProperties properties, Optional<TradeJournalWriter> tradeJournalWriter) {
+        this.tradeLaneExecutor = tradeLaneExecutor;
+        this.customerInformationRepository = customerInformationRepository;
+        this.tradeRepository = tradeRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.positionBookEngine = positionBookEngine.orElse(null);
+        this.shardRouting = shardRouting;
+        this.tradeMetrics = tradeMetrics;
+        this.tradeJournalWriter = tradeJournalWriter.orElse(null);
+        this.maxLegs = properties.maxLegs();
+    }
+
+    /**
+     * Executes all legs of a basket for a customer, or none of them.
+     *
+     * @param customerId the ID of the customer
+     * @param basketTradeRequest the trades of the basket, in order
+     * @return a Mono emitting the BasketTradeResponse once every leg has been applied
+     */
+    public Mono<BasketTradeResponse> trade(Integer customerId, BasketTradeRequest basketTradeRequest) {
+        var legs = basketTradeRequest == null ? null : basketTradeRequest.legs();
+        if (legs == null || legs.isEmpty() || legs.size() > this.maxLegs || !legs.stream().allMatch(BasketTradeService::isComplete)) {
+            return ApplicationExceptions.invalidTradeRequest(customerId);
+        }
+        var basket = this.positionBookEngine != null
+                ? Mono.defer(() -> this.tradeInMemory(customerId, legs))
+                : this.shardRouting.onShardOf(customerId, this.transactionalOperator.transactional(this.tradeInDatabase(customerId, legs)));
+        if (this.tradeJournalWriter != null) {
+            basket = this.tradeJournalWriter.journal(customerId, legs, basket);
+        }
+        return this.tradeLaneExecutor.execute(customerId, this.tradeMetrics.countOutcomes(legs, basket.map(this::commit)));
+    }
+
+    /**
+     * Applies a basket to the in-memory position book, which checks and applies all legs under the customer's lock.
+     *
+     * @param customerId the ID of the customer
+     * @param legs the trades of the basket, in order
+     * @return a Mono emitting the applied basket
+     */
+    private Mono<AppliedBasket> tradeInMemory(Integer customerId, List<StockTradeRequest> legs) {
+        var result = this.positionBookEngine.applyBasket(customerId, legs);
+        return switch (result.outcome()) {
+            case APPLIED -> Mono.just(new AppliedBasket(customerId, legs, result.balances(), result.quantities()));
+            case CUSTOMER_NOT_FOUND -> ApplicationExceptions.customerNotFound(customerId);
+            case INSUFFICIENT_BALANCE -> ApplicationExceptions.insufficientBalance(customerId);
+            case INSUFFICIENT_SHARES -> ApplicationExceptions.insufficientShares(customerId);
+        };
+    }
+
+    /**
+     * Checks a basket against one read of the customer and writes its net effect with three batched statements.
+     * Callers are expected to run it in a transaction, so a failed guard leaves nothing behind.
+     *
+     * @param customerId the ID of the customer
+     * @param legs the trades of the basket, in order
+     * @return a Mono emitting the applied basket
+     */
+    private Mono<AppliedBasket> tradeInDatabase(Integer customerId, List<StockTradeRequest> legs) {
+        return this.tradeMetrics.time(TradeMetrics.Stage.CUSTOMER_LOOKUP, this.customerInformationRepository.findById(customerId))
+                .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId))
+                .flatMap(customer -> check(customer, legs))
+                .flatMap(basket -> this.tradeMetrics.time(TradeMetrics.Stage.BALANCE_UPDATE, this.tradeRepository.changeBalance(customerId, basket.balanceChange()))
+                        .switchIfEmpty(ApplicationExceptions.insufficientBalance(customerId))
+                        .then(this.tradeMetrics.time(TradeMetrics.Stage.HOLDING_UPDATE, this.tradeRepository.changeHoldings(customerId, basket.holdingChanges())))
+                        .filter(changed -> changed == basket.holdingChanges().size())
+                        .switchIfEmpty(ApplicationExceptions.insufficientShares(customerId))
+                        .then(this.tradeMetrics.time(TradeMetrics.Stage.HISTORY, this.tradeRepository.insertTrades(customerId, legs)))
+                        .thenReturn(basket));
+    }
+
+    /**
+     * Checks every leg in order against the state left by the legs before it, starting from the customer as read.
+     *
+     * @param customer the customer and all of their holdings
+     * @param legs the trades of the basket, in order
+     * @return a Mono emitting the basket with the state after every leg, or the rejection of the first leg that does not hold
+     */
+    private static Mono<AppliedBasket> check(CustomerInformation customer, List<StockTradeRequest> legs) {
+        var balance = customer.balance();
+        var held = new EnumMap<Ticker, Integer>(Ticker.class);
+        customer.holdings().forEach(holding -> held.put(holding.ticker(), holding.quantity()));
+        var balances = new int[legs.size()];
+        var quantities = new int[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            var leg = legs.get(i);
+            var quantity = held.getOrDefault(leg.ticker(), 0);
+            switch (leg.action()) {
+                case BUY -> {
+                    if (balance < leg.totalPrice()) {
+                        return ApplicationExceptions.insufficientBalance(customer.id());
+                    }
+                    balance -= leg.totalPrice();
+                    quantity += leg.quantity();
+                }
+                case SELL -> {
+                    if (quantity < leg.quantity()) {
+                        return ApplicationExceptions.insufficientShares(customer.id());
+                    }
+                    balance += leg.totalPrice();
+                    quantity -= leg.quantity();
+                }
+            }
+            held.put(leg.ticker(), quantity);
+            balances[i] = balance;
+            quantities[i] = quantity;
+        }
+        return Mono.just(new AppliedBasket(customer.id(), legs, balances, quantities));
+    }
+
+    /**
+     * Publishes the legs of a committed basket and builds its response.
+     *
+     * @param basket the committed basket
+     * @return the BasketTradeResponse
+     */
+    private BasketTradeResponse commit(AppliedBasket basket) {
+        var legs = basket.legs();
+        var responses = new ArrayList<StockTradeResponse>(legs.size());
+        var holdings = new LinkedHashMap<Ticker, Integer>();
+        for (int i = 0; i < legs.size(); i++) {
+            var leg = legs.get(i);
+            this.eventPublisher.publishEvent(new TradeCommittedEvent(basket.customerId(), leg, basket.balances()[i], basket.quantities()[i]));
+            responses.add(EntityDtoMapper.toStockTradeResponse(leg, basket.customerId(), basket.balances()[i]));
+            holdings.put(leg.ticker(), basket.quantities()[i]);
+        }
+        log.info("Customer {} traded a basket of {} legs", basket.customerId(), legs.size());
+        var balance = basket.balances()[legs.size() - 1];
+        return new BasketTradeResponse(basket.customerId(), responses, balance,
+                holdings.entrySet().stream().map(holding -> new Holding(holding.getKey(), holding.getValue())).toList());
+    }
+
+    private static boolean isComplete(StockTradeRequest leg) {
+        return leg != null && leg.ticker() != null && leg.action() != null && leg.price() != null && leg.quantity() != null;
+    }
+
+    /**
+     * A basket whose legs all hold, with the balance and the quantity of the traded ticker after every leg.
+     */
+    private record AppliedBasket(Integer customerId, List<StockTradeRequest> legs, int[] balances, int[] quantities) {
+
+        /**
+         * @return the net change of the balance over all legs
+         */
+        int balanceChange() {
+            var change = 0;
+            for (var leg : this.legs) {
+                change += switch (leg.action()) {
+                    case BUY -> -leg.totalPrice();
+                    case SELL -> leg.totalPrice();
+                };
+            }
+            return change;
+        }
+
+        /**
+         * @return the net change of the quantity of every traded ticker over all legs
+         */
+        Map<Ticker, Integer> holdingChanges() {
+            var changes = new EnumMap<Ticker, Integer>(Ticker.class);
+            for (var leg : this.legs) {
+                var quantity = switch (leg.action()) {
+                    case BUY -> leg.quantity();
+                    case SELL -> -leg.quantity();
+                };
+                changes.merge(leg.ticker(), quantity, Integer::sum);
+            }
+            return changes;
+        }
+    }
+}
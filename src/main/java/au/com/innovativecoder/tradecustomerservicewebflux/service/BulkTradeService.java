@@ -0,0 +1,67 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.admission.TradeAdmission;
+import au.com.innovativecoder.tradecustomerservicewebflux.advice.ProblemMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.BulkTradeProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class BulkTradeService {
+
+    private final TradeLaneExecutor tradeLaneExecutor;
+    private final ProblemMapper problemMapper;
+    private final BulkTradeProperties properties;
+    private final TradeAdmission tradeAdmission;
+
+    @Autowired
+    public BulkTradeService(TradeLaneExecutor tradeLaneExecutor, ProblemMapper problemMapper, BulkTradeProperties properties,
+                            TradeAdmission tradeAdmission) {
+        this.tradeLaneExecutor = tradeLaneExecutor;
+        this.problemMapper = problemMapper;
+        this.properties = properties;
+        this.tradeAdmission = tradeAdmission;
+    }
+
+    /**
+     * Executes a stream of trades for many customers.
+     * <p>
+     * Customers are hashed onto a fixed number of groups, one per unit of concurrency. Each group executes its
+     * trades one after another, so trades of a customer keep their order, while the groups run in parallel.
+     * Because the number of groups never exceeds the concurrency every group is always drained, and each group
+     * buffers at most {@code prefetch} trades, so memory stays constant however long the stream is.
+     * <p>
+     * Every trade of the stream is admitted on its own, charged to its customer's rate and to the global limit on
+     * trades in flight, so a stream gets no more capacity than the same trades submitted one by one.
+     *
+     * @param requests the stream of trades to execute
+     * @return a Flux emitting one result per trade, either its StockTradeResponse or the problem that rejected it
+     */
+    public Flux<CustomerTradeResult> trade(Flux<CustomerTradeRequest> requests) {
+        var concurrency = this.properties.concurrency();
+        return requests
+                .groupBy(request -> request.customerId() == null ? 0 : Math.floorMod(request.customerId().hashCode(), concurrency), this.properties.prefetch())
+                .flatMap(group -> group.concatMap(this::execute), concurrency);
+    }
+
+    /**
+     * Executes a single trade of the stream, turning a rejection into a result instead of an error.
+     *
+     * @param request the trade to execute
+     * @return a Mono emitting the result of the trade
+     */
+    private Mono<CustomerTradeResult> execute(CustomerTradeRequest request) {
+        var customerId = request.customerId();
+        var trade = request.trade();
+        var response = customerId == null || trade == null || trade.ticker() == null || trade.action() == null
+                || trade.price() == null || trade.quantity() == null
+                ? ApplicationExceptions.<CustomerTradeResult>invalidTradeRequest(customerId)
+                : this.tradeAdmission.admit(customerId, this.tradeLaneExecutor.trade(customerId, trade)).map(CustomerTradeResult::success);
+        return response.onErrorResume(e -> Mono.just(CustomerTradeResult.failure(customerId, this.problemMapper.toProblemDetail(e))));
+    }
+}
@@ -0,0 +1,173 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportRow;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses and validates the lines of a customer import, one line at a time.
+ * <p>
+ * A CSV import starts with a header naming its columns: {@code name} and {@code balance}, plus any ticker whose
+ * column holds the starting quantity of that holding; an empty cell means no holding. Fields may be quoted, with
+ * a doubled quote standing for a quote, but cannot span lines. An NDJSON import has one
+ * {@link CustomerImportRow} per line.
+ */
+final class CustomerImportParser {
+
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * A parsed line: either a valid row or the reason it was rejected.
+     */
+    record ParsedRow(long line, CustomerImportRow row, String error) {
+
+        static ParsedRow valid(long line, CustomerImportRow row) {
+            return new ParsedRow(line, row, null);
+        }
+
+        static ParsedRow invalid(long line, String error) {
+            return new ParsedRow(line, null, error);
+        }
+    }
+
+    private final int nameColumn;
+    private final int balanceColumn;
+    private final Ticker[] tickerColumns;
+
+    private CustomerImportParser(int nameColumn, int balanceColumn, Ticker[] tickerColumns) {
+        this.nameColumn = nameColumn;
+        this.balanceColumn = balanceColumn;
+        this.tickerColumns = tickerColumns;
+    }
+
+    /**
+     * Reads the columns of a CSV import from its header line.
+     *
+     * @throws IllegalArgumentException if a column is unknown or repeated, or name or balance is missing
+     */
+    static CustomerImportParser csvHeader(String header) {
+        var columns = split(stripByteOrderMark(header));
+        var nameColumn = -1;
+        var balanceColumn = -1;
+        var tickerColumns = new Ticker[columns.size()];
+        var seen = new ArrayList<String>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            var column = columns.get(i).trim().toUpperCase(Locale.ROOT);
+            if (seen.contains(column)) {
+                throw new IllegalArgumentException("Column " + column + " is repeated");
+            }
+            seen.add(column);
+            switch (column) {
+                case "NAME" -> nameColumn = i;
+                case "BALANCE" -> balanceColumn = i;
+                default -> {
+                    try {
+                        tickerColumns[i] = Ticker.valueOf(column);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Column " + column + " is neither name, balance nor a ticker");
+                    }
+                }
+            }
+        }
+        if (nameColumn < 0 || balanceColumn < 0) {
+            throw new IllegalArgumentException("Header must have name and balance columns");
+        }
+        return new CustomerImportParser(nameColumn, balanceColumn, tickerColumns);
+    }
+
+    /**
+     * Parses and validates one CSV line against the header.
+     */
+    ParsedRow parseCsv(long line, String text) {
+        var fields = split(text);
+        if (fields.size() != this.tickerColumns.length) {
+            return ParsedRow.invalid(line, "Expected " + this.tickerColumns.length + " fields but found " + fields.size());
+        }
+        try {
+            var holdings = new ArrayList<Holding>();
+            for (int i = 0; i < fields.size(); i++) {
+                if (this.tickerColumns[i] != null && !fields.get(i).isBlank()) {
+                    holdings.add(new Holding(this.tickerColumns[i], Integer.valueOf(fields.get(i).trim())));
+                }
+            }
+            var balance = fields.get(this.balanceColumn).isBlank() ? null : Integer.valueOf(fields.get(this.balanceColumn).trim());
+            return validate(line, new CustomerImportRow(fields.get(this.nameColumn), balance, holdings));
+        } catch (NumberFormatException e) {
+            return ParsedRow.invalid(line, "Invalid number: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses and validates one NDJSON line.
+     */
+    static ParsedRow parseJson(ObjectMapper objectMapper, long line, String text) {
+        try {
+            return validate(line, objectMapper.readValue(stripByteOrderMark(text), CustomerImportRow.class));
+        } catch (JsonProcessingException e) {
+            return ParsedRow.invalid(line, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static ParsedRow validate(long line, CustomerImportRow row) {
+        if (row.name() == null || row.name().isBlank()) {
+            return ParsedRow.invalid(line, "Name is required");
+        }
+        if (row.name().length() > MAX_NAME_LENGTH) {
+            return ParsedRow.invalid(line, "Name is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        if (row.balance() == null || row.balance() < 0) {
+            return ParsedRow.invalid(line, "Balance must be zero or more");
+        }
+        var holdings = row.holdings() == null ? List.<Holding>of() : row.holdings();
+        var tickers = EnumSet.noneOf(Ticker.class);
+        for (var holding : holdings) {
+            if (holding == null || holding.ticker() == null || holding.quantity() == null || holding.quantity() < 0) {
+                return ParsedRow.invalid(line, "Holdings need a ticker and a quantity of zero or more");
+            }
+            if (!tickers.add(holding.ticker())) {
+                return ParsedRow.invalid(line, "Ticker " + holding.ticker() + " is held twice");
+            }
+        }
+        return ParsedRow.valid(line, new CustomerImportRow(row.name(), row.balance(), List.copyOf(holdings)));
+    }
+
+    private static String stripByteOrderMark(String text) {
+        return !text.isEmpty() && text.charAt(0) == BYTE_ORDER_MARK ? text.substring(1) : text;
+    }
+
+    static List<String> split(String line) {
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
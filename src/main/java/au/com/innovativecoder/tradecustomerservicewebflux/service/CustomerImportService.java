@@ -0,0 +1,183 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.CustomerImportProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportRow;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.CustomersImportedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerImportRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class CustomerImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerImportService.class);
+    // the cause is logged; database errors are not for clients to read
+    private static final String BATCH_FAILED = "Batch failed";
+    private static final String JOURNALED = "Customers cannot be imported while trades are journaled, "
+            + "as the trade journal cannot rebuild imported customers on replay";
+
+    /**
+     * The number of rows a batch imported and the lines it rejected, in input order.
+     */
+    private record BatchOutcome(int imported, List<CustomerImportParser.ParsedRow> errors) {
+    }
+
+    private final CustomerImportRepository customerImportRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final CustomerImportProperties properties;
+    private final ShardRouting shardRouting;
+    private final boolean journaled;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    @Autowired
+    public CustomerImportService(CustomerImportRepository customerImportRepository, TransactionalOperator transactionalOperator,
+                                 ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper, CustomerImportProperties properties,
+                                 ShardRouting shardRouting, TradeJournalProperties tradeJournalProperties) {
+        this.customerImportRepository = customerImportRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+        this.journaled = tradeJournalProperties.enabled();
+    }
+
+    /**
+     * Imports customers from CSV lines, the first of which is the header. Refused with 409 Conflict while trades are
+     * journaled.
+     *
+     * @param lines the lines of the CSV body, as they arrive
+     * @return a Flux emitting the errors of rejected lines and the progress after every batch
+     */
+    public Flux<CustomerImportResult> importCsv(Flux<String> lines) {
+        if (this.journaled) {
+            return refuse();
+        }
+        return lines.index()
+                .switchOnFirst((first, rest) -> {
+                    if (!first.hasValue()) {
+                        return rest.thenMany(Flux.<CustomerImportResult>empty());
+                    }
+                    CustomerImportParser parser;
+                    try {
+                        parser = CustomerImportParser.csvHeader(first.get().getT2());
+                    } catch (IllegalArgumentException e) {
+                        return Flux.just(CustomerImportResult.failure(1, e.getMessage()));
+                    }
+                    return this.importParsed(rest.skip(1)
+                            .filter(line -> !line.getT2().isBlank())
+                            .map(line -> parser.parseCsv(line.getT1() + 1, line.getT2())));
+                });
+    }
+
+    /**
+     * Imports customers from NDJSON lines, one CustomerImportRow per line. Refused with 409 Conflict while trades are
+     * journaled.
+     *
+     * @param lines the lines of the NDJSON body, as they arrive
+     * @return a Flux emitting the errors of rejected lines and the progress after every batch
+     */
+    public Flux<CustomerImportResult> importNdjson(Flux<String> lines) {
+        if (this.journaled) {
+            return refuse();
+        }
+        return this.importParsed(lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> CustomerImportParser.parseJson(this.objectMapper, line.getT1() + 1, line.getT2())));
+    }
+
+    /**
+     * Inserts parsed rows in batches, several batches at a time. Results are emitted in the order of the input,
+     * so the running totals only ever grow. Upstream demand is bounded by the batches in flight, so memory stays
+     * constant however large the body is.
+     *
+     * @param rows the parsed lines
+     * @return a Flux emitting the errors of every batch followed by the totals so far
+     */
+    private Flux<CustomerImportResult> importParsed(Flux<CustomerImportParser.ParsedRow> rows) {
+        return Flux.defer(() -> {
+            var totals = new long[2];
+            return rows.buffer(this.properties.batchSize())
+                    .flatMapSequential(this::insertBatch, this.properties.parallelism(), 1)
+                    .concatMapIterable(outcome -> {
+                        totals[0] += outcome.imported();
+                        totals[1] += outcome.errors().size();
+                        var results = new ArrayList<CustomerImportResult>(outcome.errors().size() + 1);
+                        outcome.errors().forEach(error -> results.add(CustomerImportResult.failure(error.line(), error.error())));
+                        results.add(CustomerImportResult.progress(totals[0], totals[1]));
+                        return results;
+                    });
+        });
+    }
+
+    /**
+     * Inserts the valid rows of a batch in one transaction. When the transaction fails, every one of its rows is
+     * reported as failed and the cause is logged. New customers have no shard yet, so batches take turns over the shards, each of
+     * which hands out ids that route back to it.
+     *
+     * @param batch the parsed lines of the batch
+     * @return a Mono emitting the BatchOutcome
+     */
+    private Mono<BatchOutcome> insertBatch(List<CustomerImportParser.ParsedRow> batch) {
+        var errors = new ArrayList<CustomerImportParser.ParsedRow>();
+        var valid = new ArrayList<CustomerImportParser.ParsedRow>(batch.size());
+        for (var row : batch) {
+            (row.error() == null ? valid : errors).add(row);
+        }
+        if (valid.isEmpty()) {
+            return Mono.just(new BatchOutcome(0, errors));
+        }
+        var rows = valid.stream().map(CustomerImportParser.ParsedRow::row).toList();
+        // the transactional Mono emits once the transaction has been committed
+        var shard = Math.floorMod(this.nextShard.getAndIncrement(), this.shardRouting.count());
+        return this.shardRouting.onShard(shard, this.transactionalOperator.transactional(this.customerImportRepository.insert(rows)))
+                .map(ids -> {
+                    this.eventPublisher.publishEvent(new CustomersImportedEvent(toCustomerInformation(rows, ids)));
+                    return new BatchOutcome(rows.size(), errors);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to import a batch of {} customers, lines {} to {}", rows.size(), batch.get(0).line(), batch.get(batch.size() - 1).line(), e);
+                    var failed = new ArrayList<CustomerImportParser.ParsedRow>(batch.size());
+                    for (var row : batch) {
+                        failed.add(row.error() == null ? CustomerImportParser.ParsedRow.invalid(row.line(), BATCH_FAILED) : row);
+                    }
+                    return Mono.just(new BatchOutcome(0, failed));
+                });
+    }
+
+    /**
+     * Rejects an import while trades are journaled. The journal only holds trades, so a replay on a later startup
+     * would find the trades of imported customers without the customers.
+     */
+    private static Flux<CustomerImportResult> refuse() {
+        return Flux.error(() -> new ResponseStatusException(HttpStatus.CONFLICT, JOURNALED));
+    }
+
+    private static List<CustomerInformation> toCustomerInformation(List<CustomerImportRow> rows, List<Integer> ids) {
+        var customers = new ArrayList<CustomerInformation>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            var row = rows.get(i);
+            customers.add(new CustomerInformation(ids.get(i), row.name(), row.balance(), row.holdings()));
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,75 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.CustomerCacheProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CacheStatistics;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of CustomerInformation.
+ * <p>
+ * Entries are held as futures, so concurrent misses for the same customer share a single in-flight load.
+ * Committed trades invalidate the entry of their customer, including a load that is still in flight,
+ * so no read started after a commit can be served the balance from before it.
+ */
+@Component
+public class CustomerInformationCache {
+
+    private final boolean enabled;
+    private final AsyncCache<Integer, CustomerInformation> cache;
+
+    @Autowired
+    public CustomerInformationCache(CustomerCacheProperties properties) {
+        this.enabled = properties.enabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.timeToLive())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns the cached customer information, loading it if absent.
+     *
+     * @param customerId the ID of the customer
+     * @param loader loads the customer information from the database on a miss
+     * @return a Mono emitting the CustomerInformation
+     */
+    public Mono<CustomerInformation> get(Integer customerId, Function<Integer, Mono<CustomerInformation>> loader) {
+        if (!this.enabled) {
+            return loader.apply(customerId);
+        }
+        // the shared load must not be cancelled when one of the waiting subscribers goes away
+        return Mono.fromFuture(() -> this.cache.get(customerId, (id, executor) -> loader.apply(id).toFuture()), true);
+    }
+
+    /**
+     * Drops the cached information of a customer once one of their trades has been committed.
+     *
+     * @param event the committed trade
+     */
+    @EventListener
+    public void onTradeCommitted(TradeCommittedEvent event) {
+        this.cache.synchronous().invalidate(event.customerId());
+    }
+
+    public CacheStatistics statistics() {
+        var stats = this.cache.synchronous().stats();
+        return new CacheStatistics(
+                this.cache.synchronous().estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadFailureCount(),
+                stats.evictionCount()
+        );
+    }
+}
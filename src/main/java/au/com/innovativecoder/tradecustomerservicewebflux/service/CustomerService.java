@@ -1,36 +1,144 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.service;
 
+import au.com.innovativecoder.tradecustomerservicewebflux.advice.ProblemMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.CustomerExportProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.CustomerLookupProperties;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
-import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
 import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
-import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
-import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
-import au.com.innovativecoder.tradecustomerservicewebflux.repository.PortfolioItemRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerInformationRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 @Service
 public class CustomerService {
 
-    private final CustomerRepository customerRepository;
-    private final PortfolioItemRepository portfolioItemRepository;
+    private final CustomerInformationRepository customerInformationRepository;
+    private final CustomerInformationCache customerInformationCache;
+    private final ProblemMapper problemMapper;
+    private final CustomerLookupProperties lookupProperties;
+    private final CustomerExportProperties exportProperties;
+    private final PositionBookEngine positionBookEngine;
+    private final ShardRouting shardRouting;
+    private final JdbcTradeBackend jdbcTradeBackend;
 
     @Autowired
-    public CustomerService(CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository) {
-        this.customerRepository = customerRepository;
-        this.portfolioItemRepository = portfolioItemRepository;
+    public CustomerService(CustomerInformationRepository customerInformationRepository, CustomerInformationCache customerInformationCache,
+                           ProblemMapper problemMapper, CustomerLookupProperties lookupProperties,
+                           CustomerExportProperties exportProperties, Optional<PositionBookEngine> positionBookEngine, ShardRouting shardRouting,
+                           Optional<JdbcTradeBackend> jdbcTradeBackend) {
+        this.customerInformationRepository = customerInformationRepository;
+        this.customerInformationCache = customerInformationCache;
+        this.problemMapper = problemMapper;
+        this.lookupProperties = lookupProperties;
+        this.exportProperties = exportProperties;
+        this.positionBookEngine = positionBookEngine.orElse(null);
+        this.shardRouting = shardRouting;
+        this.jdbcTradeBackend = jdbcTradeBackend.orElse(null);
     }
 
     public Mono<CustomerInformation> getCustomerInformation(Integer customerId) {
-        return this.customerRepository.findById(customerId)
-                .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId))
-                .flatMap(this::buildCustomerInformation);
+        // the position book is authoritative and already in memory, so it is read directly instead of the database
+        if (this.positionBookEngine != null) {
+            return Mono.fromSupplier(() -> this.positionBookEngine.customerInformation(customerId))
+                    .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId));
+        }
+        return this.customerInformationCache.get(customerId, this::loadCustomerInformation);
+    }
+
+    /**
+     * Looks up many customers with batched IN list queries, bypassing the cache.
+     * Ids are processed in chunks of the configured size and results keep the order of the requested ids.
+     * With several shards, every chunk queries the shards holding its ids at the same time.
+     *
+     * @param customerIds the IDs of the customers
+     * @return a Flux emitting one CustomerLookupResult per requested ID, with a problem for unknown IDs
+     */
+    public Flux<CustomerLookupResult> lookupCustomerInformation(Flux<Integer> customerIds) {
+        return customerIds
+                .buffer(this.lookupProperties.chunkSize())
+                .flatMapSequential(this::lookupChunk, this.lookupProperties.concurrency());
+    }
+
+    /**
+     * Streams every customer in ID order, one keyset page at a time. The next page is only read once the subscriber
+     * has taken the previous one, so at most a couple of pages per shard are held however large the book is.
+     * With several shards, the pages of all shards are read side by side and merged by ID.
+     * With the memory engine, customers are paged from the database but their state is read from the position book,
+     * which may be ahead of the database by one flush.
+     *
+     * @return a Flux emitting the CustomerInformation of every customer, ordered by ID
+     */
+    public Flux<CustomerInformation> exportCustomers() {
+        var customers = this.shardRouting.sharded() ? this.exportShards() : this.exportShard();
+        if (this.positionBookEngine != null) {
+            return customers.mapNotNull(customer -> this.positionBookEngine.customerInformation(customer.id()));
+        }
+        return customers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flux<CustomerInformation> exportShards() {
+        var shards = IntStream.range(0, this.shardRouting.count())
+                .mapToObj(shard -> this.shardRouting.onShard(shard, this.exportShard()))
+                .toArray(Flux[]::new);
+        return Flux.mergeComparing(Comparator.comparing(CustomerInformation::id), (Flux<CustomerInformation>[]) shards);
+    }
+
+    private Flux<CustomerInformation> exportShard() {
+        var pageSize = this.exportProperties.pageSize();
+        return this.exportPage(0)
+                .expand(page -> page.size() < pageSize ? Mono.empty() : this.exportPage(page.get(page.size() - 1).id()))
+                .concatMapIterable(Function.identity(), 1);
+    }
+
+    private Mono<List<CustomerInformation>> exportPage(int after) {
+        return this.customerInformationRepository.findPageAfter(after, this.exportProperties.pageSize()).collectList();
+    }
+
+    private Flux<CustomerLookupResult> lookupChunk(List<Integer> customerIds) {
+        var customers = this.positionBookEngine != null
+                ? Flux.fromIterable(new LinkedHashSet<>(customerIds)).mapNotNull(this.positionBookEngine::customerInformation)
+                : this.findAllById(customerIds);
+        return customers
+                .collect(Collectors.toMap(CustomerInformation::id, Function.identity(), (a, b) -> a, HashMap::new))
+                .flatMapIterable(found -> customerIds.stream()
+                        .map(id -> found.containsKey(id)
+                                ? CustomerLookupResult.found(found.get(id))
+                                : CustomerLookupResult.notFound(id, this.problemMapper.toProblemDetail(new CustomerNotFoundException(id))))
+                        .toList());
+    }
+
+    private Flux<CustomerInformation> findAllById(List<Integer> customerIds) {
+        if (this.jdbcTradeBackend != null) {
+            return this.jdbcTradeBackend.customerInformation(new LinkedHashSet<>(customerIds));
+        }
+        if (!this.shardRouting.sharded()) {
+            return this.customerInformationRepository.findAllById(new LinkedHashSet<>(customerIds));
+        }
+        var shards = this.shardRouting.partition(new LinkedHashSet<>(customerIds), Integer::intValue);
+        return Flux.fromIterable(shards.entrySet())
+                .flatMap(shard -> this.shardRouting.onShard(shard.getKey(), this.customerInformationRepository.findAllById(shard.getValue())), shards.size());
     }
 
-    private Mono<CustomerInformation> buildCustomerInformation(Customer customer) {
-        return this.portfolioItemRepository.findAllByCustomerId(customer.getId())
-                .collectList()
-                .map(list -> EntityDtoMapper.toCustomerInformation(customer, list));
+    private Mono<CustomerInformation> loadCustomerInformation(Integer customerId) {
+        var customer = this.jdbcTradeBackend != null
+                ? this.jdbcTradeBackend.customerInformation(customerId)
+                : this.shardRouting.onShardOf(customerId, this.customerInformationRepository.findById(customerId));
+        return customer.switchIfEmpty(ApplicationExceptions.customerNotFound(customerId));
     }
 }
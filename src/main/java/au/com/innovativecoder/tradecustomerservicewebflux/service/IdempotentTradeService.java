@@ -0,0 +1,117 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.IdempotencyProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.IdempotencyKeyRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.IdempotencyKeyRepository.IdempotentTrade;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Executes each Idempotency-Key of a customer at most once.
+ * <p>
+ * Keys are held in a bounded cache that expires them a fixed window after their trade completed. Entries are
+ * futures, so a duplicate arriving while the original is still executing joins it rather than running again, and
+ * repeats after it completed get the stored response without touching the database. Failed trades are not
+ * remembered, so a retry after a rejection or an overloaded lane is executed again. Reusing a key for a different
+ * trade is rejected.
+ * <p>
+ * With persistent keys, a key missing from the cache is looked up in the {@code idempotency_key} table first,
+ * and a concurrent execution on another instance loses at commit and answers with the winner's response. Keys are
+ * recorded in the trade's transaction, so persistent keys need a trade engine that writes trades in transactions;
+ * the memory engine does not, and the combination is rejected on startup.
+ */
+@Service
+public class IdempotentTradeService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentTradeService.class);
+
+    private final TradeLaneExecutor tradeLaneExecutor;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties properties;
+    private final ShardRouting shardRouting;
+    private final AsyncCache<Key, IdempotentTrade> keys;
+    private final Disposable purger;
+
+    @Autowired
+    public IdempotentTradeService(TradeLaneExecutor tradeLaneExecutor, IdempotencyKeyRepository idempotencyKeyRepository, IdempotencyProperties properties,
+                                  ShardRouting shardRouting, TradeProperties tradeProperties) {
+        if (properties.persistent() && tradeProperties.engine() == TradeProperties.Engine.MEMORY) {
+            // the position book writes balances behind and never records keys, so none would survive a restart
+            throw new IllegalStateException("trade.idempotency.persistent is not supported by the memory trade engine");
+        }
+        this.tradeLaneExecutor = tradeLaneExecutor;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.window())
+                .buildAsync();
+        this.purger = properties.persistent()
+                ? Flux.interval(properties.window())
+                        .concatMap(tick -> this.shardRouting.onEveryShard(shard -> this.idempotencyKeyRepository.deleteOlderThan(LocalDateTime.now().minus(properties.window())))
+                                .onErrorResume(e -> {
+                                    log.warn("Failed to purge expired idempotency keys", e);
+                                    return Mono.empty();
+                                }))
+                        .subscribe()
+                : null;
+    }
+
+    /**
+     * Executes a trade unless a trade with the same key has already been executed for the customer.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @param idempotencyKey the key the client submitted the trade with, or null to always execute it
+     * @return a Mono emitting the StockTradeResponse of the first execution of the key
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return this.tradeLaneExecutor.trade(customerId, stockTradeRequest);
+        }
+        var key = new Key(customerId, idempotencyKey);
+        // the first execution must not be cancelled when the caller that started it goes away
+        return Mono.fromFuture(() -> this.keys.get(key, (k, executor) -> this.execute(customerId, stockTradeRequest, idempotencyKey).toFuture()), true)
+                .flatMap(trade -> trade.request().equals(stockTradeRequest)
+                        ? Mono.just(trade.response())
+                        : ApplicationExceptions.idempotencyKeyReused(customerId));
+    }
+
+    private Mono<IdempotentTrade> execute(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        var execution = this.tradeLaneExecutor.trade(customerId, stockTradeRequest, idempotencyKey)
+                .map(response -> new IdempotentTrade(stockTradeRequest, response));
+        if (!this.properties.persistent()) {
+            return execution;
+        }
+        return this.shardRouting.onShardOf(customerId, this.idempotencyKeyRepository.find(customerId, idempotencyKey))
+                .switchIfEmpty(execution.onErrorResume(DataIntegrityViolationException.class, e -> this.shardRouting.onShardOf(customerId, this.idempotencyKeyRepository.find(customerId, idempotencyKey))
+                        .switchIfEmpty(Mono.error(e))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.purger != null) {
+            this.purger.dispose();
+        }
+    }
+
+    private record Key(Integer customerId, String idempotencyKey) {
+    }
+}
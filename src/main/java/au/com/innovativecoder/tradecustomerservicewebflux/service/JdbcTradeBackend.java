@@ -0,0 +1,156 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.IdempotencyProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.metrics.TradeMetrics;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.JdbcTradeRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Executes trades and customer reads with blocking JDBC, each on a virtual thread of its own, for comparison with
+ * the R2DBC path of the TradeService and CustomerService. Trades run the same guarded statements as the conditional
+ * write path in one JDBC transaction, are rejected with the same exceptions and publish the same TradeCommittedEvent
+ * once committed, so callers cannot tell the backends apart. Their statements are timed under the same stages of
+ * the TradeMetrics, so the backends can be compared stage by stage.
+ */
+@Service
+@ConditionalOnProperty(name = "trade.backend", havingValue = "jdbc")
+public class JdbcTradeBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcTradeBackend.class);
+
+    private final JdbcTradeRepository jdbcTradeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler scheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TradeMetrics tradeMetrics;
+    private final boolean persistentIdempotencyKeys;
+
+    @Autowired
+    public JdbcTradeBackend(JdbcTradeRepository jdbcTradeRepository, @Qualifier("jdbcTransactionTemplate") TransactionTemplate transactionTemplate,
+                            @Qualifier("jdbcScheduler") Scheduler scheduler, ApplicationEventPublisher eventPublisher,
+                            TradeMetrics tradeMetrics, IdempotencyProperties idempotencyProperties, ShardRouting shardRouting) {
+        if (shardRouting.sharded()) {
+            throw new IllegalStateException("The JDBC backend does not support more than one database shard");
+        }
+        this.jdbcTradeRepository = jdbcTradeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+        this.eventPublisher = eventPublisher;
+        this.tradeMetrics = tradeMetrics;
+        this.persistentIdempotencyKeys = idempotencyProperties.persistent();
+    }
+
+    /**
+     * Applies a trade in its own JDBC transaction, recording its idempotency key in the same transaction when keys
+     * are persistent.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @param idempotencyKey the key the trade was submitted with, or null
+     * @return a Mono emitting the StockTradeResponse once the trade has been committed
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        return Mono.fromCallable(() -> {
+                    var event = this.transactionTemplate.execute(status -> this.applyTrade(customerId, stockTradeRequest, idempotencyKey));
+                    this.eventPublisher.publishEvent(event);
+                    return EntityDtoMapper.toStockTradeResponse(stockTradeRequest, customerId, event.balance());
+                })
+                .subscribeOn(this.scheduler);
+    }
+
+    /**
+     * @param customerId the ID of the customer
+     * @return a Mono emitting the CustomerInformation, or empty if the customer does not exist
+     */
+    public Mono<CustomerInformation> customerInformation(Integer customerId) {
+        return Mono.fromCallable(() -> this.jdbcTradeRepository.findCustomerInformation(customerId).orElse(null))
+                .subscribeOn(this.scheduler);
+    }
+
+    /**
+     * @param customerIds the IDs of the customers; callers are expected to bound the size of the collection
+     * @return a Flux emitting the CustomerInformation of every existing customer, ordered by ID
+     */
+    public Flux<CustomerInformation> customerInformation(Collection<Integer> customerIds) {
+        return Mono.fromCallable(() -> this.jdbcTradeRepository.findAllCustomerInformation(customerIds))
+                .subscribeOn(this.scheduler)
+                .flatMapIterable(customers -> customers);
+    }
+
+    private TradeCommittedEvent applyTrade(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        int balance;
+        int quantity;
+        switch (stockTradeRequest.action()) {
+            case BUY -> {
+                balance = this.time(TradeMetrics.Stage.BALANCE_UPDATE, () -> this.jdbcTradeRepository.debitBalance(customerId, stockTradeRequest.totalPrice()))
+                        .orElseThrow(() -> this.rejection(customerId, new InsufficientBalanceException(customerId)));
+                log.info("Customer {} buying {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price());
+                quantity = this.time(TradeMetrics.Stage.HOLDING_UPDATE,
+                        () -> this.jdbcTradeRepository.addShares(customerId, stockTradeRequest.ticker(), stockTradeRequest.quantity()));
+            }
+            case SELL -> {
+                quantity = this.time(TradeMetrics.Stage.HOLDING_UPDATE,
+                                () -> this.jdbcTradeRepository.removeShares(customerId, stockTradeRequest.ticker(), stockTradeRequest.quantity()))
+                        .orElseThrow(() -> this.rejection(customerId, new InsufficientSharesException(customerId)));
+                log.info("Customer {} selling {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price());
+                balance = this.time(TradeMetrics.Stage.BALANCE_UPDATE, () -> this.jdbcTradeRepository.creditBalance(customerId, stockTradeRequest.totalPrice()))
+                        .orElseThrow(() -> new CustomerNotFoundException(customerId));
+            }
+            default -> throw new IllegalArgumentException("Unknown action " + stockTradeRequest.action());
+        }
+        this.time(TradeMetrics.Stage.HISTORY, () -> this.jdbcTradeRepository.insertTrade(customerId, stockTradeRequest));
+        if (idempotencyKey != null && this.persistentIdempotencyKeys) {
+            this.jdbcTradeRepository.insertIdempotencyKey(customerId, idempotencyKey, stockTradeRequest, balance);
+        }
+        return new TradeCommittedEvent(customerId, stockTradeRequest, balance, quantity);
+    }
+
+    /**
+     * Runs a blocking statement, recording its time under a stage whether it succeeds or fails, like the timed stages
+     * of the R2DBC path.
+     */
+    private <T> T time(TradeMetrics.Stage stage, Supplier<T> statement) {
+        var start = System.nanoTime();
+        try {
+            return statement.get();
+        } finally {
+            this.tradeMetrics.recordStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    private void time(TradeMetrics.Stage stage, Runnable statement) {
+        this.time(stage, () -> {
+            statement.run();
+            return null;
+        });
+    }
+
+    /**
+     * Resolves why a guarded statement affected no rows. Only rejected trades pay for this extra lookup.
+     */
+    private RuntimeException rejection(Integer customerId, RuntimeException rejection) {
+        return this.jdbcTradeRepository.existsById(customerId) ? rejection : new CustomerNotFoundException(customerId);
+    }
+}
@@ -0,0 +1,111 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.PortfolioUpdate;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Multicasts committed portfolio changes to the subscribers of each customer.
+ * <p>
+ * A channel is created when the first subscriber of a customer arrives and dropped when the last one leaves,
+ * so idle customers cost nothing. Every subscriber conflates the updates it has not consumed yet per ticker: an
+ * update replaces the pending one of the same ticker and moves to the back, so a slow consumer still receives the
+ * latest holding of every ticker that changed, the last update it receives carries the latest balance, and the
+ * memory held for it is bounded by one update per ticker.
+ */
+@Component
+public class PortfolioUpdateStreams {
+
+    private final ConcurrentHashMap<Integer, List<ConflatingSubscriber>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Streams the portfolio changes of a customer from now on.
+     *
+     * @param customerId the ID of the customer
+     * @return a Flux emitting a PortfolioUpdate for every trade committed for the customer, conflated per ticker
+     * while the subscriber is not requesting
+     */
+    public Flux<PortfolioUpdate> stream(Integer customerId) {
+        return Flux.create(sink -> {
+            var subscriber = new ConflatingSubscriber(sink);
+            // joining and leaving happen inside compute, so they are atomic per customer
+            this.channels.compute(customerId, (id, existing) -> {
+                var subscribers = existing == null ? new CopyOnWriteArrayList<ConflatingSubscriber>() : existing;
+                subscribers.add(subscriber);
+                return subscribers;
+            });
+            sink.onRequest(n -> subscriber.drain());
+            sink.onDispose(() -> this.channels.computeIfPresent(customerId, (id, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            }));
+        });
+    }
+
+    @EventListener
+    public void onTradeCommitted(TradeCommittedEvent event) {
+        var subscribers = this.channels.get(event.customerId());
+        if (subscribers == null) {
+            return;
+        }
+        var update = new PortfolioUpdate(event.customerId(), event.balance(), new Holding(event.request().ticker(), event.quantity()));
+        for (var subscriber : subscribers) {
+            subscriber.offer(update);
+        }
+    }
+
+    public int activeChannels() {
+        return this.channels.size();
+    }
+
+    /**
+     * The updates a subscriber has not consumed yet, at most one per ticker in the order they last changed.
+     * Commits of the same customer may be published from different threads, so offering and draining are serialized
+     * by the subscriber's monitor.
+     */
+    private static final class ConflatingSubscriber {
+
+        private final FluxSink<PortfolioUpdate> sink;
+        private final LinkedHashMap<Ticker, PortfolioUpdate> pending = new LinkedHashMap<>();
+        private boolean draining;
+
+        private ConflatingSubscriber(FluxSink<PortfolioUpdate> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void offer(PortfolioUpdate update) {
+            var ticker = update.holding().ticker();
+            this.pending.remove(ticker);
+            this.pending.put(ticker, update);
+            drain();
+        }
+
+        synchronized void drain() {
+            // a request made from within onNext re-enters here; the loop below already picks it up
+            if (this.draining) {
+                return;
+            }
+            this.draining = true;
+            try {
+                while (!this.pending.isEmpty() && this.sink.requestedFromDownstream() > 0 && !this.sink.isCancelled()) {
+                    var next = this.pending.values().iterator();
+                    var update = next.next();
+                    next.remove();
+                    this.sink.next(update);
+                }
+            } finally {
+                this.draining = false;
+            }
+        }
+    }
+}
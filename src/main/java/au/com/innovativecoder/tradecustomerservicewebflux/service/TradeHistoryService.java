@@ -0,0 +1,52 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeHistoryProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeHistoryRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+@Service
+public class TradeHistoryService {
+
+    private final TradeHistoryRepository tradeHistoryRepository;
+    private final CustomerRepository customerRepository;
+    private final TradeHistoryProperties properties;
+    private final ShardRouting shardRouting;
+
+    @Autowired
+    public TradeHistoryService(TradeHistoryRepository tradeHistoryRepository, CustomerRepository customerRepository, TradeHistoryProperties properties,
+                               ShardRouting shardRouting) {
+        this.tradeHistoryRepository = tradeHistoryRepository;
+        this.customerRepository = customerRepository;
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+    }
+
+    /**
+     * Streams one page of a customer's trades, oldest first.
+     *
+     * @param customerId the ID of the customer
+     * @param after the ID of the last trade of the previous page, or null for the first page
+     * @param limit the maximum number of trades on the page, or null for the default page size
+     * @param ticker only return trades of this ticker, or null for all tickers
+     * @return a Flux emitting the trades of the page as they are read
+     */
+    public Flux<TradeHistoryItem> getTrades(Integer customerId, Long after, Integer limit, Ticker ticker) {
+        var from = after == null ? 0L : after;
+        var size = limit == null ? this.properties.defaultPageSize() : Math.max(1, Math.min(limit, this.properties.maxPageSize()));
+        var page = ticker == null
+                ? this.tradeHistoryRepository.findPage(customerId, from, size)
+                : this.tradeHistoryRepository.findPage(customerId, ticker, from, size);
+        // only an empty page pays for telling an unknown customer apart from the end of the history
+        return this.shardRouting.onShardOf(customerId, page.map(EntityDtoMapper::toTradeHistoryItem)
+                .switchIfEmpty(this.customerRepository.existsById(customerId)
+                        .flatMapMany(exists -> exists ? Flux.empty() : ApplicationExceptions.<TradeHistoryItem>customerNotFound(customerId).flux())));
+    }
+}
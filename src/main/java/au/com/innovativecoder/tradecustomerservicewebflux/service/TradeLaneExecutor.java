@@ -0,0 +1,193 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeLaneProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes every trade of a customer through an ordered execution lane.
+ * <p>
+ * Customers are hashed onto a fixed set of lanes. Each lane is a bounded queue drained one trade at a time,
+ * so trades of the same customer never overlap and are applied in submission order, while trades of customers
+ * on different lanes run in parallel. When a lane holds {@code capacity} queued trades, further trades are rejected
+ * instead of queued without bound. A basket of trades takes its turn on the lane as one unit.
+ */
+@Service
+public class TradeLaneExecutor {
+
+    private final TradeService tradeService;
+    private final boolean enabled;
+    private final int capacity;
+    private final Lane[] lanes;
+
+    @Autowired
+    public TradeLaneExecutor(TradeService tradeService, TradeLaneProperties properties) {
+        this.tradeService = tradeService;
+        this.enabled = properties.enabled();
+        this.capacity = properties.capacity();
+        this.lanes = new Lane[this.enabled ? properties.resolvedCount() : 0];
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * Submits a trade to the lane owning the customer.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse once the trade has been executed on its lane
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest) {
+        return this.trade(customerId, stockTradeRequest, null);
+    }
+
+    /**
+     * Submits a trade carrying an Idempotency-Key to the lane owning the customer.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @param idempotencyKey the key the trade was submitted with, or null
+     * @return a Mono emitting the StockTradeResponse once the trade has been executed on its lane
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        if (!this.enabled) {
+            return this.tradeService.trade(customerId, stockTradeRequest, idempotencyKey);
+        }
+        return this.execute(customerId, this.tradeService.trade(customerId, stockTradeRequest, idempotencyKey));
+    }
+
+    /**
+     * Runs work that changes a customer's positions on the lane owning the customer, after all trades of the
+     * customer submitted before it. Without lanes the work runs directly. Work whose caller cancels while it is
+     * still queued is skipped; work that has started is left to finish, so a trade is never cut off half-way.
+     *
+     * @param customerId the ID of the customer
+     * @param work the work to run, subscribed to once its turn has come
+     * @return a Mono emitting the result of the work once it has run on its lane
+     */
+    public <T> Mono<T> execute(Integer customerId, Mono<T> work) {
+        if (!this.enabled) {
+            return work;
+        }
+        return Mono.defer(() -> {
+            var lane = this.lanes[Math.floorMod(customerId.hashCode(), this.lanes.length)];
+            if (lane.queued.incrementAndGet() > this.capacity) {
+                lane.queued.decrementAndGet();
+                return ApplicationExceptions.tradeLaneFull(customerId);
+            }
+            var task = new LaneTask<>(work);
+            if (!lane.offer(task)) {
+                // only after shutdown
+                lane.queued.decrementAndGet();
+                return ApplicationExceptions.tradeLaneFull(customerId);
+            }
+            return task.result.asMono().doOnCancel(task::cancel);
+        });
+    }
+
+    /**
+     * Stops starting queued work. Work that has already started is left to finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (var lane : this.lanes) {
+            lane.shutdown = true;
+        }
+    }
+
+    /**
+     * A queue of tasks drained one at a time. Callers on any thread offer to the multi-producer queue without
+     * waiting for each other, and the number of queued tasks is bounded separately, since the queue itself is not.
+     * <p>
+     * Whoever raises the work-in-progress counter from zero drains the lane: it starts the next task unless one is
+     * still running, and loops for as long as other threads offered a task or a running task completed meanwhile.
+     * A completing task re-enters the drain, so the next task starts on the thread that finished the previous one,
+     * and a task completing synchronously is picked up by the loop instead of growing the stack.
+     */
+    private static final class Lane {
+
+        private final Queue<LaneTask<?>> tasks = Queues.<LaneTask<?>>unboundedMultiproducer().get();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean running;
+        private volatile boolean shutdown;
+
+        /**
+         * @return whether the task was queued, which it is unless the executor has shut down
+         */
+        boolean offer(LaneTask<?> task) {
+            if (this.shutdown) {
+                return false;
+            }
+            this.tasks.offer(task);
+            this.drain();
+            return true;
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+            var missed = 1;
+            do {
+                if (!this.running && !this.shutdown) {
+                    var task = this.tasks.poll();
+                    if (task != null) {
+                        this.queued.decrementAndGet();
+                        this.running = true;
+                        task.run().subscribe(null, e -> this.completed(), this::completed);
+                    }
+                }
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void completed() {
+            this.running = false;
+            this.drain();
+        }
+    }
+
+    private static final class LaneTask<T> {
+
+        private final Mono<T> work;
+        private final Sinks.One<T> result = Sinks.one();
+        private volatile boolean cancelled;
+
+        private LaneTask(Mono<T> work) {
+            this.work = work;
+        }
+
+        void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Runs the queued work, unless its caller has gone, and hands its outcome to the waiting caller.
+         * Errors are delivered to the caller only, so a rejected trade never terminates the lane.
+         *
+         * @return a Mono completing once the work has finished
+         */
+        Mono<Void> run() {
+            if (this.cancelled) {
+                return Mono.empty();
+            }
+            return this.work
+                    .doOnSuccess(this.result::tryEmitValue)
+                    .doOnError(this.result::tryEmitError)
+                    .onErrorResume(e -> Mono.empty())
+                    .then();
+        }
+    }
+}
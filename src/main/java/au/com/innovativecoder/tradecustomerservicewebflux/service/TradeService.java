@@ -1,43 +1,158 @@
 package au.com.innovativecoder.tradecustomerservicewebflux.service;
 
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.IdempotencyProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeProperties;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
 import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
 import au.com.innovativecoder.tradecustomerservicewebflux.entity.PortfolioItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
 import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationExceptions;
+import au.com.innovativecoder.tradecustomerservicewebflux.journal.TradeJournalWriter;
 import au.com.innovativecoder.tradecustomerservicewebflux.mapper.EntityDtoMapper;
+import au.com.innovativecoder.tradecustomerservicewebflux.metrics.TradeMetrics;
 import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.IdempotencyKeyRepository;
 import au.com.innovativecoder.tradecustomerservicewebflux.repository.PortfolioItemRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeHistoryRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.TradeRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Optional;
+
 @Service
 public class TradeService {
 
     private static final Logger log = LoggerFactory.getLogger(TradeService.class);
+    private static final String IDEMPOTENCY_KEY = TradeService.class.getName() + ".idempotencyKey";
 
     private final CustomerRepository customerRepository;
     private final PortfolioItemRepository portfolioItemRepository;
+    private final TradeRepository tradeRepository;
+    private final TradeHistoryRepository tradeHistoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionalOperator transactionalOperator;
+    private final PositionBookEngine positionBookEngine;
+    private final TradeProperties.WritePath writePath;
+    private final TradeMetrics tradeMetrics;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ShardRouting shardRouting;
+    private final JdbcTradeBackend jdbcTradeBackend;
+    private final TradeJournalWriter tradeJournalWriter;
 
     @Autowired
-    public TradeService(CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository) {
+    public TradeService(CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository,
+                        TradeRepository tradeRepository, TradeHistoryRepository tradeHistoryRepository, ApplicationEventPublisher eventPublisher,
+                        TransactionalOperator transactionalOperator, Optional<PositionBookEngine> positionBookEngine,
+                        TradeProperties tradeProperties, TradeMetrics tradeMetrics, IdempotencyKeyRepository idempotencyKeyRepository,
+                        IdempotencyProperties idempotencyProperties, ShardRouting shardRouting, Optional<JdbcTradeBackend> jdbcTradeBackend,
+                        Optional<TradeJournalWriter> tradeJournalWriter) {
         this.customerRepository = customerRepository;
         this.portfolioItemRepository = portfolioItemRepository;
+        this.tradeRepository = tradeRepository;
+        this.tradeHistoryRepository = tradeHistoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionalOperator = transactionalOperator;
+        this.positionBookEngine = positionBookEngine.orElse(null);
+        this.writePath = tradeProperties.writePath();
+        this.tradeMetrics = tradeMetrics;
+        this.idempotencyKeyRepository = idempotencyProperties.persistent() ? idempotencyKeyRepository : null;
+        this.shardRouting = shardRouting;
+        this.jdbcTradeBackend = jdbcTradeBackend.orElse(null);
+        this.tradeJournalWriter = tradeJournalWriter.orElse(null);
     }
 
     /**
      * Handles the trading operation for a customer based on the action specified in the request.
+     * With the memory engine the trade is applied to the in-memory position book, otherwise it is
+     * applied to the database of the customer's shard in its own transaction, over JDBC with the
+     * JDBC backend. With the trade journal enabled, the response waits until the trade has been
+     * journaled. The outcome of every trade is counted once it is final.
      *
      * @param customerId the ID of the customer
      * @param stockTradeRequest the request containing stock trade details
      * @return a Mono emitting the StockTradeResponse after the trade operation is executed
      */
-    @Transactional
     public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest) {
+        return this.trade(customerId, stockTradeRequest, null);
+    }
+
+    /**
+     * Handles a trade submitted with an Idempotency-Key. When keys are persistent, the key is recorded in the
+     * same transaction as the trade, so a second execution of the same key is rolled back.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @param idempotencyKey the key the trade was submitted with, or null
+     * @return a Mono emitting the StockTradeResponse after the trade operation is executed
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest stockTradeRequest, String idempotencyKey) {
+        Mono<StockTradeResponse> trade;
+        if (this.positionBookEngine == null && this.jdbcTradeBackend != null) {
+            trade = this.jdbcTradeBackend.trade(customerId, stockTradeRequest, idempotencyKey);
+        } else {
+            trade = this.positionBookEngine != null
+                    ? Mono.defer(() -> this.tradeInMemory(customerId, stockTradeRequest))
+                    : this.shardRouting.onShardOf(customerId, this.transactionalOperator.transactional(this.tradeInDatabase(customerId, stockTradeRequest)));
+            if (idempotencyKey != null) {
+                trade = trade.contextWrite(context -> context.put(IDEMPOTENCY_KEY, idempotencyKey));
+            }
+        }
+        if (this.tradeJournalWriter != null) {
+            trade = this.tradeJournalWriter.journal(customerId, List.of(stockTradeRequest), trade);
+        }
+        return this.tradeMetrics.countOutcome(stockTradeRequest, trade);
+    }
+
+    /**
+     * Applies a trade to the in-memory position book. The book is authoritative, so the trade counts as
+     * committed as soon as it has been applied; the database, trade history included, catches up with the next
+     * write-behind flush.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse after the trade operation is executed
+     */
+    private Mono<StockTradeResponse> tradeInMemory(Integer customerId, StockTradeRequest stockTradeRequest) {
+        var result = this.positionBookEngine.apply(customerId, stockTradeRequest);
+        return switch (result.outcome()) {
+            case APPLIED -> {
+                var event = new TradeCommittedEvent(customerId, stockTradeRequest, result.balance(), result.quantity());
+                this.eventPublisher.publishEvent(event);
+                yield Mono.just(EntityDtoMapper.toStockTradeResponse(stockTradeRequest, customerId, result.balance()));
+            }
+            case CUSTOMER_NOT_FOUND -> ApplicationExceptions.customerNotFound(customerId);
+            case INSUFFICIENT_BALANCE -> ApplicationExceptions.insufficientBalance(customerId);
+            case INSUFFICIENT_SHARES -> ApplicationExceptions.insufficientShares(customerId);
+        };
+    }
+
+    /**
+     * Applies a trade to the database using the configured write path.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse after the trade operation is executed
+     */
+    private Mono<StockTradeResponse> tradeInDatabase(Integer customerId, StockTradeRequest stockTradeRequest) {
+        if (this.writePath == TradeProperties.WritePath.CONDITIONAL) {
+            return switch (stockTradeRequest.action()) {
+                case BUY -> this.buyStockConditionally(customerId, stockTradeRequest);
+                case SELL -> this.sellStockConditionally(customerId, stockTradeRequest);
+            };
+        }
         return switch (stockTradeRequest.action()) {
             case BUY -> this.buyStock(customerId, stockTradeRequest);
             case SELL -> this.sellStock(customerId, stockTradeRequest);
@@ -53,7 +168,7 @@ public class TradeService {
      */
     private Mono<StockTradeResponse> buyStock(Integer customerId, StockTradeRequest stockTradeRequest) {
         // Retrieve the customer by their ID
-        var customerMono = this.customerRepository.findById(customerId)
+        var customerMono = this.tradeMetrics.time(TradeMetrics.Stage.CUSTOMER_LOOKUP, this.customerRepository.findById(customerId))
                 // If the customer is not found, throw a customerNotFound exception
                 .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId))
                 .doOnNext(customer -> log.info("Customer {} buying {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price()))
@@ -63,7 +178,8 @@ public class TradeService {
                 .switchIfEmpty(ApplicationExceptions.insufficientBalance(customerId));
 
         // Retrieve the portfolio item by customer ID and ticker
-        var portfolioItemMono = this.portfolioItemRepository.findByCustomerIdAndTicker(customerId, stockTradeRequest.ticker())
+        var portfolioItemMono = this.tradeMetrics.time(TradeMetrics.Stage.PORTFOLIO_LOOKUP,
+                        this.portfolioItemRepository.findByCustomerIdAndTicker(customerId, stockTradeRequest.ticker()))
                 // If the portfolio item is not found, create a new one
                 .defaultIfEmpty(EntityDtoMapper.toPortfolioItem(customerId, stockTradeRequest.ticker()));
 
@@ -95,12 +211,13 @@ public class TradeService {
      */
     private Mono<StockTradeResponse> sellStock(Integer customerId, StockTradeRequest stockTradeRequest){
         // Retrieve the customer by their ID
-        var customerMono = this.customerRepository.findById(customerId)
+        var customerMono = this.tradeMetrics.time(TradeMetrics.Stage.CUSTOMER_LOOKUP, this.customerRepository.findById(customerId))
                 // If the customer is not found, throw a customerNotFound exception
                 .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId));
 
         // Retrieve the portfolio item by customer ID and ticker
-        var portfolioItem = this.portfolioItemRepository.findByCustomerIdAndTicker(customerId, stockTradeRequest.ticker())
+        var portfolioItem = this.tradeMetrics.time(TradeMetrics.Stage.PORTFOLIO_LOOKUP,
+                        this.portfolioItemRepository.findByCustomerIdAndTicker(customerId, stockTradeRequest.ticker()))
                 // Filter the portfolio item based on whether it has sufficient shares for the trade
                 .filter(p -> p.getQuantity() >= stockTradeRequest.quantity())
                 .doOnNext(customer -> log.info("Customer {} selling {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price()))
@@ -135,10 +252,90 @@ public class TradeService {
      * @return a Mono emitting the StockTradeResponse after saving the entities
      */
     private Mono<StockTradeResponse> saveAndBuildResponse(Customer customer, PortfolioItem portfolioItem, StockTradeRequest stockTradeRequest) {
-        var response = EntityDtoMapper.toStockTradeResponse(stockTradeRequest, customer.getId(), customer.getBalance());
-        return Mono.zip(
+        return this.tradeMetrics.time(TradeMetrics.Stage.PERSISTENCE, Mono.zip(
                 this.customerRepository.save(customer),
                 this.portfolioItemRepository.save(portfolioItem)
-        ).thenReturn(response);
+        )).then(this.completeTrade(customer.getId(), stockTradeRequest, customer.getBalance(), portfolioItem.getQuantity()));
+    }
+
+    /**
+     * Buys stock with a guarded debit followed by an upsert of the holding, two round trips in total.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse after the buy operation is executed
+     */
+    private Mono<StockTradeResponse> buyStockConditionally(Integer customerId, StockTradeRequest stockTradeRequest) {
+        // The debit only succeeds when the balance covers the trade
+        return this.tradeMetrics.time(TradeMetrics.Stage.BALANCE_UPDATE, this.tradeRepository.debitBalance(customerId, stockTradeRequest.totalPrice()))
+                .switchIfEmpty(Mono.defer(() -> this.rejectTrade(customerId, ApplicationExceptions.insufficientBalance(customerId))))
+                .doOnNext(balance -> log.info("Customer {} buying {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price()))
+                .flatMap(balance -> this.tradeMetrics.time(TradeMetrics.Stage.HOLDING_UPDATE,
+                                this.tradeRepository.addShares(customerId, stockTradeRequest.ticker(), stockTradeRequest.quantity()))
+                        .flatMap(quantity -> this.completeTrade(customerId, stockTradeRequest, balance, quantity)));
+    }
+
+    /**
+     * Sells stock with a guarded share removal followed by a credit of the balance, two round trips in total.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @return a Mono emitting the StockTradeResponse after the sell operation is executed
+     */
+    private Mono<StockTradeResponse> sellStockConditionally(Integer customerId, StockTradeRequest stockTradeRequest) {
+        // The share removal only succeeds when the holding has enough shares
+        return this.tradeMetrics.time(TradeMetrics.Stage.HOLDING_UPDATE,
+                        this.tradeRepository.removeShares(customerId, stockTradeRequest.ticker(), stockTradeRequest.quantity()))
+                .switchIfEmpty(Mono.defer(() -> this.rejectTrade(customerId, ApplicationExceptions.insufficientShares(customerId))))
+                .doOnNext(quantity -> log.info("Customer {} selling {} at a price of {}", customerId, stockTradeRequest.ticker(), stockTradeRequest.price()))
+                .flatMap(quantity -> this.tradeMetrics.time(TradeMetrics.Stage.BALANCE_UPDATE,
+                                this.tradeRepository.creditBalance(customerId, stockTradeRequest.totalPrice()))
+                        .flatMap(balance -> this.completeTrade(customerId, stockTradeRequest, balance, quantity)));
+    }
+
+    /**
+     * Resolves why a guarded statement affected no rows. Only rejected trades pay for this extra lookup.
+     *
+     * @param customerId the ID of the customer
+     * @param rejection the error to signal when the customer exists
+     * @return a Mono signalling either the rejection or a customerNotFound exception
+     */
+    private <T> Mono<T> rejectTrade(Integer customerId, Mono<T> rejection) {
+        return this.customerRepository.existsById(customerId)
+                .flatMap(exists -> exists ? rejection : ApplicationExceptions.<T>customerNotFound(customerId));
+    }
+
+    /**
+     * Records the trade in the trade history and under its idempotency key, builds the StockTradeResponse
+     * and arranges for a TradeCommittedEvent to be published once the trade's transaction has been
+     * committed. Without a surrounding transaction the event is published immediately.
+     *
+     * @param customerId the ID of the customer
+     * @param stockTradeRequest the request containing stock trade details
+     * @param balance the customer's balance after the trade
+     * @param quantity the customer's quantity of the traded ticker after the trade
+     * @return a Mono emitting the StockTradeResponse
+     */
+    private Mono<StockTradeResponse> completeTrade(Integer customerId, StockTradeRequest stockTradeRequest, Integer balance, Integer quantity) {
+        var event = new TradeCommittedEvent(customerId, stockTradeRequest, balance, quantity);
+        var response = EntityDtoMapper.toStockTradeResponse(stockTradeRequest, customerId, balance);
+        var publication = TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(() -> eventPublisher.publishEvent(event));
+                    }
+                }))
+                .switchIfEmpty(Mono.fromRunnable(() -> this.eventPublisher.publishEvent(event)))
+                .onErrorResume(NoTransactionException.class, e -> Mono.fromRunnable(() -> this.eventPublisher.publishEvent(event)));
+        var idempotencyKey = Mono.deferContextual(context -> context.<String>getOrEmpty(IDEMPOTENCY_KEY)
+                .filter(key -> this.idempotencyKeyRepository != null)
+                .map(key -> this.idempotencyKeyRepository.insert(customerId, key, stockTradeRequest, balance))
+                .orElseGet(Mono::empty));
+        return this.tradeMetrics.time(TradeMetrics.Stage.HISTORY, this.tradeHistoryRepository.save(EntityDtoMapper.toTrade(customerId, stockTradeRequest)))
+                .then(idempotencyKey)
+                .then(publication)
+                .thenReturn(response);
     }
 }
@@ -0,0 +1,142 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.shard;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.ShardProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides which shard holds a customer and runs database work on it.
+ * <p>
+ * A customer lives on shard {@code id mod count}. Every shard hands out ids of its own residue class only, so a
+ * customer created on a shard is always found there again. The shard is carried in the subscriber context, where
+ * the {@link ShardRoutingConnectionFactory} picks it up when a connection or transaction is opened; it therefore
+ * has to be written outside of any {@code transactional} operator. With a single shard nothing is written and every
+ * method returns its argument unchanged.
+ */
+@Component
+public class ShardRouting {
+
+    static final String SHARD = ShardRouting.class.getName() + ".shard";
+
+    private final int count;
+
+    @Autowired
+    public ShardRouting(ShardProperties properties) {
+        this.count = properties.count();
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * @return whether customers are spread over more than one database
+     */
+    public boolean sharded() {
+        return this.count > 1;
+    }
+
+    /**
+     * @param customerId the ID of the customer
+     * @return the index of the shard holding the customer
+     */
+    public int shardOf(Integer customerId) {
+        return Math.floorMod(customerId, this.count);
+    }
+
+    /**
+     * @param lastId the highest customer ID in use anywhere
+     * @param shard the index of the shard
+     * @param count the number of shards
+     * @return the lowest ID after the given one that belongs to the shard
+     */
+    public static int firstIdAfter(int lastId, int shard, int count) {
+        return lastId + 1 + Math.floorMod(shard - (lastId + 1), count);
+    }
+
+    /**
+     * Runs database work on the shard of a customer.
+     *
+     * @param customerId the ID of the customer
+     * @param work the work to route
+     * @return a Mono emitting the result of the work
+     */
+    public <T> Mono<T> onShardOf(Integer customerId, Mono<T> work) {
+        return this.sharded() ? this.onShard(this.shardOf(customerId), work) : work;
+    }
+
+    /**
+     * Runs database work on the shard of a customer.
+     *
+     * @param customerId the ID of the customer
+     * @param work the work to route
+     * @return a Flux emitting the results of the work
+     */
+    public <T> Flux<T> onShardOf(Integer customerId, Flux<T> work) {
+        return this.sharded() ? this.onShard(this.shardOf(customerId), work) : work;
+    }
+
+    /**
+     * Runs database work on a shard.
+     *
+     * @param shard the index of the shard
+     * @param work the work to route
+     * @return a Mono emitting the result of the work
+     */
+    public <T> Mono<T> onShard(int shard, Mono<T> work) {
+        return this.sharded() ? work.contextWrite(context -> context.put(SHARD, shard)) : work;
+    }
+
+    /**
+     * Runs database work on a shard.
+     *
+     * @param shard the index of the shard
+     * @param work the work to route
+     * @return a Flux emitting the results of the work
+     */
+    public <T> Flux<T> onShard(int shard, Flux<T> work) {
+        return this.sharded() ? work.contextWrite(context -> context.put(SHARD, shard)) : work;
+    }
+
+    /**
+     * Runs the same query on every shard at the same time and merges the results as they arrive.
+     *
+     * @param query creates the query for the index of a shard
+     * @return a Flux emitting the results of all shards, interleaved
+     */
+    public <T> Flux<T> onEveryShard(IntFunction<? extends Publisher<T>> query) {
+        if (!this.sharded()) {
+            return Flux.from(query.apply(0));
+        }
+        return Flux.range(0, this.count)
+                .flatMap(shard -> this.onShard(shard, Flux.from(query.apply(shard))), this.count);
+    }
+
+    /**
+     * Splits items by the shard of their customer, keeping the order of the items of each shard.
+     *
+     * @param items the items to split
+     * @param customerId extracts the ID of the customer of an item
+     * @return the items of every shard that has any, by shard index
+     */
+    public <T> Map<Integer, List<T>> partition(Iterable<T> items, ToIntFunction<T> customerId) {
+        var shards = new TreeMap<Integer, List<T>>();
+        for (var item : items) {
+            shards.computeIfAbsent(this.shardOf(customerId.applyAsInt(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return shards;
+    }
+}
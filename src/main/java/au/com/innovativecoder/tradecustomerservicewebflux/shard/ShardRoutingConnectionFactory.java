@@ -0,0 +1,56 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.shard;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Hands out connections of the shard written to the subscriber context by {@link ShardRouting}. There is no default
+ * shard: work that is not routed fails with an {@link IllegalStateException} instead of silently reading or writing
+ * shard 0.
+ */
+public class ShardRoutingConnectionFactory extends AbstractRoutingConnectionFactory {
+
+    private final List<ConnectionFactory> shards;
+
+    public ShardRoutingConnectionFactory(List<ConnectionFactory> shards) {
+        this.shards = List.copyOf(shards);
+        var targets = new HashMap<Integer, ConnectionFactory>();
+        for (int shard = 0; shard < this.shards.size(); shard++) {
+            targets.put(shard, this.shards.get(shard));
+        }
+        this.setTargetConnectionFactories(targets);
+        this.setLenientFallback(false);
+    }
+
+    /**
+     * @return the connection factory of every shard, in shard order
+     */
+    public List<ConnectionFactory> getShards() {
+        return this.shards;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(context.getOrEmpty(ShardRouting.SHARD)));
+    }
+
+    /**
+     * Looks through any wrapping connection factories, such as the timed one, for the shards.
+     *
+     * @return the connection factory of every shard, or an empty list when the connection factory is not sharded
+     */
+    public static List<ConnectionFactory> shardsOf(Object connectionFactory) {
+        if (connectionFactory instanceof ShardRoutingConnectionFactory routing) {
+            return routing.getShards();
+        }
+        if (connectionFactory instanceof Wrapped<?> wrapped) {
+            return shardsOf(wrapped.unwrap());
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,114 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of a book snapshot: every customer with their balance and holdings, in ID order.
+ * <p>
+ * The file starts with a header holding a magic number, the format version and the names of the tickers, so that
+ * records can refer to a ticker by its index in the header and stay readable if the {@link Ticker} enum changes.
+ * Every record is a customer ID, a flags byte marking a null name or balance, the balance, the length and UTF-8
+ * bytes of the name, the number of holdings and a ticker index and quantity per holding. The file ends with a
+ * trailer holding the number of records and a CRC32C over everything before it, so a truncated or damaged file is
+ * recognized before anything is loaded from it.
+ */
+public final class BookSnapshot {
+
+    static final int MAGIC = 0x424B534E;
+    static final short VERSION = 1;
+    static final int TRAILER_SIZE = 12;
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_NAME_BYTES = 1024;
+    static final int MAX_RECORD_SIZE = 4 + 1 + 4 + 2 + MAX_NAME_BYTES + 1 + 255 * 5;
+
+    private static final byte NULL_NAME = 1;
+    private static final byte NULL_BALANCE = 2;
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private BookSnapshot() {
+    }
+
+    static void encodeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putShort(VERSION).put((byte) TICKERS.length);
+        for (var ticker : TICKERS) {
+            var name = ticker.name().getBytes(StandardCharsets.US_ASCII);
+            buffer.put((byte) name.length).put(name);
+        }
+    }
+
+    /**
+     * Reads the header and maps the ticker indexes of the file to the tickers of this version.
+     *
+     * @return the ticker of every index used by the records of the file
+     */
+    static Ticker[] decodeHeader(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a book snapshot");
+        }
+        var version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported book snapshot version " + version);
+        }
+        var tickers = new Ticker[Byte.toUnsignedInt(buffer.get())];
+        for (int i = 0; i < tickers.length; i++) {
+            var name = new byte[Byte.toUnsignedInt(buffer.get())];
+            buffer.get(name);
+            var ticker = new String(name, StandardCharsets.US_ASCII);
+            try {
+                tickers[i] = Ticker.valueOf(ticker);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Book snapshot holds unknown ticker " + ticker, e);
+            }
+        }
+        return tickers;
+    }
+
+    /**
+     * Appends a customer to the buffer, which must have at least {@link #MAX_RECORD_SIZE} bytes remaining.
+     */
+    static void encode(ByteBuffer buffer, CustomerInformation customer) {
+        var name = customer.name() == null ? null : customer.name().getBytes(StandardCharsets.UTF_8);
+        if (name != null && name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name of customer " + customer.id() + " is longer than " + MAX_NAME_BYTES + " bytes");
+        }
+        var flags = (byte) ((name == null ? NULL_NAME : 0) | (customer.balance() == null ? NULL_BALANCE : 0));
+        buffer.putInt(customer.id())
+                .put(flags)
+                .putInt(customer.balance() == null ? 0 : customer.balance())
+                .putShort((short) (name == null ? 0 : name.length));
+        if (name != null) {
+            buffer.put(name);
+        }
+        buffer.put((byte) customer.holdings().size());
+        for (var holding : customer.holdings()) {
+            buffer.put((byte) holding.ticker().ordinal()).putInt(holding.quantity());
+        }
+    }
+
+    /**
+     * Reads the customer at the position of the buffer, which must hold the whole record.
+     */
+    static CustomerInformation decode(ByteBuffer buffer, Ticker[] tickers) {
+        var id = buffer.getInt();
+        var flags = buffer.get();
+        var balance = buffer.getInt();
+        var name = new byte[buffer.getShort()];
+        buffer.get(name);
+        var count = Byte.toUnsignedInt(buffer.get());
+        List<Holding> holdings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            holdings.add(new Holding(tickers[Byte.toUnsignedInt(buffer.get())], buffer.getInt()));
+        }
+        return new CustomerInformation(id,
+                (flags & NULL_NAME) != 0 ? null : new String(name, StandardCharsets.UTF_8),
+                (flags & NULL_BALANCE) != 0 ? null : balance,
+                List.copyOf(holdings));
+    }
+}
@@ -0,0 +1,48 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Exports the book to a snapshot file offline, without serving any requests.
+ * <p>
+ * The first argument is the snapshot file; any further arguments are application properties, which should point
+ * the application at the database to export, e.g.
+ * {@code book.snapshot --spring.r2dbc.url=r2dbc:h2:file:///./data/trades --database.schema.skip-if-present=true}.
+ * The snapshot is loaded back on startup with {@code database.snapshot.load-path}.
+ */
+public final class BookSnapshotExport {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSnapshotExport.class);
+
+    private BookSnapshotExport() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: BookSnapshotExport <snapshot file> [--property=value ...]");
+            System.exit(2);
+        }
+        var path = Path.of(args[0]);
+        // command line arguments take precedence over application.properties
+        var arguments = Stream.concat(Stream.of(
+                                "--spring.main.web-application-type=none",
+                                "--spring.rsocket.server.port=0",
+                                "--database.warmup.enabled=false",
+                                "--trade.exposure.check-enabled=false"),
+                        Arrays.stream(args).skip(1))
+                .toArray(String[]::new);
+        try (var context = new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class).run(arguments)) {
+            var start = System.nanoTime();
+            var count = context.getBean(BookSnapshotExporter.class).export(path).block();
+            log.info("Exported {} customers to book snapshot {} in {} ms", count, path.toAbsolutePath(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+
+/**
+ * Writes the whole book to a snapshot file, streaming it page by page from the database like the export endpoint.
+ */
+@Service
+public class BookSnapshotExporter {
+
+    private final CustomerService customerService;
+
+    @Autowired
+    public BookSnapshotExporter(CustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    /**
+     * Exports every customer into the snapshot file, replacing it only once the export is complete.
+     * File writes happen on the bounded elastic scheduler, off the database threads.
+     *
+     * @param path the snapshot file
+     * @return a Mono emitting the number of customers written once the snapshot has been committed
+     */
+    public Mono<Long> export(Path path) {
+        return Mono.using(() -> new BookSnapshotWriter(path),
+                        writer -> this.customerService.exportCustomers()
+                                .publishOn(Schedulers.boundedElastic())
+                                .doOnNext(writer::write)
+                                .then(Mono.fromCallable(writer::commit)),
+                        BookSnapshotWriter::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,134 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.BookSnapshotProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerImportRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replaces the {@code customer} and {@code portfolio_item} tables with the contents of a book snapshot on startup.
+ * <p>
+ * The snapshot is verified before anything is deleted, so a damaged file stops startup with the sql init data
+ * untouched. Each shard is then loaded in a transaction of its own: its customers, together with their trade history
+ * and idempotency keys, are deleted and the customers of the shard are inserted under their snapshot IDs in batched
+ * statements. The transaction of a shard stays open while the next shard loads and commits only once every later
+ * shard has committed, so a batch the database rejects on any shard rolls every shard back to its previous tables
+ * and stops startup, instead of leaving a book that is part snapshot and part sql init data. Only a commit failing
+ * after all shards have loaded can still leave the earlier shards on their previous tables; the error then names the
+ * shards that were committed. The ID sequence of every shard then continues after the highest loaded ID.
+ * <p>
+ * A snapshot cannot be loaded when the trade journal is replayed on startup: the journal is replayed on top of the
+ * sql init data, and applying it to a snapshot would apply every trade the snapshot already holds a second time.
+ */
+@Component
+@ConditionalOnProperty(name = "database.snapshot.load-path")
+public class BookSnapshotLoader implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSnapshotLoader.class);
+
+    private final CustomerImportRepository customerImportRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final BookSnapshotProperties properties;
+    private final ShardRouting shardRouting;
+    private volatile boolean running;
+
+    @Autowired
+    public BookSnapshotLoader(CustomerImportRepository customerImportRepository, ReactiveTransactionManager transactionManager,
+                              BookSnapshotProperties properties, ShardRouting shardRouting, TradeJournalProperties tradeJournalProperties) {
+        if (tradeJournalProperties.enabled() && tradeJournalProperties.replayOnStartup()) {
+            throw new IllegalStateException("A book snapshot cannot be loaded while trade.journal.replay-on-startup is set, "
+                    + "the trade journal is replayed on top of the sql init data");
+        }
+        this.customerImportRepository = customerImportRepository;
+        // every shard suspends the transaction of the shard before it instead of joining it
+        this.transactionalOperator = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        this.properties = properties;
+        this.shardRouting = shardRouting;
+    }
+
+    @Override
+    public void start() {
+        var path = this.properties.loadPath();
+        var start = System.nanoTime();
+        BookSnapshotReader.verify(path);
+        var count = this.shardRouting.count();
+        var lastId = new AtomicInteger();
+        var committed = new CopyOnWriteArrayList<Integer>();
+        var loaded = this.loadFrom(path, 0, lastId, committed)
+                .onErrorMap(e -> !committed.isEmpty(), e -> new IllegalStateException("Loading book snapshot " + path
+                        + " failed after shards " + committed + " were committed with it, the other shards were rolled back", e))
+                .block();
+        Flux.range(0, count)
+                .concatMap(shard -> this.shardRouting.onShard(shard, this.customerImportRepository.restartIds(ShardRouting.firstIdAfter(lastId.get(), shard, count))))
+                .then()
+                .block();
+        log.info("Loaded {} customers from book snapshot {} in {} ms", loaded, path, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        this.running = true;
+    }
+
+    /**
+     * Replaces the tables of a shard and of every shard after it. The transaction of the shard is committed only once
+     * every later shard has been committed, and is rolled back if any of them fails.
+     *
+     * @return a Mono emitting the number of customers inserted into the shards
+     */
+    private Mono<Long> loadFrom(Path path, int shard, AtomicInteger lastId, List<Integer> committed) {
+        if (shard == this.shardRouting.count()) {
+            return Mono.just(0L);
+        }
+        // every shard reads the snapshot on its own, so only one batch is held in memory at a time
+        var loaded = this.customerImportRepository.deleteAll()
+                .then(this.load(path, shard, lastId))
+                .flatMap(customers -> this.loadFrom(path, shard + 1, lastId, committed).map(later -> customers + later));
+        return this.shardRouting.onShard(shard, this.transactionalOperator.transactional(loaded))
+                .doOnSuccess(customers -> committed.add(shard));
+    }
+
+    /**
+     * Inserts the customers of a shard in batches. Callers are expected to run it in the transaction of the shard.
+     *
+     * @return a Mono emitting the number of customers inserted
+     */
+    private Mono<Long> load(Path path, int shard, AtomicInteger lastId) {
+        return Flux.using(() -> new BookSnapshotReader(path), reader -> Flux.fromIterable(() -> reader), BookSnapshotReader::close)
+                .doOnNext(customer -> lastId.accumulateAndGet(customer.id(), Math::max))
+                .filter(customer -> this.shardRouting.shardOf(customer.id()) == shard)
+                .buffer(this.properties.batchSize())
+                .concatMap(batch -> this.customerImportRepository.insertWithIds(batch).thenReturn((long) batch.size()))
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        return -150;
+    }
+}
@@ -0,0 +1,145 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the customers of a book snapshot in file order through a fixed-size direct buffer.
+ * Reading fails with an IllegalStateException if the file does not hold as many records as its trailer says or
+ * does not match its checksum; {@link #verify(Path)} checks a file up front without decoding it.
+ */
+public final class BookSnapshotReader implements Iterator<CustomerInformation>, Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BookSnapshot.BUFFER_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private final long end;
+    private final long count;
+    private final int checksum;
+    private final Ticker[] tickers;
+    private long position;
+    private long read;
+
+    public BookSnapshotReader(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.end = this.channel.size() - BookSnapshot.TRAILER_SIZE;
+            var trailer = ByteBuffer.allocate(BookSnapshot.TRAILER_SIZE);
+            if (this.end < 0 || this.channel.read(trailer, this.end) < BookSnapshot.TRAILER_SIZE) {
+                this.channel.close();
+                throw new IllegalStateException("Book snapshot " + path + " is truncated");
+            }
+            this.count = trailer.flip().getLong();
+            this.checksum = trailer.getInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open book snapshot " + path, e);
+        }
+        this.buffer.limit(0);
+        try {
+            fill();
+            this.tickers = BookSnapshot.decodeHeader(this.buffer);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a whole snapshot once, checking its checksum and its size without decoding any record.
+     *
+     * @param path the snapshot file
+     * @return the number of customers in the snapshot
+     */
+    public static long verify(Path path) {
+        try (var reader = new BookSnapshotReader(path)) {
+            reader.buffer.position(reader.buffer.limit());
+            while (reader.position < reader.end) {
+                reader.fill();
+                reader.buffer.position(reader.buffer.limit());
+            }
+            reader.checkEnd();
+            return reader.count;
+        }
+    }
+
+    /**
+     * @return the number of customers in the snapshot, according to its trailer
+     */
+    public long count() {
+        return this.count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.read < this.count) {
+            return true;
+        }
+        checkEnd();
+        return false;
+    }
+
+    @Override
+    public CustomerInformation next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (this.buffer.remaining() < BookSnapshot.MAX_RECORD_SIZE) {
+            fill();
+        }
+        if (!this.buffer.hasRemaining()) {
+            throw new IllegalStateException("Book snapshot " + this.path + " ends after " + this.read + " of " + this.count + " customers");
+        }
+        this.read++;
+        return BookSnapshot.decode(this.buffer, this.tickers);
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tops up the buffer with the next bytes of the file before the trailer, adding them to the checksum.
+     */
+    private void fill() {
+        this.buffer.compact();
+        var start = this.buffer.position();
+        this.buffer.limit((int) Math.min(this.buffer.capacity(), start + this.end - this.position));
+        try {
+            while (this.buffer.hasRemaining()) {
+                var bytes = this.channel.read(this.buffer, this.position);
+                if (bytes < 0) {
+                    break;
+                }
+                this.position += bytes;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read book snapshot " + this.path, e);
+        }
+        this.buffer.flip();
+        this.crc.update(this.buffer.duplicate().position(start));
+    }
+
+    private void checkEnd() {
+        if (this.position != this.end || this.buffer.hasRemaining() || (int) this.crc.getValue() != this.checksum) {
+            throw new IllegalStateException("Book snapshot " + this.path + " is damaged or truncated");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes a book snapshot through a fixed-size direct buffer, so memory stays the same however many customers are
+ * written. Records go to a temporary file next to the snapshot, which only replaces the snapshot once
+ * {@link #commit()} has written the trailer and forced it to the device. Closing an uncommitted writer deletes the
+ * temporary file and leaves any previous snapshot in place.
+ */
+public final class BookSnapshotWriter implements Closeable {
+
+    private final Path path;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BookSnapshot.BUFFER_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private long count;
+    private boolean committed;
+
+    public BookSnapshotWriter(Path path) {
+        this.path = path.toAbsolutePath();
+        this.temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(this.path.getParent());
+            this.channel = FileChannel.open(this.temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create book snapshot " + this.temporary, e);
+        }
+        BookSnapshot.encodeHeader(this.buffer);
+    }
+
+    /**
+     * Appends a customer. Customers are expected in ID order.
+     */
+    public void write(CustomerInformation customer) {
+        if (this.buffer.remaining() < BookSnapshot.MAX_RECORD_SIZE) {
+            flush();
+        }
+        BookSnapshot.encode(this.buffer, customer);
+        this.count++;
+    }
+
+    /**
+     * Writes the trailer, forces the file to the device and moves it over the snapshot.
+     *
+     * @return the number of customers written
+     */
+    public long commit() {
+        flush();
+        this.buffer.putLong(this.count).putInt((int) this.crc.getValue()).flip();
+        try {
+            writeFully();
+            this.channel.force(true);
+            this.channel.close();
+            Files.move(this.temporary, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to commit book snapshot " + this.path, e);
+        }
+        this.committed = true;
+        return this.count;
+    }
+
+    @Override
+    public void close() {
+        if (this.committed) {
+            return;
+        }
+        try {
+            this.channel.close();
+            Files.deleteIfExists(this.temporary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        this.buffer.flip();
+        this.crc.update(this.buffer);
+        this.buffer.rewind();
+        try {
+            writeFully();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write book snapshot " + this.temporary, e);
+        }
+    }
+
+    private void writeFully() throws IOException {
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
@@ -1,5 +1,7 @@
-DROP TABLE IF EXISTS customer;
+DROP TABLE IF EXISTS idempotency_key;
+DROP TABLE IF EXISTS trade;
 DROP TABLE IF EXISTS portfolio_item;
+DROP TABLE IF EXISTS customer;
 
 CREATE TABLE customer (
     id int AUTO_INCREMENT primary key,
@@ -15,6 +17,37 @@ CREATE TABLE portfolio_item (
     foreign key (customer_id) references customer(id)
 );
 
+CREATE UNIQUE INDEX portfolio_item_customer_ticker ON portfolio_item(customer_id, ticker);
+
+CREATE TABLE trade (
+    id bigint AUTO_INCREMENT primary key,
+    customer_id int,
+    ticker VARCHAR(10),
+    action VARCHAR(4),
+    price int,
+    quantity int,
+    executed_at TIMESTAMP,
+    foreign key (customer_id) references customer(id)
+);
+
+CREATE INDEX trade_customer_id ON trade(customer_id, id);
+CREATE INDEX trade_ticker_id ON trade(ticker, id);
+
+CREATE TABLE idempotency_key (
+    customer_id int,
+    idempotency_key VARCHAR(255),
+    ticker VARCHAR(10),
+    price int,
+    quantity int,
+    action VARCHAR(4),
+    balance int,
+    created_at TIMESTAMP,
+    primary key (customer_id, idempotency_key),
+    foreign key (customer_id) references customer(id)
+);
+
+CREATE INDEX idempotency_key_created_at ON idempotency_key(created_at);
+
 insert into customer(name, balance)
     values
         ('Sam', 10000),
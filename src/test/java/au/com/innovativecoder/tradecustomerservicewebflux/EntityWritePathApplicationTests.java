@@ -0,0 +1,13 @@
+package au.com.innovativecoder.tradecustomerservicewebflux;
+
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs every application test against the entity write path, which reads the customer and holding and saves them
+ * back instead of issuing the guarded updates of the default path.
+ */
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.write-path=entity"})
+@AutoConfigureWebTestClient
+class EntityWritePathApplicationTests extends TradeCustomerServiceWebfluxApplicationTests {
+}
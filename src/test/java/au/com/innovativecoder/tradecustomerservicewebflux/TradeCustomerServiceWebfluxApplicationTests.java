@@ -2,7 +2,11 @@ package au.com.innovativecoder.tradecustomerservicewebflux;
 
 import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
 import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
 import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,8 +15,11 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 
+import java.util.Comparator;
 import java.util.Objects;
 
 @SpringBootTest
@@ -128,6 +135,79 @@ class TradeCustomerServiceWebfluxApplicationTests {
                 .jsonPath("$.detail", "Customer [id=3] does not have enough shares to complete this transaction");
     }
 
+    @Test
+    void testBulkTradeReportsProblemsInline() {
+        var requests = Flux.just(
+                new CustomerTradeRequest(1, new StockTradeRequest(Ticker.APPLE, 1000, 12, TradeAction.BUY)),
+                new CustomerTradeRequest(10, new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY)),
+                new CustomerTradeRequest(1, new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.SELL))
+        );
+
+        var results = this.client
+                .post()
+                .uri("/customers/trades")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(requests, CustomerTradeRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerTradeResult.class)
+                .getResponseBody()
+                .collectSortedList(Comparator.comparing(CustomerTradeResult::customerId))
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertTrue(results.stream().allMatch(r -> r.response() == null && r.problem() != null));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(0).problem().getStatus());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(1).problem().getStatus());
+        Assertions.assertEquals(HttpStatus.NOT_FOUND.value(), results.get(2).problem().getStatus());
+    }
+
+    @Test
+    void testBulkLookupReportsUnknownCustomersInline() {
+        var results = this.client
+                .get()
+                .uri("/customers?ids={ids}", "3,10,1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerLookupResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("John", results.get(0).customer().name());
+        Assertions.assertEquals(10, results.get(1).customerId());
+        Assertions.assertNull(results.get(1).customer());
+        Assertions.assertEquals(HttpStatus.NOT_FOUND.value(), results.get(1).problem().getStatus());
+        Assertions.assertEquals("Sam", results.get(2).customer().name());
+    }
+
+    @Test
+    void testPrometheusEndpointExposesTradeMetrics() {
+        var buyRequest = new StockTradeRequest(Ticker.MICROSOFT, 100_000, 1, TradeAction.BUY);
+        trade(1, buyRequest, HttpStatus.BAD_REQUEST);
+
+        var scrape = this.client
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        Assertions.assertNotNull(scrape);
+        Assertions.assertTrue(scrape.contains("trade_validation_total{action=\"BUY\",outcome=\"insufficient-balance\",ticker=\"MICROSOFT\"}"));
+        Assertions.assertTrue(scrape.contains("trade_stage_seconds_count{stage=\"balance-update\"}"));
+        Assertions.assertTrue(scrape.contains("r2dbc_pool_acquire_seconds_count"));
+        Assertions.assertTrue(scrape.contains("r2dbc_pool_acquired"));
+        Assertions.assertTrue(scrape.contains("netty_eventexecutor_tasks_pending"));
+    }
+
     private WebTestClient.BodyContentSpec getCustomer(Integer customerId, HttpStatus expectedStatus) {
         return this.client
                 .get()
@@ -0,0 +1,55 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class AdmissionLimitTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testRateLimiterAllowsBurstThenSustainedRate() {
+        var limiter = new CustomerRateLimiter(10, 5, 100);
+        var now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(0, limiter.tryAcquire(1, now));
+        }
+        var wait = limiter.tryAcquire(1, now);
+        Assertions.assertEquals(SECOND / 10, wait);
+        // other customers have their own bucket
+        Assertions.assertEquals(0, limiter.tryAcquire(2, now));
+
+        Assertions.assertEquals(0, limiter.tryAcquire(1, now + wait));
+        Assertions.assertTrue(limiter.tryAcquire(1, now + wait) > 0);
+        // an idle customer refills up to the burst, not beyond
+        var later = now + 60 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(0, limiter.tryAcquire(1, later));
+        }
+        Assertions.assertTrue(limiter.tryAcquire(1, later) > 0);
+    }
+
+    @Test
+    void testConcurrencyLimitBacksOffOnSlowTradesAndGrowsWhenUsed() {
+        var limit = new AdaptiveConcurrencyLimit(4, 2, 6, TimeUnit.MILLISECONDS.toNanos(10), 0.5);
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(limit.tryAcquire());
+        }
+        Assertions.assertFalse(limit.tryAcquire());
+
+        limit.release(TimeUnit.MILLISECONDS.toNanos(50), false);
+        Assertions.assertEquals(2, limit.limit());
+        Assertions.assertFalse(limit.tryAcquire());
+
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        Assertions.assertEquals(4, limit.limit());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+        Assertions.assertEquals(2, limit.limit());
+        Assertions.assertEquals(0, limit.inFlight());
+    }
+}
@@ -0,0 +1,75 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "spring.r2dbc.generate-unique-name=true",
+        "trade.admission.customer-rate=0.1",
+        "trade.admission.customer-burst=2"
+})
+@AutoConfigureWebTestClient
+class TradeAdmissionFilterTests {
+
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.AMAZON, 10, 1, TradeAction.SELL);
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void testFloodingCustomerIsRateLimitedWithoutAffectingOthers() {
+        trade(3).expectStatus().isBadRequest();
+        trade(3).expectStatus().isBadRequest();
+        trade(3).expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "10")
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Too Many Trades")
+                .jsonPath("$.instance").isEqualTo("/customers/3/trade");
+
+        trade(2).expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testEveryTradeOfABulkStreamIsChargedToItsCustomer() {
+        var results = this.client
+                .post()
+                .uri("/customers/trades")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(Flux.range(0, 3).map(i -> new CustomerTradeRequest(1, SELL)), CustomerTradeRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerTradeResult.class)
+                .getResponseBody()
+                .map(result -> result.problem().getStatus())
+                .collectList()
+                .block();
+
+        // trades of a customer execute in stream order, so the third is the one over the burst
+        Assertions.assertEquals(List.of(HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.value(), HttpStatus.TOO_MANY_REQUESTS.value()), results);
+    }
+
+    private WebTestClient.ResponseSpec trade(Integer customerId) {
+        return this.client
+                .post()
+                .uri("/customers/{customerId}/trade", customerId)
+                .bodyValue(SELL)
+                .exchange();
+    }
+}
@@ -0,0 +1,78 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.admission;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TooManyTradesException;
+import io.rsocket.exceptions.ApplicationErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@SpringBootTest(properties = {
+        "spring.r2dbc.generate-unique-name=true",
+        "trade.admission.customer-rate=0.1",
+        "trade.admission.customer-burst=2"
+})
+class TradeAdmissionTests {
+
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.AMAZON, 10, 1, TradeAction.SELL);
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void setUp() {
+        this.requester = this.requesterBuilder.tcp("localhost", this.port);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.requester.dispose();
+    }
+
+    @Test
+    void testFloodingCustomerIsRateLimitedOverRSocket() {
+        trade(3).expectError(ApplicationErrorException.class).verify();
+        trade(3).expectError(ApplicationErrorException.class).verify();
+        trade(3).expectErrorSatisfies(e -> {
+                    Assertions.assertInstanceOf(ApplicationErrorException.class, e);
+                    Assertions.assertEquals(TooManyTradesException.MESSAGE.formatted(3), e.getMessage());
+                })
+                .verify();
+
+        // the trade channel charges the same bucket, and reports the rejection inline
+        var results = this.requester.route("customers.trades")
+                .data(Flux.just(new CustomerTradeRequest(3, SELL), new CustomerTradeRequest(2, SELL)), CustomerTradeRequest.class)
+                .retrieveFlux(CustomerTradeResult.class)
+                .collectMap(CustomerTradeResult::customerId)
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), results.get(3).problem().getStatus());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(2).problem().getStatus());
+    }
+
+    private StepVerifier.FirstStep<StockTradeResponse> trade(Integer customerId) {
+        return this.requester.route("customers.{customerId}.trade", customerId)
+                .data(SELL)
+                .retrieveMono(StockTradeResponse.class)
+                .as(StepVerifier::create);
+    }
+}
@@ -0,0 +1,53 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.advice;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.ApplicationException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InvalidTradeRequestException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradeLaneFullException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.net.URI;
+import java.util.List;
+
+class ProblemMapperTests {
+
+    private final ProblemMapper problemMapper = new ProblemMapper();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void testPreEncodedBodiesMatchProblemDetailJson() throws Exception {
+        List<ApplicationException> rejections = List.of(
+                new CustomerNotFoundException(7),
+                new InsufficientBalanceException(0),
+                new InsufficientSharesException(123_456_789),
+                new TradeLaneFullException(Integer.MIN_VALUE),
+                new InvalidTradeRequestException(null)
+        );
+        for (var rejection : rejections) {
+            var instance = "/customers/%s/trade".formatted(rejection.getCustomerId());
+            var response = this.problemMapper.toResponseEntity(rejection, instance);
+
+            var expected = this.problemMapper.toProblemDetail(rejection);
+            expected.setInstance(URI.create(instance));
+
+            Assertions.assertEquals(expected.getStatus(), response.getStatusCode().value());
+            Assertions.assertEquals(MediaType.APPLICATION_PROBLEM_JSON, response.getHeaders().getContentType());
+            Assertions.assertEquals(this.objectMapper.readTree(this.objectMapper.writeValueAsBytes(expected)),
+                    this.objectMapper.readTree(response.getBody()));
+        }
+    }
+
+    @Test
+    void testRejectionsCarryNoStackTrace() {
+        var rejection = new InsufficientBalanceException(3);
+
+        Assertions.assertEquals(0, rejection.getStackTrace().length);
+        Assertions.assertEquals("Customer [id=3] does not have enough funds to carry this transaction", rejection.getMessage());
+    }
+}
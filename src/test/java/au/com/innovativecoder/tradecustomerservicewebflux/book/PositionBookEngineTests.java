@@ -0,0 +1,97 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.book;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.engine=memory", "trade.book.flush-interval=1h"})
+class PositionBookEngineTests {
+
+    @Autowired
+    private PositionBookEngine engine;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void testStartLoadsTheTables() {
+        this.engine.stop();
+        var customerId = this.databaseClient.sql("INSERT INTO customer (name, balance) VALUES ('Loaded', 500)")
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .block();
+        this.databaseClient.sql("INSERT INTO portfolio_item (customer_id, ticker, quantity) VALUES (:customerId, 'GOOGLE', 4)")
+                .bind("customerId", customerId)
+                .then()
+                .block();
+        this.engine.start();
+
+        Assertions.assertEquals(new CustomerInformation(customerId, "Loaded", 500, List.of(new Holding(Ticker.GOOGLE, 4))),
+                this.engine.customerInformation(customerId));
+        Assertions.assertEquals(PositionBook.Outcome.APPLIED,
+                this.engine.apply(customerId, new StockTradeRequest(Ticker.GOOGLE, 10, 4, TradeAction.SELL)).outcome());
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        var buy = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+        Assertions.assertEquals(9_990, this.engine.apply(2, buy).balance());
+
+        this.databaseClient.sql("ALTER TABLE customer ADD CONSTRAINT balance_floor CHECK (id <> 2 OR balance >= 10000)").then().block();
+        try {
+            this.engine.flush().block();
+            Assertions.assertEquals(10_000, this.balance(2));
+        } finally {
+            this.databaseClient.sql("ALTER TABLE customer DROP CONSTRAINT balance_floor").then().block();
+        }
+
+        // the failed batch was marked dirty again, so the next flush writes it
+        this.engine.flush().block();
+        Assertions.assertEquals(9_990, this.balance(2));
+        Assertions.assertEquals(1, this.quantity(2, Ticker.APPLE));
+    }
+
+    @Test
+    void testStopWritesEveryChange() {
+        for (int i = 0; i < 10; i++) {
+            this.engine.apply(3, new StockTradeRequest(Ticker.AMAZON, 100, 1, TradeAction.BUY));
+        }
+        this.engine.apply(3, new StockTradeRequest(Ticker.AMAZON, 100, 4, TradeAction.SELL));
+
+        this.engine.stop();
+        try {
+            Assertions.assertFalse(this.engine.isRunning());
+            Assertions.assertEquals(9_400, this.balance(3));
+            Assertions.assertEquals(6, this.quantity(3, Ticker.AMAZON));
+        } finally {
+            this.engine.start();
+        }
+    }
+
+    private int balance(int customerId) {
+        return this.databaseClient.sql("SELECT balance FROM customer WHERE id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> row.get("balance", Integer.class))
+                .one()
+                .block();
+    }
+
+    private int quantity(int customerId, Ticker ticker) {
+        return this.databaseClient.sql("SELECT quantity FROM portfolio_item WHERE customer_id = :customerId AND ticker = :ticker")
+                .bind("customerId", customerId)
+                .bind("ticker", ticker.name())
+                .map(row -> row.get("quantity", Integer.class))
+                .one()
+                .block();
+    }
+}
@@ -0,0 +1,95 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.book;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class PositionBookTests {
+
+    private final PositionBook book = new PositionBook();
+
+    @Test
+    void testApplyValidatesAndChangesPositions() {
+        this.book.putCustomer(7, "Sam", 1_000);
+
+        Assertions.assertEquals(new PositionBook.TradeResult(PositionBook.Outcome.APPLIED, 700, 3),
+                this.book.apply(7, new StockTradeRequest(Ticker.APPLE, 100, 3, TradeAction.BUY)));
+        Assertions.assertEquals(new PositionBook.TradeResult(PositionBook.Outcome.APPLIED, 900, 1),
+                this.book.apply(7, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.SELL)));
+        Assertions.assertEquals(PositionBook.Outcome.INSUFFICIENT_BALANCE,
+                this.book.apply(7, new StockTradeRequest(Ticker.GOOGLE, 100, 10, TradeAction.BUY)).outcome());
+        Assertions.assertEquals(PositionBook.Outcome.INSUFFICIENT_SHARES,
+                this.book.apply(7, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.SELL)).outcome());
+        Assertions.assertEquals(PositionBook.Outcome.CUSTOMER_NOT_FOUND,
+                this.book.apply(8, new StockTradeRequest(Ticker.APPLE, 1, 1, TradeAction.BUY)).outcome());
+        Assertions.assertEquals(PositionBook.Outcome.CUSTOMER_NOT_FOUND,
+                this.book.apply(1 << 20, new StockTradeRequest(Ticker.APPLE, 1, 1, TradeAction.BUY)).outcome());
+
+        Assertions.assertEquals(new CustomerInformation(7, "Sam", 900, List.of(new Holding(Ticker.APPLE, 1))), this.book.customerInformation(7));
+    }
+
+    @Test
+    void testApplyBasketChecksLegsInOrderAndChangesAllOrNothing() {
+        this.book.putCustomer(1, "Anna", 1_000);
+        this.book.putHolding(1, Ticker.APPLE, 5);
+
+        // the buy of GOOGLE is only covered once the APPLE shares have been sold
+        var applied = this.book.applyBasket(1, List.of(
+                new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.SELL),
+                new StockTradeRequest(Ticker.GOOGLE, 300, 5, TradeAction.BUY)));
+        Assertions.assertEquals(PositionBook.Outcome.APPLIED, applied.outcome());
+        Assertions.assertArrayEquals(new int[]{1_500, 0}, applied.balances());
+        Assertions.assertArrayEquals(new int[]{0, 5}, applied.quantities());
+
+        var rejected = this.book.applyBasket(1, List.of(
+                new StockTradeRequest(Ticker.GOOGLE, 100, 5, TradeAction.SELL),
+                new StockTradeRequest(Ticker.AMAZON, 100, 6, TradeAction.BUY)));
+        Assertions.assertEquals(PositionBook.BasketResult.INSUFFICIENT_BALANCE, rejected);
+        Assertions.assertEquals(PositionBook.BasketResult.INSUFFICIENT_SHARES,
+                this.book.applyBasket(1, List.of(new StockTradeRequest(Ticker.APPLE, 1, 1, TradeAction.SELL))));
+        Assertions.assertEquals(PositionBook.BasketResult.CUSTOMER_NOT_FOUND,
+                this.book.applyBasket(2, List.of(new StockTradeRequest(Ticker.APPLE, 1, 1, TradeAction.BUY))));
+
+        Assertions.assertEquals(new CustomerInformation(1, "Anna", 0, List.of(new Holding(Ticker.APPLE, 0), new Holding(Ticker.GOOGLE, 5))),
+                this.book.customerInformation(1));
+    }
+
+    @Test
+    void testCustomerIsDirtyOnceUntilSnapshot() {
+        this.book.putCustomer(3, "John", 1_000);
+        this.book.putHolding(3, Ticker.AMAZON, 2);
+        Assertions.assertEquals(0, this.book.dirtyCount());
+        Assertions.assertNull(this.book.pollDirty());
+
+        this.book.apply(3, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY));
+        this.book.apply(3, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY));
+        // a trade of an unknown customer changes nothing, so it marks nothing dirty
+        this.book.apply(4, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY));
+        Assertions.assertEquals(1, this.book.dirtyCount());
+        Assertions.assertEquals(3, this.book.pollDirty());
+        Assertions.assertNull(this.book.pollDirty());
+
+        var snapshot = new int[PositionBook.snapshotLength()];
+        this.book.snapshot(3, snapshot);
+        Assertions.assertEquals(980, snapshot[0]);
+        Assertions.assertEquals(2, snapshot[Ticker.APPLE.ordinal() + 1]);
+        Assertions.assertEquals(2, snapshot[Ticker.AMAZON.ordinal() + 1]);
+        Assertions.assertEquals(PositionBook.NO_HOLDING, snapshot[Ticker.GOOGLE.ordinal() + 1]);
+
+        // a change after the snapshot marks the customer again, and so does a failed write
+        this.book.apply(3, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.SELL));
+        this.book.markDirty(3);
+        Assertions.assertEquals(1, this.book.dirtyCount());
+        Assertions.assertEquals(3, this.book.pollDirty());
+        this.book.snapshot(3, snapshot);
+        this.book.markDirty(3);
+        Assertions.assertEquals(1, this.book.dirtyCount());
+        Assertions.assertEquals(3, this.book.pollDirty());
+    }
+}
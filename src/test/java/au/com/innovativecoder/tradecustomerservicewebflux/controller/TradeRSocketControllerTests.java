@@ -0,0 +1,102 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.controller;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import io.rsocket.exceptions.ApplicationErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+@SpringBootTest(properties = "spring.r2dbc.generate-unique-name=true")
+class TradeRSocketControllerTests {
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void setUp() {
+        this.requester = this.requesterBuilder.tcp("localhost", this.port);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.requester.dispose();
+    }
+
+    @Test
+    void testTradeIsEncodedAsCbor() {
+        Assertions.assertEquals(MimeTypeUtils.parseMimeType("application/cbor"), this.requester.dataMimeType());
+
+        this.requester.route("customers.{customerId}.trade", 1)
+                .data(new StockTradeRequest(Ticker.APPLE, 10, 2, TradeAction.BUY))
+                .retrieveMono(StockTradeResponse.class)
+                .as(StepVerifier::create)
+                .assertNext(response -> {
+                    Assertions.assertEquals(1, response.customer());
+                    Assertions.assertEquals(20, response.totalPrice());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testRejectedTradeEndsWithError() {
+        this.requester.route("customers.{customerId}.trade", 2)
+                .data(new StockTradeRequest(Ticker.MICROSOFT, 10, 1, TradeAction.SELL))
+                .retrieveMono(StockTradeResponse.class)
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(e -> {
+                    Assertions.assertInstanceOf(ApplicationErrorException.class, e);
+                    Assertions.assertEquals(InsufficientSharesException.MESSAGE.formatted(2), e.getMessage());
+                })
+                .verify();
+    }
+
+    @Test
+    void testLookupStreamsOneResultPerId() {
+        this.requester.route("customers.lookup")
+                .data(List.of(1, 2, 1_000_000))
+                .retrieveFlux(CustomerLookupResult.class)
+                .map(result -> result.customer() != null)
+                .as(StepVerifier::create)
+                .expectNext(true, true, false)
+                .verifyComplete();
+    }
+
+    @Test
+    void testTradeChannelReportsEveryTrade() {
+        var requests = Flux.range(0, 20)
+                .map(i -> new CustomerTradeRequest(3, new StockTradeRequest(Ticker.GOOGLE, 1, 1, i % 2 == 0 ? TradeAction.BUY : TradeAction.SELL)));
+        var results = this.requester.route("customers.trades")
+                .data(requests, CustomerTradeRequest.class)
+                .retrieveFlux(CustomerTradeResult.class)
+                .collectList()
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(20, results.size());
+        Assertions.assertTrue(results.stream().allMatch(result -> result.problem() == null));
+        // trades of a customer keep their order, so every buy is sold again by the end of the stream
+        Assertions.assertEquals(10_000, results.get(19).response().balance());
+    }
+}
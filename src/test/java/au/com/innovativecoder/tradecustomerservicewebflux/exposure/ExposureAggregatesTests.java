@@ -0,0 +1,76 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.exposure;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.FirmPositions;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.ExposureRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.exposure.check-enabled=false"})
+@AutoConfigureWebTestClient
+class ExposureAggregatesTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private ExposureRepository exposureRepository;
+
+    @Autowired
+    private ExposureConsistencyCheck exposureConsistencyCheck;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void testPositionsFollowCommittedTradesAndMatchTables() {
+        var before = getPositions();
+        Flux.range(0, 30)
+                .concatMap(i -> this.tradeService.trade(1 + i % 3, new StockTradeRequest(Ticker.values()[i % 4], 10, 2, TradeAction.BUY)))
+                .blockLast();
+        // rejected trades must not move the totals
+        this.tradeService.trade(1, new StockTradeRequest(Ticker.GOOGLE, 1_000_000, 1, TradeAction.BUY))
+                .onErrorComplete()
+                .block();
+
+        var after = getPositions();
+        Assertions.assertEquals(before.cashBalance() - 30 * 20, after.cashBalance());
+        Assertions.assertEquals(this.exposureRepository.aggregate().block(), after);
+        Assertions.assertEquals(ExposureConsistencyCheck.Result.CONSISTENT, this.exposureConsistencyCheck.check().block());
+    }
+
+    @Test
+    void testCheckCorrectsBalancesChangedOutsideTrades() {
+        var customer = new Customer();
+        customer.setName("Exposure");
+        customer.setBalance(7_000);
+        this.customerRepository.save(customer).block();
+
+        Assertions.assertEquals(ExposureConsistencyCheck.Result.INCONSISTENT, this.exposureConsistencyCheck.check().block());
+        Assertions.assertEquals(this.exposureRepository.aggregate().block(), getPositions());
+        Assertions.assertEquals(ExposureConsistencyCheck.Result.CONSISTENT, this.exposureConsistencyCheck.check().block());
+    }
+
+    private FirmPositions getPositions() {
+        return this.client.get()
+                .uri("/positions")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(FirmPositions.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,133 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.TradeCustomerServiceWebfluxApplication;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerImportService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeLaneExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+class TradeJournalReplayTests {
+
+    private static final List<Integer> CUSTOMERS = List.of(1, 2, 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplayRebuildsTheBook() {
+        List<CustomerInformation> book;
+        long journaled;
+        try (var context = this.start(false)) {
+            var lanes = context.getBean(TradeLaneExecutor.class);
+            var random = new Random(42);
+            journaled = 0;
+            for (int i = 0; i < 500; i++) {
+                var request = new StockTradeRequest(Ticker.values()[random.nextInt(Ticker.values().length)], 1 + random.nextInt(50),
+                        1 + random.nextInt(5), random.nextInt(3) == 0 ? TradeAction.SELL : TradeAction.BUY);
+                // rejected trades are not committed, so they are not journaled either
+                var executed = lanes.trade(CUSTOMERS.get(random.nextInt(CUSTOMERS.size())), request)
+                        .map(response -> 1L)
+                        .onErrorResume(e -> e instanceof InsufficientBalanceException || e instanceof InsufficientSharesException, e -> Mono.just(0L))
+                        .block();
+                journaled += executed;
+            }
+            book = this.book(context);
+        }
+        Assertions.assertTrue(journaled > 100);
+        var records = 0L;
+        try (var reader = new TradeJournalReader(this.directory)) {
+            while (reader.hasNext()) {
+                reader.next();
+                records++;
+            }
+        }
+        Assertions.assertEquals(journaled, records);
+
+        try (var context = this.start(true)) {
+            Assertions.assertEquals(book, this.book(context));
+        }
+    }
+
+    @Test
+    void testReplayFailsOnARecordThatDoesNotApply() {
+        // customer 99 is not created by sql/data.sql, as happens to imported customers
+        try (var journal = new TradeJournal(this.directory, 64, FsyncPolicy.PER_COUNT, 64, Duration.ofMillis(10))) {
+            journal.append(1, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY));
+            journal.append(99, new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY));
+        }
+
+        var failure = Assertions.assertThrows(Exception.class, () -> this.start(true).close());
+        Assertions.assertTrue(NestedExceptionUtils.getMostSpecificCause(failure).getMessage().contains("Journal record 2 does not apply to customer 99"));
+    }
+
+    @Test
+    void testImportIsRefusedWhileTradesAreJournaled() {
+        try (var context = this.start(false)) {
+            var importService = context.getBean(CustomerImportService.class);
+
+            StepVerifier.create(importService.importCsv(Flux.just("name,balance", "Ivan,100")))
+                    .verifyErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.CONFLICT, ((ResponseStatusException) e).getStatusCode()));
+            StepVerifier.create(importService.importNdjson(Flux.just("{\"name\":\"Ivan\",\"balance\":100}")))
+                    .verifyError(ResponseStatusException.class);
+        }
+    }
+
+    @Test
+    void testSnapshotIsNotLoadedUnderAReplayedJournal() {
+        var failure = Assertions.assertThrows(Exception.class,
+                () -> this.start(true, "database.snapshot.load-path=" + this.directory.resolve("book.snapshot").toAbsolutePath()).close());
+        Assertions.assertTrue(NestedExceptionUtils.getMostSpecificCause(failure).getMessage().startsWith("A book snapshot cannot be loaded"));
+    }
+
+    @Test
+    void testReplayIsRefusedOnAnExistingSchema() {
+        var url = "spring.r2dbc.url=r2dbc:h2:mem:///existing-schema?options=DB_CLOSE_DELAY=-1";
+        this.start(false, url).close();
+
+        // the tables still hold the balances of the first run, which the journal has already been applied to
+        var failure = Assertions.assertThrows(Exception.class, () -> this.start(true, url, "database.schema.skip-if-present=true").close());
+        Assertions.assertTrue(NestedExceptionUtils.getMostSpecificCause(failure).getMessage().contains("skipped on an existing schema"));
+    }
+
+    private ConfigurableApplicationContext start(boolean replay, String... properties) {
+        return new SpringApplicationBuilder(TradeCustomerServiceWebfluxApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.rsocket.server.port=0",
+                        "spring.r2dbc.generate-unique-name=true",
+                        "trade.journal.enabled=true",
+                        "trade.journal.directory=" + this.directory.toAbsolutePath(),
+                        "trade.journal.segment-records=64",
+                        "trade.journal.replay-on-startup=" + replay)
+                .properties(properties)
+                .run();
+    }
+
+    private List<CustomerInformation> book(ConfigurableApplicationContext context) {
+        var customerService = context.getBean(CustomerService.class);
+        return CUSTOMERS.stream().map(customerId -> customerService.getCustomerInformation(customerId).block()).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class TradeJournalTests {
+
+    private static final int SEGMENT_RECORDS = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordsAreReadBackAcrossSegments() {
+        try (var journal = open()) {
+            for (int i = 0; i < 40; i++) {
+                journal.append(i, new StockTradeRequest(Ticker.values()[i % Ticker.values().length], 100 + i, i + 1, i % 2 == 0 ? TradeAction.BUY : TradeAction.SELL));
+            }
+        }
+
+        var records = readAll();
+        Assertions.assertEquals(40, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            var record = records.get(i);
+            Assertions.assertEquals(i + 1, record.sequence());
+            Assertions.assertEquals(i, record.customerId());
+            Assertions.assertEquals(100 + i, record.request().price());
+            Assertions.assertEquals(i + 1, record.request().quantity());
+        }
+    }
+
+    @Test
+    void testTornRecordEndsJournalAndIsOverwrittenOnReopen() throws IOException {
+        var request = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+        try (var journal = open()) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(1, request);
+            }
+        }
+
+        // simulate a write torn by a crash in the middle of the seventh record
+        var segment = TradeJournal.segments(this.directory).get(0);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), 6L * TradeJournal.RECORD_SIZE + 20);
+        }
+        Assertions.assertEquals(6, readAll().size());
+
+        try (var journal = open()) {
+            Assertions.assertEquals(7, journal.append(2, request));
+        }
+        var records = readAll();
+        Assertions.assertEquals(7, records.size());
+        Assertions.assertEquals(2, records.get(6).customerId());
+    }
+
+    private TradeJournal open() {
+        return new TradeJournal(this.directory, SEGMENT_RECORDS, FsyncPolicy.PER_COUNT, 4, Duration.ofMillis(10));
+    }
+
+    private List<JournalRecord> readAll() {
+        var records = new ArrayList<JournalRecord>();
+        try (var reader = new TradeJournalReader(this.directory)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+}
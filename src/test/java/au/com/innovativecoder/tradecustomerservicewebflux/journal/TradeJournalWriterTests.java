@@ -0,0 +1,84 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.journal;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.TradingOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class TradeJournalWriterTests {
+
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.APPLE, 110, 5, TradeAction.SELL);
+
+    @TempDir
+    Path directory;
+
+    private TradeJournalWriter writer;
+
+    @BeforeEach
+    void open() {
+        this.writer = new TradeJournalWriter(new TradeJournalProperties(true, this.directory, 64, FsyncPolicy.PER_TRADE, 1,
+                Duration.ofMillis(10), 2, false));
+    }
+
+    @AfterEach
+    void close() {
+        this.writer.close();
+    }
+
+    @Test
+    void testTradeIsJournaledBeforeItsResultIsEmitted() {
+        StepVerifier.create(this.writer.journal(1, List.of(BUY, SELL), Mono.just("executed")))
+                .expectNext("executed")
+                .verifyComplete();
+
+        // the records are on disk while the writer is still open
+        Assertions.assertEquals(List.of(BUY, SELL), this.readAll().stream().map(JournalRecord::request).toList());
+    }
+
+    @Test
+    void testTradeThatIsNotExecutedIsNotJournaled() {
+        StepVerifier.create(this.writer.journal(1, List.of(BUY), Mono.error(new InsufficientBalanceException(1))))
+                .verifyError(InsufficientBalanceException.class);
+        StepVerifier.create(this.writer.journal(1, List.of(BUY), Mono.empty()))
+                .verifyComplete();
+
+        Assertions.assertEquals(List.of(), this.readAll());
+    }
+
+    @Test
+    void testTradesBeyondTheCapacityAreRejectedBeforeTheyExecute() {
+        // a trade that is still executing holds its records until it has been journaled or has failed
+        var executing = this.writer.journal(1, List.of(BUY, SELL), Mono.never()).subscribe();
+
+        StepVerifier.create(this.writer.journal(2, List.of(BUY), Mono.fromCallable(() -> Assertions.fail("executed"))))
+                .verifyError(TradingOverloadedException.class);
+
+        executing.dispose();
+        StepVerifier.create(this.writer.journal(2, List.of(BUY), Mono.just("executed")))
+                .expectNext("executed")
+                .verifyComplete();
+    }
+
+    private List<JournalRecord> readAll() {
+        var records = new ArrayList<JournalRecord>();
+        try (var reader = new TradeJournalReader(this.directory)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+}
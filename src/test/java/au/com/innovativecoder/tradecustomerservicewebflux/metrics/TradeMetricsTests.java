@@ -0,0 +1,67 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.metrics;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+class TradeMetricsTests {
+
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY);
+    private static final StockTradeRequest SELL = new StockTradeRequest(Ticker.GOOGLE, 100, 5, TradeAction.SELL);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TradeMetrics tradeMetrics = new TradeMetrics(this.registry);
+
+    @Test
+    void testTimeRecordsEverySubscriptionOnce() {
+        var stage = this.tradeMetrics.time(TradeMetrics.Stage.HISTORY, Mono.just(1));
+        StepVerifier.create(stage).expectNext(1).verifyComplete();
+        StepVerifier.create(stage).expectNext(1).verifyComplete();
+        StepVerifier.create(this.tradeMetrics.time(TradeMetrics.Stage.HISTORY, Mono.error(new IllegalStateException()))).verifyError();
+        StepVerifier.create(this.tradeMetrics.time(TradeMetrics.Stage.HISTORY, Mono.never())).thenCancel().verify();
+
+        Assertions.assertEquals(4, this.registry.get("trade.stage").tag("stage", "history").timer().count());
+        Assertions.assertEquals(0, this.registry.get("trade.stage").tag("stage", "balance-update").timer().count());
+    }
+
+    @Test
+    void testCountOutcomeCountsSuccessAndBusinessRejections() {
+        StepVerifier.create(this.tradeMetrics.countOutcome(BUY, Mono.just(1))).expectNext(1).verifyComplete();
+        StepVerifier.create(this.tradeMetrics.countOutcome(BUY, Mono.empty())).verifyComplete();
+        StepVerifier.create(this.tradeMetrics.countOutcome(BUY, Mono.error(new InsufficientBalanceException(1)))).verifyError();
+        // failures that are not business rules are left to the HTTP server metrics
+        StepVerifier.create(this.tradeMetrics.countOutcome(BUY, Mono.error(new IllegalStateException()))).verifyError();
+
+        Assertions.assertEquals(2, this.count("ok", BUY));
+        Assertions.assertEquals(1, this.count("insufficient-balance", BUY));
+        Assertions.assertEquals(3, this.registry.get("trade.validation").counters().stream().mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    void testCountOutcomesCountsEveryLeg() {
+        StepVerifier.create(this.tradeMetrics.countOutcomes(List.of(BUY, SELL), Mono.just(1))).expectNext(1).verifyComplete();
+        StepVerifier.create(this.tradeMetrics.countOutcomes(List.of(BUY, SELL), Mono.error(new InsufficientBalanceException(1)))).verifyError();
+
+        Assertions.assertEquals(1, this.count("ok", BUY));
+        Assertions.assertEquals(1, this.count("ok", SELL));
+        Assertions.assertEquals(1, this.count("insufficient-balance", BUY));
+        Assertions.assertEquals(1, this.count("insufficient-balance", SELL));
+    }
+
+    private double count(String outcome, StockTradeRequest request) {
+        return this.registry.get("trade.validation")
+                .tag("outcome", outcome)
+                .tag("ticker", request.ticker().name())
+                .tag("action", request.action().name())
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "customer.cache.enabled=false"})
+@AutoConfigureWebTestClient
+class DatabaseWarmupTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private ReadinessProbe readinessProbe;
+
+    @Value("${spring.r2dbc.pool.initial-size}")
+    private int initialSize;
+
+    @Test
+    void testPoolIsWarmedUpBeforeTheApplicationIsReady() {
+        var ready = this.readinessProbe.poolAtReadiness;
+        Assertions.assertNotNull(ready, "readiness was never reported");
+        Assertions.assertEquals(this.initialSize, this.readinessProbe.warmedUpAtReadiness);
+        Assertions.assertEquals(new PoolState(this.initialSize, 0, this.initialSize), ready);
+    }
+
+    @Test
+    void testFirstRequestUsesAWarmConnection() {
+        this.client.get()
+                .uri("/customers/{customerId}", 1)
+                .exchange()
+                .expectStatus().isOk();
+
+        // the request borrowed one of the connections opened on startup instead of creating one
+        Assertions.assertEquals(this.initialSize, PoolState.of(pool(this.connectionFactory)).allocated());
+    }
+
+    private static ConnectionPool pool(ConnectionFactory connectionFactory) {
+        return (ConnectionPool) ((Wrapped<?>) connectionFactory).unwrap();
+    }
+
+    private record PoolState(int allocated, int acquired, int idle) {
+
+        static PoolState of(ConnectionPool pool) {
+            var metrics = pool.getMetrics().orElseThrow();
+            return new PoolState(metrics.allocatedSize(), metrics.acquiredSize(), metrics.idleSize());
+        }
+    }
+
+    @TestConfiguration
+    static class ReadinessConfiguration {
+
+        @Bean
+        ReadinessProbe readinessProbe(DatabaseWarmup databaseWarmup, ConnectionFactory connectionFactory) {
+            return new ReadinessProbe(databaseWarmup, connectionFactory);
+        }
+    }
+
+    /**
+     * Captures the warm-up and the pool the moment the application reports that it accepts traffic.
+     */
+    static class ReadinessProbe {
+
+        private final DatabaseWarmup databaseWarmup;
+        private final ConnectionFactory connectionFactory;
+        private volatile int warmedUpAtReadiness;
+        private volatile PoolState poolAtReadiness;
+
+        ReadinessProbe(DatabaseWarmup databaseWarmup, ConnectionFactory connectionFactory) {
+            this.databaseWarmup = databaseWarmup;
+            this.connectionFactory = connectionFactory;
+        }
+
+        @EventListener
+        public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+            if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+                this.warmedUpAtReadiness = this.databaseWarmup.warmedUpConnections();
+                this.poolAtReadiness = PoolState.of(pool(this.connectionFactory));
+            }
+        }
+    }
+}
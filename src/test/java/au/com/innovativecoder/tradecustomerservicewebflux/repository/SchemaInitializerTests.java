@@ -0,0 +1,55 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+@SpringBootTest(properties = "spring.r2dbc.generate-unique-name=true")
+@AutoConfigureWebTestClient
+@ActiveProfiles("startup")
+class SchemaInitializerTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void testStartupProfileSeedsTheSchemaBeforeTheFirstTrade() {
+        var response = this.client.post()
+                .uri("/customers/{customerId}/trade", 2)
+                .bodyValue(new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(StockTradeResponse.class)
+                .returnResult()
+                .getResponseBody();
+        Assertions.assertNotNull(response);
+
+        // the seeded rows are in place, and the trade was applied to them rather than wiped by a late initialization
+        var customers = this.databaseClient.sql("SELECT name, balance FROM customer ORDER BY id")
+                .map(row -> row.get("name", String.class) + ":" + row.get("balance", Integer.class))
+                .all()
+                .collectList()
+                .block();
+        Assertions.assertEquals(List.of("Sam:10000", "Mike:9990", "John:10000"), customers);
+        Assertions.assertEquals(9_990, response.balance());
+        var holding = this.databaseClient.sql("SELECT quantity FROM portfolio_item WHERE customer_id = 2 AND ticker = 'APPLE'")
+                .map(row -> row.get("quantity", Integer.class))
+                .one()
+                .block();
+        Assertions.assertEquals(1, holding);
+    }
+}
@@ -0,0 +1,129 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.repository;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true"})
+class TradeRepositoryTests {
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void testDebitBalanceOnlyWhenCovered() {
+        var customerId = this.customer(1_000);
+
+        StepVerifier.create(this.tradeRepository.debitBalance(customerId, 400)).expectNext(600).verifyComplete();
+        StepVerifier.create(this.tradeRepository.debitBalance(customerId, 600)).expectNext(0).verifyComplete();
+        // a failed guard changes nothing and emits nothing
+        StepVerifier.create(this.tradeRepository.debitBalance(customerId, 1)).verifyComplete();
+        StepVerifier.create(this.tradeRepository.debitBalance(Integer.MAX_VALUE, 1)).verifyComplete();
+
+        Assertions.assertEquals(0, this.balance(customerId));
+    }
+
+    @Test
+    void testCreditBalance() {
+        var customerId = this.customer(1_000);
+
+        StepVerifier.create(this.tradeRepository.creditBalance(customerId, 250)).expectNext(1_250).verifyComplete();
+        StepVerifier.create(this.tradeRepository.creditBalance(Integer.MAX_VALUE, 250)).verifyComplete();
+
+        Assertions.assertEquals(1_250, this.balance(customerId));
+    }
+
+    @Test
+    void testAddAndRemoveShares() {
+        var customerId = this.customer(1_000);
+
+        // the first purchase creates the holding, later ones add to it
+        StepVerifier.create(this.tradeRepository.addShares(customerId, Ticker.APPLE, 5)).expectNext(5).verifyComplete();
+        StepVerifier.create(this.tradeRepository.addShares(customerId, Ticker.APPLE, 3)).expectNext(8).verifyComplete();
+        StepVerifier.create(this.tradeRepository.removeShares(customerId, Ticker.APPLE, 6)).expectNext(2).verifyComplete();
+        StepVerifier.create(this.tradeRepository.removeShares(customerId, Ticker.APPLE, 3)).verifyComplete();
+        StepVerifier.create(this.tradeRepository.removeShares(customerId, Ticker.GOOGLE, 1)).verifyComplete();
+        StepVerifier.create(this.tradeRepository.removeShares(customerId, Ticker.APPLE, 2)).expectNext(0).verifyComplete();
+
+        Assertions.assertEquals(Map.of(Ticker.APPLE, 0), this.holdings(customerId));
+    }
+
+    @Test
+    void testChangeBalanceAndHoldingsOfABasket() {
+        var customerId = this.customer(1_000);
+        this.tradeRepository.addShares(customerId, Ticker.APPLE, 5).block();
+
+        StepVerifier.create(this.tradeRepository.changeBalance(customerId, -1_000)).expectNext(0).verifyComplete();
+        StepVerifier.create(this.tradeRepository.changeBalance(customerId, -1)).verifyComplete();
+
+        var changes = new LinkedHashMap<Ticker, Integer>();
+        changes.put(Ticker.APPLE, -5);
+        changes.put(Ticker.GOOGLE, 4);
+        StepVerifier.create(this.tradeRepository.changeHoldings(customerId, changes)).expectNext(2L).verifyComplete();
+        // every change is guarded on its own, so the count tells which of them did not hold
+        changes.put(Ticker.APPLE, -1);
+        StepVerifier.create(this.tradeRepository.changeHoldings(customerId, changes)).expectNext(1L).verifyComplete();
+
+        Assertions.assertEquals(Map.of(Ticker.APPLE, 0, Ticker.GOOGLE, 8), this.holdings(customerId));
+    }
+
+    @Test
+    void testInsertTrades() {
+        var customerId = this.customer(1_000);
+
+        StepVerifier.create(this.tradeRepository.insertTrades(customerId, List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.APPLE, 110, 5, TradeAction.SELL))))
+                .expectNext(2L)
+                .verifyComplete();
+
+        var trades = this.databaseClient.sql("SELECT action, price FROM trade WHERE customer_id = :customerId ORDER BY id")
+                .bind("customerId", customerId)
+                .map(row -> row.get("action", String.class) + "@" + row.get("price", Integer.class))
+                .all()
+                .collectList()
+                .block();
+        Assertions.assertEquals(List.of("BUY@100", "SELL@110"), trades);
+    }
+
+    private Integer customer(int balance) {
+        var customer = new Customer();
+        customer.setName("Repository");
+        customer.setBalance(balance);
+        return this.customerRepository.save(customer).map(Customer::getId).block();
+    }
+
+    private int balance(Integer customerId) {
+        return this.databaseClient.sql("SELECT balance FROM customer WHERE id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> row.get("balance", Integer.class))
+                .one()
+                .block();
+    }
+
+    private Map<Ticker, Integer> holdings(Integer customerId) {
+        return this.databaseClient.sql("SELECT ticker, quantity FROM portfolio_item WHERE customer_id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> Map.entry(Ticker.valueOf(row.get("ticker", String.class)), row.get("quantity", Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+    }
+}
@@ -0,0 +1,249 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerInformationRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.admission.enabled=false", "trade.basket.max-legs=4"})
+@AutoConfigureWebTestClient
+class BasketTradeServiceTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TradeLaneExecutor tradeLaneExecutor;
+
+    @Autowired
+    private InterferingCustomerInformationRepository customerInformationRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void testBasketAppliesEveryLegInOrder() {
+        var customerId = this.customer(1_000);
+        this.tradeLaneExecutor.trade(customerId, new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY)).block();
+
+        // the buy of GOOGLE is only covered once the APPLE shares have been sold
+        var response = this.basket(customerId, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.SELL),
+                        new StockTradeRequest(Ticker.GOOGLE, 200, 4, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY))))
+                .expectStatus().isOk()
+                .expectBody(BasketTradeResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        Assertions.assertEquals(List.of(1_000, 200, 100), response.legs().stream().map(leg -> leg.balance()).toList());
+        Assertions.assertEquals(100, response.balance());
+        Assertions.assertEquals(List.of(new Holding(Ticker.APPLE, 1), new Holding(Ticker.GOOGLE, 4)), response.holdings());
+
+        var customer = this.customerInformation(customerId);
+        Assertions.assertEquals(100, customer.balance());
+        Assertions.assertTrue(customer.holdings().containsAll(response.holdings()));
+        Assertions.assertEquals(4, this.trades(customerId).size());
+    }
+
+    @Test
+    void testRejectedLegRollsBackTheBasket() {
+        var customerId = this.customer(1_000);
+
+        this.basket(customerId, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.GOOGLE, 100, 6, TradeAction.BUY))))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").isEqualTo("Insufficient Balance");
+        this.basket(customerId, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.APPLE, 100, 6, TradeAction.SELL))))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").isEqualTo("Insufficient Shares");
+
+        var customer = this.customerInformation(customerId);
+        Assertions.assertEquals(1_000, customer.balance());
+        Assertions.assertEquals(List.of(), customer.holdings());
+        Assertions.assertTrue(this.trades(customerId).isEmpty());
+    }
+
+    @Test
+    void testBalanceChangedSinceTheReadRollsBackTheBasket() {
+        var customerId = this.customer(1_000);
+
+        // the basket is covered by the balance it reads, but not by the balance left once another client has debited it
+        this.customerInformationRepository.afterNextRead(customerId, "UPDATE customer SET balance = balance - 500 WHERE id = :customerId");
+        this.basket(customerId, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.GOOGLE, 100, 4, TradeAction.BUY))))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").isEqualTo("Insufficient Balance");
+
+        Assertions.assertEquals(500, this.balance(customerId));
+        Assertions.assertEquals(List.of(), this.holdings(customerId));
+        Assertions.assertEquals(0, this.tradeCount(customerId));
+    }
+
+    @Test
+    void testHoldingChangedSinceTheReadRollsBackTheBasket() {
+        var customerId = this.customer(1_000);
+        this.tradeLaneExecutor.trade(customerId, new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY)).block();
+
+        // the balance is credited before the holdings are written, so the guard of the holdings has to undo it
+        this.customerInformationRepository.afterNextRead(customerId,
+                "UPDATE portfolio_item SET quantity = 2 WHERE customer_id = :customerId AND ticker = 'APPLE'");
+        this.basket(customerId, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.SELL),
+                        new StockTradeRequest(Ticker.GOOGLE, 100, 2, TradeAction.BUY))))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").isEqualTo("Insufficient Shares");
+
+        Assertions.assertEquals(500, this.balance(customerId));
+        Assertions.assertEquals(List.of(new Holding(Ticker.APPLE, 2)), this.holdings(customerId));
+        Assertions.assertEquals(1, this.tradeCount(customerId));
+    }
+
+    @Test
+    void testInvalidBasketIsRejected() {
+        var customerId = this.customer(1_000);
+        var leg = new StockTradeRequest(Ticker.APPLE, 1, 1, TradeAction.BUY);
+
+        this.basket(customerId, new BasketTradeRequest(List.of())).expectStatus().isBadRequest();
+        this.basket(customerId, new BasketTradeRequest(Collections.nCopies(5, leg))).expectStatus().isBadRequest();
+        this.basket(customerId, new BasketTradeRequest(List.of(leg, new StockTradeRequest(Ticker.APPLE, 1, null, TradeAction.BUY))))
+                .expectStatus().isBadRequest();
+        this.basket(Integer.MAX_VALUE, new BasketTradeRequest(List.of(leg))).expectStatus().isNotFound();
+
+        Assertions.assertEquals(1_000, this.customerInformation(customerId).balance());
+    }
+
+    private Integer customer(int balance) {
+        var customer = new Customer();
+        customer.setName("Basket");
+        customer.setBalance(balance);
+        return this.customerRepository.save(customer).map(Customer::getId).block();
+    }
+
+    private int balance(Integer customerId) {
+        return this.databaseClient.sql("SELECT balance FROM customer WHERE id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> row.get("balance", Integer.class))
+                .one()
+                .block();
+    }
+
+    private List<Holding> holdings(Integer customerId) {
+        return this.databaseClient.sql("SELECT ticker, quantity FROM portfolio_item WHERE customer_id = :customerId ORDER BY id")
+                .bind("customerId", customerId)
+                .map(row -> new Holding(Ticker.valueOf(row.get("ticker", String.class)), row.get("quantity", Integer.class)))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private long tradeCount(Integer customerId) {
+        return this.databaseClient.sql("SELECT COUNT(*) AS trades FROM trade WHERE customer_id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> row.get("trades", Long.class))
+                .one()
+                .block();
+    }
+
+    private WebTestClient.ResponseSpec basket(Integer customerId, BasketTradeRequest request) {
+        return this.client.post()
+                .uri("/customers/{customerId}/basket", customerId)
+                .bodyValue(request)
+                .exchange();
+    }
+
+    private CustomerInformation customerInformation(Integer customerId) {
+        return this.client.get()
+                .uri("/customers/{customerId}", customerId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CustomerInformation.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private List<TradeHistoryItem> trades(Integer customerId) {
+        return this.client.get()
+                .uri("/customers/{customerId}/trades", customerId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TradeHistoryItem.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @TestConfiguration
+    static class InterferenceConfiguration {
+
+        @Bean
+        @Primary
+        InterferingCustomerInformationRepository interferingCustomerInformationRepository(DatabaseClient databaseClient) {
+            return new InterferingCustomerInformationRepository(databaseClient);
+        }
+    }
+
+    /**
+     * Lets another client change a customer right after the basket has read it. The statement runs outside of the
+     * basket's transaction and commits before the basket writes.
+     */
+    static class InterferingCustomerInformationRepository extends CustomerInformationRepository {
+
+        private final DatabaseClient databaseClient;
+        private final Map<Integer, String> statements = new ConcurrentHashMap<>();
+
+        InterferingCustomerInformationRepository(DatabaseClient databaseClient) {
+            super(databaseClient);
+            this.databaseClient = databaseClient;
+        }
+
+        void afterNextRead(Integer customerId, String statement) {
+            this.statements.put(customerId, statement);
+        }
+
+        @Override
+        public Mono<CustomerInformation> findById(Integer customerId) {
+            return super.findById(customerId).flatMap(customer -> {
+                var statement = this.statements.remove(customerId);
+                if (statement == null) {
+                    return Mono.just(customer);
+                }
+                return this.databaseClient.sql(statement)
+                        .bind("customerId", customerId)
+                        .then()
+                        .contextWrite(context -> Context.empty())
+                        .thenReturn(customer);
+            });
+        }
+    }
+}
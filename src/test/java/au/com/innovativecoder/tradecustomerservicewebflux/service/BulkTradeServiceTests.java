@@ -0,0 +1,72 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerTradeResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.bulk.concurrency=4", "trade.bulk.prefetch=8"})
+class BulkTradeServiceTests {
+
+    private static final List<Integer> CUSTOMERS = List.of(1, 2, 3);
+    private static final int TRADES_PER_CUSTOMER = 50;
+
+    @Autowired
+    private BulkTradeService bulkTradeService;
+
+    @Test
+    void testTradesOfACustomerExecuteInStreamOrder() {
+        // the customers' trades are interleaved in the stream, and every customer buys one share at 1, 2, 3, ...
+        var requests = Flux.range(1, TRADES_PER_CUSTOMER)
+                .concatMap(price -> Flux.fromIterable(CUSTOMERS)
+                        .map(customerId -> new CustomerTradeRequest(customerId, new StockTradeRequest(Ticker.AMAZON, price, 1, TradeAction.BUY))));
+
+        var results = this.bulkTradeService.trade(requests).collectList().block();
+
+        Assertions.assertEquals(CUSTOMERS.size() * TRADES_PER_CUSTOMER, results.size());
+        Assertions.assertTrue(results.stream().allMatch(result -> result.problem() == null));
+        var expectedBalances = new ArrayList<Integer>();
+        var balance = 10_000;
+        for (int price = 1; price <= TRADES_PER_CUSTOMER; price++) {
+            balance -= price;
+            expectedBalances.add(balance);
+        }
+        for (var customerId : CUSTOMERS) {
+            var trades = results.stream().filter(result -> result.customerId().equals(customerId)).map(CustomerTradeResult::response).toList();
+            // results of a customer arrive in stream order, and each balance shows every earlier trade was applied first
+            Assertions.assertEquals(IntStream.rangeClosed(1, TRADES_PER_CUSTOMER).boxed().toList(), trades.stream().map(trade -> trade.price()).toList());
+            Assertions.assertEquals(expectedBalances, trades.stream().map(trade -> trade.balance()).toList());
+        }
+    }
+
+    @Test
+    void testRejectionDoesNotStopTheCustomersLaterTrades() {
+        var results = this.bulkTradeService.trade(Flux.just(
+                        new CustomerTradeRequest(2, new StockTradeRequest(Ticker.MICROSOFT, 100, 10, TradeAction.BUY)),
+                        new CustomerTradeRequest(2, new StockTradeRequest(Ticker.MICROSOFT, 100, 11, TradeAction.SELL)),
+                        new CustomerTradeRequest(2, new StockTradeRequest(Ticker.MICROSOFT, 100, 10, TradeAction.SELL)),
+                        new CustomerTradeRequest(null, new StockTradeRequest(Ticker.MICROSOFT, 100, 1, TradeAction.BUY))))
+                .collectList()
+                .block();
+
+        var customerResults = results.stream().filter(result -> Integer.valueOf(2).equals(result.customerId())).toList();
+        Assertions.assertEquals(3, customerResults.size());
+        Assertions.assertEquals(10, customerResults.get(0).response().quantity());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), customerResults.get(1).problem().getStatus());
+        Assertions.assertEquals("Insufficient Shares", customerResults.get(1).problem().getTitle());
+        Assertions.assertEquals(TradeAction.SELL, customerResults.get(2).response().action());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(),
+                results.stream().filter(result -> result.customerId() == null).findFirst().orElseThrow().problem().getStatus());
+    }
+}
@@ -0,0 +1,93 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.FirmPositions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "customer.import.batch-size=2", "trade.exposure.check-enabled=false"})
+@AutoConfigureWebTestClient
+class CustomerImportServiceTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void testCsvImportReportsRowErrorsAndProgress() {
+        var before = getPositions();
+        var csv = """
+                name,balance,APPLE,google
+                "Smith, Anna",1000,5,
+                Bob,-1,,
+                Carol,2000,,3
+
+                Dave,abc,,
+                Erin,500,1,1
+                """;
+        var results = importBody(MediaType.parseMediaType("text/csv"), csv);
+
+        Assertions.assertEquals(List.of(
+                CustomerImportResult.failure(3, "Balance must be zero or more"),
+                CustomerImportResult.progress(1, 1),
+                CustomerImportResult.failure(6, "Invalid number: For input string: \"abc\""),
+                CustomerImportResult.progress(2, 2),
+                CustomerImportResult.progress(3, 2)
+        ), results);
+
+        var after = getPositions();
+        Assertions.assertEquals(before.cashBalance() + 3_500, after.cashBalance());
+        Assertions.assertEquals(before.positions().get(1).quantity() + 6, after.positions().get(1).quantity());
+        Assertions.assertEquals(before.positions().get(4).quantity() + 4, after.positions().get(4).quantity());
+    }
+
+    @Test
+    void testNdjsonImportReportsMalformedLines() {
+        var ndjson = """
+                {"name":"Frank","balance":100,"holdings":[{"ticker":"AMAZON","quantity":2}]}
+                {"name":"Grace","balance":100,"holdings":[{"ticker":"NOPE","quantity":2}]}
+                """;
+        var results = importBody(MediaType.APPLICATION_NDJSON, ndjson);
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals(2L, results.get(0).line());
+        Assertions.assertTrue(results.get(0).error().startsWith("Invalid JSON"));
+        Assertions.assertEquals(CustomerImportResult.progress(1, 1), results.get(1));
+    }
+
+    @Test
+    void testCsvWithUnknownColumnIsRejected() {
+        var results = importBody(MediaType.parseMediaType("text/csv"), "name,balance,TESLA\nHeidi,1,1\n");
+
+        Assertions.assertEquals(List.of(CustomerImportResult.failure(1, "Column TESLA is neither name, balance nor a ticker")), results);
+    }
+
+    private List<CustomerImportResult> importBody(MediaType contentType, String body) {
+        return this.client.post()
+                .uri("/customers/import")
+                .contentType(contentType)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CustomerImportResult.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private FirmPositions getPositions() {
+        return this.client.get()
+                .uri("/positions")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(FirmPositions.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
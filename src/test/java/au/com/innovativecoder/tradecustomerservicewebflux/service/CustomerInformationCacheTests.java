@@ -0,0 +1,86 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+@SpringBootTest
+class CustomerInformationCacheTests {
+
+    private static final int TRADES = 200;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private TradeLaneExecutor tradeLaneExecutor;
+
+    @Autowired
+    private CustomerInformationCache customerInformationCache;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void testReadsNeverReturnBalanceOlderThanLastCommittedTrade() {
+        var customer = new Customer();
+        customer.setName("Cache");
+        customer.setBalance(100_000);
+        var customerId = this.customerRepository.save(customer).map(Customer::getId).block();
+
+        // readers keep hitting the cache while trades commit, so loads race with invalidations
+        var readers = Flux.interval(Duration.ofMillis(1))
+                .onBackpressureDrop()
+                .flatMap(i -> this.customerService.getCustomerInformation(customerId), 16)
+                .subscribeOn(Schedulers.parallel())
+                .subscribe();
+
+        try {
+            var buy = new StockTradeRequest(Ticker.GOOGLE, 3, 1, TradeAction.BUY);
+            for (int i = 0; i < TRADES; i++) {
+                var response = this.tradeLaneExecutor.trade(customerId, buy).block();
+                var information = this.customerService.getCustomerInformation(customerId).block();
+                Assertions.assertNotNull(response);
+                Assertions.assertNotNull(information);
+                Assertions.assertEquals(response.balance(), information.balance());
+                Assertions.assertEquals(i + 1, information.holdings().get(0).quantity());
+            }
+        } finally {
+            readers.dispose();
+        }
+
+        var statistics = this.customerInformationCache.statistics();
+        Assertions.assertTrue(statistics.hitCount() > 0);
+        Assertions.assertTrue(statistics.missCount() > 0);
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() {
+        var customer = new Customer();
+        customer.setName("Coalesce");
+        customer.setBalance(5_000);
+        var customerId = this.customerRepository.save(customer).map(Customer::getId).block();
+
+        var before = this.customerInformationCache.statistics();
+        var balances = Flux.range(0, 64)
+                .flatMap(i -> this.customerService.getCustomerInformation(customerId).subscribeOn(Schedulers.parallel()))
+                .map(information -> information.balance())
+                .collectList()
+                .block();
+        var after = this.customerInformationCache.statistics();
+
+        Assertions.assertNotNull(balances);
+        Assertions.assertTrue(balances.stream().allMatch(balance -> balance == 5_000));
+        Assertions.assertEquals(1, after.missCount() - before.missCount());
+    }
+}
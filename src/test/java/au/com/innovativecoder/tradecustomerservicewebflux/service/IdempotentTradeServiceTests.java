@@ -0,0 +1,118 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.IdempotencyProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.IdempotencyKeyReusedException;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.IdempotencyKeyRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.idempotency.persistent=true"})
+class IdempotentTradeServiceTests {
+
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY);
+
+    @Autowired
+    private IdempotentTradeService idempotentTradeService;
+
+    @Autowired
+    private TradeLaneExecutor tradeLaneExecutor;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @Autowired
+    private TradeProperties tradeProperties;
+
+    @Test
+    void testPersistentKeysAreRejectedWithTheMemoryEngine() {
+        var properties = new IdempotencyProperties(100, Duration.ofMinutes(10), true);
+        var memory = new TradeProperties(TradeProperties.Engine.MEMORY, TradeProperties.WritePath.CONDITIONAL, TradeProperties.Backend.R2DBC);
+
+        var failure = Assertions.assertThrows(IllegalStateException.class,
+                () -> new IdempotentTradeService(this.tradeLaneExecutor, this.idempotencyKeyRepository, properties, this.shardRouting, memory));
+        Assertions.assertTrue(failure.getMessage().contains("memory trade engine"));
+    }
+
+    @Test
+    void testConcurrentDuplicatesExecuteOnce() {
+        var customerId = newCustomer();
+
+        var responses = Flux.range(0, 32)
+                .flatMap(i -> this.idempotentTradeService.trade(customerId, BUY, "order-1").subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .block();
+        var repeat = this.idempotentTradeService.trade(customerId, BUY, "order-1").block();
+
+        Assertions.assertNotNull(responses);
+        Assertions.assertEquals(32, responses.size());
+        Assertions.assertTrue(responses.stream().allMatch(response -> response.equals(repeat)));
+        Assertions.assertEquals(9_900, balance(customerId));
+    }
+
+    @Test
+    void testKeysAreScopedToCustomerAndTrade() {
+        var customerId = newCustomer();
+        var otherCustomerId = newCustomer();
+
+        this.idempotentTradeService.trade(customerId, BUY, "order-2").block();
+        this.idempotentTradeService.trade(otherCustomerId, BUY, "order-2").block();
+        this.idempotentTradeService.trade(customerId, BUY, null).block();
+
+        Assertions.assertEquals(9_800, balance(customerId));
+        Assertions.assertEquals(9_900, balance(otherCustomerId));
+        StepVerifier.create(this.idempotentTradeService.trade(customerId, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.BUY), "order-2"))
+                .expectError(IdempotencyKeyReusedException.class)
+                .verify();
+    }
+
+    @Test
+    void testPersistentKeysSurviveRestart() {
+        var customerId = newCustomer();
+        var first = this.idempotentTradeService.trade(customerId, BUY, "order-3").block();
+
+        // a new instance starts with an empty cache, as after a restart
+        var restarted = new IdempotentTradeService(this.tradeLaneExecutor, this.idempotencyKeyRepository,
+                new IdempotencyProperties(1000, Duration.ofMinutes(10), true), this.shardRouting, this.tradeProperties);
+        StockTradeResponse repeat;
+        try {
+            repeat = restarted.trade(customerId, BUY, "order-3").block();
+        } finally {
+            restarted.shutdown();
+        }
+
+        Assertions.assertEquals(first, repeat);
+        Assertions.assertEquals(9_900, balance(customerId));
+    }
+
+    private Integer newCustomer() {
+        var customer = new Customer();
+        customer.setName("Idempotent");
+        customer.setBalance(10_000);
+        return this.customerRepository.save(customer).map(Customer::getId).block();
+    }
+
+    private Integer balance(Integer customerId) {
+        return this.customerRepository.findById(customerId).map(Customer::getBalance).block();
+    }
+}
@@ -0,0 +1,104 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@SpringBootTest(properties = {"trade.backend=jdbc", "spring.r2dbc.url=r2dbc:h2:mem:///jdbc-backend",
+        "spring.datasource.url=jdbc:h2:mem:jdbc-backend;DB_CLOSE_DELAY=-1", "trade.admission.enabled=false"})
+@AutoConfigureWebTestClient
+class JdbcTradeBackendTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testTradesAreVisibleToBothBackends() {
+        var customerId = newCustomer();
+
+        trade(customerId, new StockTradeRequest(Ticker.AMAZON, 100, 5, TradeAction.BUY))
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(9_500);
+        trade(customerId, new StockTradeRequest(Ticker.AMAZON, 120, 2, TradeAction.SELL))
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(9_740);
+
+        this.client.get()
+                .uri("/customers/{customerId}", customerId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(9_740)
+                .jsonPath("$.holdings[0].ticker").isEqualTo("AMAZON")
+                .jsonPath("$.holdings[0].quantity").isEqualTo(3);
+        // the R2DBC repositories read the same database
+        Assertions.assertEquals(9_740, this.customerRepository.findById(customerId).block().getBalance());
+    }
+
+    @Test
+    void testRejectionsMatchTheReactiveBackend() {
+        var customerId = newCustomer();
+
+        trade(customerId, new StockTradeRequest(Ticker.GOOGLE, 100, 101, TradeAction.BUY))
+                .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+        trade(customerId, new StockTradeRequest(Ticker.GOOGLE, 100, 1, TradeAction.SELL))
+                .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+        trade(Integer.MAX_VALUE, new StockTradeRequest(Ticker.GOOGLE, 100, 1, TradeAction.BUY))
+                .expectStatus().isNotFound();
+
+        Assertions.assertEquals(10_000, this.customerRepository.findById(customerId).block().getBalance());
+    }
+
+    @Test
+    void testStagesAreTimedLikeTheReactiveBackend() {
+        var customerId = newCustomer();
+        var before = this.stageCounts();
+
+        trade(customerId, new StockTradeRequest(Ticker.MICROSOFT, 100, 2, TradeAction.BUY)).expectStatus().isOk();
+        trade(customerId, new StockTradeRequest(Ticker.MICROSOFT, 100, 1, TradeAction.SELL)).expectStatus().isOk();
+
+        var after = this.stageCounts();
+        Assertions.assertEquals(List.of(before.get(0) + 2, before.get(1) + 2, before.get(2) + 2), after);
+    }
+
+    private List<Long> stageCounts() {
+        return Stream.of("balance-update", "holding-update", "history")
+                .map(stage -> this.meterRegistry.get("trade.stage").tag("stage", stage).timer().count())
+                .toList();
+    }
+
+    private WebTestClient.ResponseSpec trade(Integer customerId, StockTradeRequest request) {
+        return this.client.post()
+                .uri("/customers/{customerId}/trade", customerId)
+                .bodyValue(request)
+                .exchange();
+    }
+
+    private Integer newCustomer() {
+        var customer = new Customer();
+        customer.setName("Jdbc");
+        customer.setBalance(10_000);
+        return this.customerRepository.save(customer).map(Customer::getId).block();
+    }
+}
@@ -0,0 +1,63 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeResponse;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientBalanceException;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.InsufficientSharesException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.engine=memory", "trade.book.flush-interval=1h"})
+class MemoryBasketTradeServiceTests {
+
+    @Autowired
+    private BasketTradeService basketTradeService;
+
+    @Autowired
+    private PositionBookEngine positionBookEngine;
+
+    @Test
+    void testBasketAppliesEveryLegInOrder() {
+        this.positionBookEngine.apply(1, new StockTradeRequest(Ticker.APPLE, 100, 50, TradeAction.BUY));
+
+        // the buy of GOOGLE is only covered once the APPLE shares have been sold
+        var response = this.basketTradeService.trade(1, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 50, TradeAction.SELL),
+                        new StockTradeRequest(Ticker.GOOGLE, 250, 40, TradeAction.BUY))))
+                .block();
+
+        Assertions.assertEquals(List.of(10_000, 0), response.legs().stream().map(StockTradeResponse::balance).toList());
+        Assertions.assertEquals(0, response.balance());
+        Assertions.assertEquals(new CustomerInformation(1, "Sam", 0, List.of(new Holding(Ticker.APPLE, 0), new Holding(Ticker.GOOGLE, 40))),
+                this.positionBookEngine.customerInformation(1));
+    }
+
+    @Test
+    void testRejectedLegLeavesTheBookUnchanged() {
+        StepVerifier.create(this.basketTradeService.trade(2, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 50, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.GOOGLE, 100, 60, TradeAction.BUY)))))
+                .verifyError(InsufficientBalanceException.class);
+        StepVerifier.create(this.basketTradeService.trade(2, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 50, TradeAction.BUY),
+                        new StockTradeRequest(Ticker.APPLE, 100, 51, TradeAction.SELL)))))
+                .verifyError(InsufficientSharesException.class);
+        StepVerifier.create(this.basketTradeService.trade(Integer.MAX_VALUE, new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY)))))
+                .verifyError(CustomerNotFoundException.class);
+
+        Assertions.assertEquals(new CustomerInformation(2, "Mike", 10_000, List.of()), this.positionBookEngine.customerInformation(2));
+    }
+}
@@ -0,0 +1,64 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.book.PositionBookEngine;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.BasketTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "trade.engine=memory", "trade.book.flush-interval=1h",
+        "trade.admission.enabled=false"})
+@AutoConfigureWebTestClient
+class MemoryTradeHistoryTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private PositionBookEngine positionBookEngine;
+
+    @Test
+    void testHistoryHoldsTheTradesOfTheBook() {
+        this.client.post()
+                .uri("/customers/{customerId}/trade", 1)
+                .bodyValue(new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.BUY))
+                .exchange()
+                .expectStatus().isOk();
+        this.client.post()
+                .uri("/customers/{customerId}/basket", 1)
+                .bodyValue(new BasketTradeRequest(List.of(
+                        new StockTradeRequest(Ticker.APPLE, 110, 2, TradeAction.SELL),
+                        new StockTradeRequest(Ticker.GOOGLE, 50, 1, TradeAction.BUY))))
+                .exchange()
+                .expectStatus().isOk();
+        // a rejected trade leaves nothing to write
+        this.client.post()
+                .uri("/customers/{customerId}/trade", 1)
+                .bodyValue(new StockTradeRequest(Ticker.AMAZON, 100, 1, TradeAction.SELL))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // stopping the engine flushes everything it holds
+        this.positionBookEngine.stop();
+        this.positionBookEngine.start();
+
+        var history = this.client.get()
+                .uri("/customers/{customerId}/trades", 1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TradeHistoryItem.class)
+                .returnResult()
+                .getResponseBody();
+        Assertions.assertEquals(List.of("BUY APPLE 5@100", "SELL APPLE 2@110", "BUY GOOGLE 1@50"),
+                history.stream().map(trade -> trade.action() + " " + trade.ticker() + " " + trade.quantity() + "@" + trade.price()).toList());
+    }
+}
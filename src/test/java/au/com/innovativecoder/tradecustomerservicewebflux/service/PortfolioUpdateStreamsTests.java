@@ -0,0 +1,70 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.PortfolioUpdate;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.event.TradeCommittedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+class PortfolioUpdateStreamsTests {
+
+    private final PortfolioUpdateStreams streams = new PortfolioUpdateStreams();
+
+    @Test
+    void testSubscribersReceiveCommittedTradesAndChannelIsDroppedAfterLastOne() {
+        var buy = new StockTradeRequest(Ticker.APPLE, 10, 2, TradeAction.BUY);
+
+        StepVerifier.create(this.streams.stream(1))
+                .then(() -> Assertions.assertEquals(1, this.streams.activeChannels()))
+                .then(() -> this.streams.onTradeCommitted(new TradeCommittedEvent(1, buy, 980, 2)))
+                .then(() -> this.streams.onTradeCommitted(new TradeCommittedEvent(2, buy, 980, 2)))
+                .expectNextMatches(update -> update.customerId() == 1 && update.balance() == 980 && update.holding().quantity() == 2)
+                .thenCancel()
+                .verify();
+
+        Assertions.assertEquals(0, this.streams.activeChannels());
+    }
+
+    @Test
+    void testSlowSubscriberKeepsLatestUpdateOfATicker() {
+        var buy = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+
+        StepVerifier.create(this.streams.stream(1), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 1000; i++) {
+                        this.streams.onTradeCommitted(new TradeCommittedEvent(1, buy, 1000 - i * 10, i));
+                    }
+                })
+                .thenRequest(1)
+                .expectNextMatches(update -> update.holding().quantity() == 1000)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testSlowSubscriberKeepsLatestUpdateOfEveryTicker() {
+        var apple = new StockTradeRequest(Ticker.APPLE, 10, 1, TradeAction.BUY);
+        var google = new StockTradeRequest(Ticker.GOOGLE, 10, 1, TradeAction.BUY);
+
+        StepVerifier.create(this.streams.stream(1), 0)
+                .then(() -> {
+                    this.streams.onTradeCommitted(new TradeCommittedEvent(1, apple, 990, 1));
+                    this.streams.onTradeCommitted(new TradeCommittedEvent(1, google, 980, 1));
+                    this.streams.onTradeCommitted(new TradeCommittedEvent(1, apple, 970, 2));
+                })
+                // the update that changed last comes last and carries the latest balance
+                .thenRequest(10)
+                .expectNext(new PortfolioUpdate(1, 980, new Holding(Ticker.GOOGLE, 1)))
+                .expectNext(new PortfolioUpdate(1, 970, new Holding(Ticker.APPLE, 2)))
+                .then(() -> this.streams.onTradeCommitted(new TradeCommittedEvent(1, google, 960, 2)))
+                .expectNext(new PortfolioUpdate(1, 960, new Holding(Ticker.GOOGLE, 2)))
+                .thenCancel()
+                .verify();
+
+        Assertions.assertEquals(0, this.streams.activeChannels());
+    }
+}
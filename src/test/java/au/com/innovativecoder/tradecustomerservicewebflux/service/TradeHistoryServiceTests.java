@@ -0,0 +1,67 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.exceptions.CustomerNotFoundException;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+class TradeHistoryServiceTests {
+
+    @Autowired
+    private TradeHistoryService tradeHistoryService;
+
+    @Autowired
+    private TradeLaneExecutor tradeLaneExecutor;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void testPagesCoverEveryTradeOnce() {
+        var customer = new Customer();
+        customer.setName("History");
+        customer.setBalance(100_000);
+        var customerId = this.customerRepository.save(customer).map(Customer::getId).block();
+
+        for (int i = 0; i < 25; i++) {
+            var ticker = i % 2 == 0 ? Ticker.GOOGLE : Ticker.APPLE;
+            this.tradeLaneExecutor.trade(customerId, new StockTradeRequest(ticker, 10, 1, TradeAction.BUY)).block();
+        }
+
+        var all = new ArrayList<TradeHistoryItem>();
+        Long after = null;
+        List<TradeHistoryItem> page;
+        while (!(page = this.tradeHistoryService.getTrades(customerId, after, 10, null).collectList().block()).isEmpty()) {
+            Assertions.assertTrue(page.size() <= 10);
+            all.addAll(page);
+            after = page.get(page.size() - 1).id();
+        }
+
+        Assertions.assertEquals(25, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Assertions.assertTrue(all.get(i - 1).id() < all.get(i).id());
+        }
+        var google = this.tradeHistoryService.getTrades(customerId, null, 100, Ticker.GOOGLE).collectList().block();
+        Assertions.assertEquals(13, google.size());
+        Assertions.assertTrue(google.stream().allMatch(item -> item.ticker() == Ticker.GOOGLE));
+    }
+
+    @Test
+    void testUnknownCustomerIsNotFound() {
+        StepVerifier.create(this.tradeHistoryService.getTrades(Integer.MAX_VALUE, null, null, null))
+                .expectError(CustomerNotFoundException.class)
+                .verify();
+    }
+}
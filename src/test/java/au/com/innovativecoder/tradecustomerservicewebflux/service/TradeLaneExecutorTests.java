@@ -0,0 +1,122 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.service;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.TradeHistoryItem;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.PortfolioItemRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+@SpringBootTest
+class TradeLaneExecutorTests {
+
+    private static final int CUSTOMERS = 8;
+    private static final int BUYS_PER_CUSTOMER = 1000;
+    private static final int SELLS_PER_CUSTOMER = 400;
+    private static final int TRADES_IN_ORDER = 200;
+
+    @Autowired
+    private TradeLaneExecutor tradeLaneExecutor;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PortfolioItemRepository portfolioItemRepository;
+
+    @Autowired
+    private TradeHistoryService tradeHistoryService;
+
+    @Test
+    void testConcurrentTradesKeepBalancesConsistent() {
+        var customerIds = Flux.range(0, CUSTOMERS)
+                .concatMap(i -> this.customerRepository.save(newCustomer("Stress-" + i, 100_000)))
+                .map(Customer::getId)
+                .collectList()
+                .block();
+
+        var buy = new StockTradeRequest(Ticker.APPLE, 7, 1, TradeAction.BUY);
+        var sell = new StockTradeRequest(Ticker.APPLE, 11, 1, TradeAction.SELL);
+
+        // every buy is fired in parallel from many threads; none of them may be lost
+        StepVerifier.create(submit(customerIds, buy, BUYS_PER_CUSTOMER))
+                .expectNextCount((long) CUSTOMERS * BUYS_PER_CUSTOMER)
+                .verifyComplete();
+
+        StepVerifier.create(submit(customerIds, sell, SELLS_PER_CUSTOMER))
+                .expectNextCount((long) CUSTOMERS * SELLS_PER_CUSTOMER)
+                .verifyComplete();
+
+        var expectedBalance = 100_000 - BUYS_PER_CUSTOMER * 7 + SELLS_PER_CUSTOMER * 11;
+        var expectedQuantity = BUYS_PER_CUSTOMER - SELLS_PER_CUSTOMER;
+
+        for (var customerId : customerIds) {
+            StepVerifier.create(this.customerRepository.findById(customerId))
+                    .expectNextMatches(c -> c.getBalance() == expectedBalance)
+                    .verifyComplete();
+            StepVerifier.create(this.portfolioItemRepository.findAllByCustomerId(customerId))
+                    .expectNextMatches(p -> p.getTicker() == Ticker.APPLE && p.getQuantity() == expectedQuantity)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void testTradesOfACustomerRunInSubmissionOrder() {
+        var customerId = this.customerRepository.save(newCustomer("Ordered", 1_000_000)).map(Customer::getId).block();
+
+        // flatMap subscribes to every trade in order without waiting for the ones before it to complete
+        StepVerifier.create(Flux.range(1, TRADES_IN_ORDER)
+                        .flatMap(price -> this.tradeLaneExecutor.trade(customerId, new StockTradeRequest(Ticker.APPLE, price, 1, TradeAction.BUY)), TRADES_IN_ORDER))
+                .expectNextCount(TRADES_IN_ORDER)
+                .verifyComplete();
+
+        var prices = this.tradeHistoryService.getTrades(customerId, null, TRADES_IN_ORDER, null)
+                .map(TradeHistoryItem::price)
+                .collectList()
+                .block();
+        Assertions.assertEquals(IntStream.rangeClosed(1, TRADES_IN_ORDER).boxed().toList(), prices);
+    }
+
+    @Test
+    void testQueuedWorkIsSkippedOnceItsCallerCancels() {
+        var customerId = Integer.MAX_VALUE;
+        var ran = new AtomicBoolean();
+
+        var first = this.tradeLaneExecutor.execute(customerId, Mono.delay(Duration.ofMillis(200))).toFuture();
+        this.tradeLaneExecutor.execute(customerId, Mono.fromRunnable(() -> ran.set(true))).subscribe().dispose();
+
+        Assertions.assertEquals("last", this.tradeLaneExecutor.execute(customerId, Mono.just("last")).block(Duration.ofSeconds(5)));
+        Assertions.assertTrue(first.isDone());
+        Assertions.assertFalse(ran.get());
+    }
+
+    private Flux<?> submit(List<Integer> customerIds, StockTradeRequest request, int tradesPerCustomer) {
+        return Flux.range(0, customerIds.size() * tradesPerCustomer)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> this.tradeLaneExecutor.trade(customerIds.get(i % customerIds.size()), request), false, 32)
+                .sequential()
+                .timeout(Duration.ofMinutes(2));
+    }
+
+    private static Customer newCustomer(String name, int balance) {
+        var customer = new Customer();
+        customer.setName(name);
+        customer.setBalance(balance);
+        return customer;
+    }
+}
@@ -0,0 +1,155 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.shard;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.BookSnapshotProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.TradeAction;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerLookupResult;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.StockTradeRequest;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerImportRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.ExposureRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.CustomerService;
+import au.com.innovativecoder.tradecustomerservicewebflux.service.TradeService;
+import au.com.innovativecoder.tradecustomerservicewebflux.snapshot.BookSnapshotLoader;
+import au.com.innovativecoder.tradecustomerservicewebflux.snapshot.BookSnapshotWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.List;
+
+@SpringBootTest(properties = {"database.shards.count=2", "database.shards.url-template=r2dbc:h2:mem:///${random.uuid}-%d",
+        "trade.exposure.check-enabled=false"})
+class ShardRoutingTests {
+
+    private static final StockTradeRequest BUY = new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY);
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ExposureRepository exposureRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerImportRepository customerImportRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private TradeJournalProperties tradeJournalProperties;
+
+    @Test
+    void testEveryShardHoldsOnlyItsOwnCustomers() {
+        var shards = ShardRoutingConnectionFactory.shardsOf(this.connectionFactory);
+        Assertions.assertEquals(2, shards.size());
+
+        Assertions.assertEquals(List.of(2), customerIds(shards.get(0)).stream().filter(id -> id <= 3).toList());
+        Assertions.assertEquals(List.of(1, 3), customerIds(shards.get(1)).stream().filter(id -> id <= 3).toList());
+    }
+
+    @Test
+    void testCustomersCreatedOnAShardRouteBackToIt() {
+        for (int shard = 0; shard < 2; shard++) {
+            var customer = new Customer();
+            customer.setName("Shard " + shard);
+            customer.setBalance(1_000);
+            var customerId = this.shardRouting.onShard(shard, this.customerRepository.save(customer)).block().getId();
+
+            Assertions.assertEquals(shard, this.shardRouting.shardOf(customerId));
+            Assertions.assertEquals(900, this.tradeService.trade(customerId, BUY).block().balance());
+            Assertions.assertEquals(900, this.customerService.getCustomerInformation(customerId).block().balance());
+        }
+    }
+
+    @Test
+    void testLookupGathersAllShardsInRequestedOrder() {
+        var before = this.exposureRepository.aggregate().block();
+        this.tradeService.trade(1, BUY).block();
+        this.tradeService.trade(2, BUY).block();
+
+        var results = this.customerService.lookupCustomerInformation(Flux.just(3, 2, 1_000_000, 1))
+                .map(CustomerLookupResult::customerId)
+                .collectList()
+                .block();
+        var after = this.exposureRepository.aggregate().block();
+
+        Assertions.assertEquals(List.of(3, 2, 1_000_000, 1), results);
+        Assertions.assertEquals(before.cashBalance() - 200, after.cashBalance());
+    }
+
+    @Test
+    void testUnroutedWorkFails() {
+        StepVerifier.create(this.databaseClient.sql("SELECT COUNT(*) FROM customer").fetch().one())
+                .verifyErrorSatisfies(e -> Assertions.assertInstanceOf(IllegalStateException.class, NestedExceptionUtils.getMostSpecificCause(e)));
+    }
+
+    @Test
+    void testFailedSnapshotLoadRollsBackEveryShard(@TempDir Path directory) {
+        var shards = ShardRoutingConnectionFactory.shardsOf(this.connectionFactory);
+        var before = List.of(customerIds(shards.get(0)), customerIds(shards.get(1)));
+        // shard 0 loads, then the second batch of shard 1 repeats an ID, which the database rejects
+        var snapshot = directory.resolve("duplicate.snapshot");
+        try (var writer = new BookSnapshotWriter(snapshot)) {
+            writer.write(new CustomerInformation(1, "Sam", 10_000, List.of()));
+            writer.write(new CustomerInformation(2, "Mike", 10_000, List.of()));
+            writer.write(new CustomerInformation(3, "John", 10_000, List.of()));
+            writer.write(new CustomerInformation(3, "John", 10_000, List.of()));
+            writer.commit();
+        }
+
+        var loader = new BookSnapshotLoader(this.customerImportRepository, this.transactionManager, new BookSnapshotProperties(snapshot, 1),
+                this.shardRouting, this.tradeJournalProperties);
+        Assertions.assertThrows(RuntimeException.class, loader::start);
+
+        Assertions.assertEquals(before, List.of(customerIds(shards.get(0)), customerIds(shards.get(1))));
+    }
+
+    @Test
+    void testEveryShardPoolIsMetered() {
+        for (var name : List.of("shard-0", "shard-1")) {
+            Assertions.assertNotNull(this.meterRegistry.find("r2dbc.pool.acquired").tag("name", name).gauge());
+            Assertions.assertNotNull(this.meterRegistry.find("r2dbc.pool.idle").tag("name", name).gauge());
+        }
+    }
+
+    private static List<Integer> customerIds(ConnectionFactory shard) {
+        return DatabaseClient.create(shard)
+                .sql("SELECT id FROM customer ORDER BY id")
+                .map(row -> row.get("id", Integer.class))
+                .all()
+                .collectList()
+                .block();
+    }
+}
@@ -0,0 +1,157 @@
+package au.com.innovativecoder.tradecustomerservicewebflux.snapshot;
+
+import au.com.innovativecoder.tradecustomerservicewebflux.config.BookSnapshotProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.config.TradeJournalProperties;
+import au.com.innovativecoder.tradecustomerservicewebflux.domain.Ticker;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerImportRow;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.CustomerInformation;
+import au.com.innovativecoder.tradecustomerservicewebflux.dto.Holding;
+import au.com.innovativecoder.tradecustomerservicewebflux.entity.Customer;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerImportRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.repository.CustomerRepository;
+import au.com.innovativecoder.tradecustomerservicewebflux.shard.ShardRouting;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.r2dbc.generate-unique-name=true", "customer.export.page-size=2", "trade.exposure.check-enabled=false"})
+@AutoConfigureWebTestClient
+class BookSnapshotTests {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerImportRepository customerImportRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @Autowired
+    private TradeJournalProperties tradeJournalProperties;
+
+    @Autowired
+    private BookSnapshotExporter exporter;
+
+    @Test
+    void testExportStreamsEveryCustomerInIdOrder() {
+        this.importCustomers();
+
+        var exported = this.export();
+
+        Assertions.assertEquals(this.customerRepository.count().block().intValue(), exported.size());
+        for (int i = 1; i < exported.size(); i++) {
+            Assertions.assertTrue(exported.get(i - 1).id() < exported.get(i).id());
+        }
+        Assertions.assertTrue(exported.stream().anyMatch(customer -> customer.holdings().equals(
+                List.of(new Holding(Ticker.APPLE, 5), new Holding(Ticker.GOOGLE, 3)))));
+    }
+
+    @Test
+    void testSnapshotRestoresTheExportedBook() {
+        this.importCustomers();
+        var snapshot = this.directory.resolve("book.snapshot");
+        var book = this.export();
+
+        Assertions.assertEquals(book.size(), this.exporter.export(snapshot).block().intValue());
+        try (var reader = new BookSnapshotReader(snapshot)) {
+            var read = new ArrayList<CustomerInformation>();
+            reader.forEachRemaining(read::add);
+            Assertions.assertEquals(book, read);
+        }
+
+        this.importCustomers();
+        new BookSnapshotLoader(this.customerImportRepository, this.transactionManager, new BookSnapshotProperties(snapshot, 2), this.shardRouting,
+                this.tradeJournalProperties)
+                .start();
+
+        Assertions.assertEquals(book, this.export());
+        // new customers continue after the highest loaded ID
+        var customer = new Customer();
+        customer.setName("After");
+        customer.setBalance(1);
+        Assertions.assertEquals(book.get(book.size() - 1).id() + 1, this.customerRepository.save(customer).block().getId());
+    }
+
+    @Test
+    void testFailedLoadKeepsThePreviousTables() {
+        this.importCustomers();
+        var book = this.export();
+        // the snapshot verifies, but its second batch repeats an ID, which the database rejects
+        var snapshot = this.directory.resolve("duplicate.snapshot");
+        try (var writer = new BookSnapshotWriter(snapshot)) {
+            writer.write(new CustomerInformation(1, "Sam", 10_000, List.of(new Holding(Ticker.AMAZON, 2))));
+            writer.write(new CustomerInformation(2, "Mike", 10_000, List.of()));
+            writer.write(new CustomerInformation(2, "Mike", 10_000, List.of()));
+            writer.commit();
+        }
+
+        var loader = new BookSnapshotLoader(this.customerImportRepository, this.transactionManager, new BookSnapshotProperties(snapshot, 2), this.shardRouting,
+                this.tradeJournalProperties);
+        Assertions.assertThrows(RuntimeException.class, loader::start);
+
+        Assertions.assertFalse(loader.isRunning());
+        Assertions.assertEquals(book, this.export());
+    }
+
+    @Test
+    void testDamagedSnapshotIsRejected() throws IOException {
+        var snapshot = this.directory.resolve("damaged.snapshot");
+        try (var writer = new BookSnapshotWriter(snapshot)) {
+            writer.write(new CustomerInformation(1, "Sam", 10_000, List.of(new Holding(Ticker.AMAZON, 2))));
+            writer.write(new CustomerInformation(2, null, null, List.of()));
+            writer.commit();
+        }
+        Assertions.assertEquals(2, BookSnapshotReader.verify(snapshot));
+
+        var bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - BookSnapshot.TRAILER_SIZE - 1] ^= 1;
+        Files.write(snapshot, bytes);
+        Assertions.assertThrows(IllegalStateException.class, () -> BookSnapshotReader.verify(snapshot));
+
+        Files.write(snapshot, Arrays.copyOf(bytes, 8));
+        Assertions.assertThrows(IllegalStateException.class, () -> BookSnapshotReader.verify(snapshot));
+    }
+
+    private void importCustomers() {
+        this.customerImportRepository.insert(List.of(
+                        new CustomerImportRow("Anna", 1_000, List.of(new Holding(Ticker.APPLE, 5), new Holding(Ticker.GOOGLE, 3))),
+                        new CustomerImportRow("Bob", 2_000, List.of()),
+                        new CustomerImportRow("Carol", 3_000, List.of(new Holding(Ticker.AMAZON, 1)))))
+                .block();
+    }
+
+    private List<CustomerInformation> export() {
+        return this.client.get()
+                .uri("/customers/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerInformation.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+    }
+}